@@ -0,0 +1,123 @@
+package be.ugent.rml;
+
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.term.BlankNode;
+import be.ugent.rml.term.Term;
+
+import java.util.*;
+
+/**
+ * The scope in which a thread generates the terms of a record: the Triples Map and the position of the record in its source.
+ * Blank nodes without template get an identifier that is derived from the scope in which they are generated,
+ * instead of from a counter that is shared by all threads and executors:
+ * the subject of a record gets the key of its Triples Map and its position, the other blank nodes of the record get a sequence number as well.
+ * So a record always gets the same blank nodes, also when records are processed in parallel or by several processes,
+ * when an execution is resumed or repeated, and when the subject of a parent record is generated again for a join.
+ * The key, with the prefix of the executor if it has one, is passed by the executor that opens the scope,
+ * so the state of different executors in the same JVM is not shared.
+ */
+public final class BlankNodeScope implements AutoCloseable {
+
+    private static final ThreadLocal<BlankNodeScope> current = new ThreadLocal<>();
+
+    private final String key;
+    private final long position;
+    private final boolean subject;
+    // the scope of the thread before this scope was opened.
+    private final BlankNodeScope previous;
+    private int generated;
+
+    private BlankNodeScope(String key, long position, boolean subject, BlankNodeScope previous) {
+        this.key = key;
+        this.position = position;
+        this.subject = subject;
+        this.previous = previous;
+    }
+
+    /**
+     * This method opens a scope for the current thread, until it is closed.
+     * @param key the key of the Triples Map (see getKey), with a prefix if needed.
+     * @param position the position of the record in its source.
+     * @param subject true if the scope is the generation of the subject of the record, false for its other terms.
+     * @return the scope.
+     */
+    public static BlankNodeScope open(String key, long position, boolean subject) {
+        BlankNodeScope scope = new BlankNodeScope(key, position, subject, current.get());
+        current.set(scope);
+
+        return scope;
+    }
+
+    /**
+     * This method restores the scope of the current thread from before this scope was opened.
+     */
+    @Override
+    public void close() {
+        current.set(previous);
+    }
+
+    /**
+     * @return the identifier of the next blank node in the scope of the current thread.
+     * If the thread has no open scope, i.e., the term is not generated by an executor, the identifier is random.
+     */
+    public static String nextID() {
+        BlankNodeScope scope = current.get();
+
+        if (scope == null) {
+            return "r" + UUID.randomUUID().toString().replace("-", "");
+        }
+
+        int n = scope.generated++;
+        String id = scope.key + "_" + scope.position;
+
+        if (scope.subject) {
+            return n == 0 ? id : id + "_s" + n;
+        }
+
+        return id + "_" + n;
+    }
+
+    /**
+     * @return the key of a Triples Map with an IRI in blank node identifiers: the 64-bit FNV-1a hash of its IRI, in base 36.
+     */
+    public static String getKey(Term triplesMap) {
+        return hash(triplesMap.getValue());
+    }
+
+    /**
+     * This method returns the keys of Triples Maps in blank node identifiers.
+     * The identifier of a Triples Map that is a blank node changes every time the mapping is parsed,
+     * so its key is the hash of its description instead (see Utils.getDescription).
+     * Triples Maps with the same description get a sequence number as well.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @param triplesMaps the Triples Maps.
+     * @return the key of every Triples Map.
+     */
+    public static Map<Term, String> getKeys(QuadStore rmlStore, Collection<Term> triplesMaps) {
+        Map<Term, String> keys = new HashMap<>();
+        Map<String, Integer> descriptions = new HashMap<>();
+
+        for (Term triplesMap : triplesMaps) {
+            if (triplesMap instanceof BlankNode) {
+                String key = "d" + hash(Utils.getDescription(rmlStore, triplesMap));
+                int n = descriptions.merge(key, 1, Integer::sum);
+
+                keys.put(triplesMap, n == 1 ? key : key + "x" + n);
+            } else {
+                keys.put(triplesMap, getKey(triplesMap));
+            }
+        }
+
+        return keys;
+    }
+
+    private static String hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (char c : value.toCharArray()) {
+            hash = (hash ^ c) * 0x100000001b3L;
+        }
+
+        return Long.toUnsignedString(hash, 36);
+    }
+}
@@ -0,0 +1,59 @@
+package be.ugent.rml;
+
+import be.ugent.rml.term.ProvenancedTerm;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class caches at most a fixed number of subjects of a Triples Map.
+ * The cache is direct-mapped: a record has a single slot (its position modulo the capacity),
+ * and a subject that is cached in a slot evicts the subject of the record that was in it before.
+ * An evicted subject is generated again when it is needed, so this cache can only be used
+ * if the subject of a record is the same every time it is generated (i.e., no blank nodes without a template).
+ */
+public class BoundedSubjectCache extends SubjectCache {
+
+    private final AtomicReferenceArray<Entry> entries;
+
+    /**
+     * @param capacity the maximum number of cached subjects.
+     */
+    public BoundedSubjectCache(int capacity) {
+        super(0);
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public ProvenancedTerm get(int index) {
+        Entry entry = entries.get(index % entries.length());
+
+        if (entry != null && entry.index == index) {
+            return entry.subject;
+        }
+
+        return null;
+    }
+
+    @Override
+    public ProvenancedTerm putIfAbsent(int index, ProvenancedTerm subject) {
+        entries.set(index % entries.length(), new Entry(index, subject));
+
+        return subject;
+    }
+
+    @Override
+    public int size() {
+        return entries.length();
+    }
+
+    private static class Entry {
+
+        private final int index;
+        private final ProvenancedTerm subject;
+
+        private Entry(int index, ProvenancedTerm subject) {
+            this.index = index;
+            this.subject = subject;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package be.ugent.rml;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * This class keeps the progress of an execution in a file, so that an execution that fails can be resumed
+ * instead of started again.
+ * The progress is the number of Triples Maps that are done (in the order in which they are executed),
+ * the number of records of the next Triples Map that are done, the length of the output file and the number of quads in it
+ * after the quads of these records are written.
+ * As the Triples Maps are identified by their position, the checkpoint also contains fingerprints of the mapping
+ * and of the order of the Triples Maps (which depends on -t, -ord and -pln), and it is only resumed if they are the same.
+ * The file is replaced atomically, so a crash while it is written leaves the previous checkpoint.
+ */
+public class Checkpoint {
+
+    public static final long DEFAULT_INTERVAL = 60 * 1000;
+
+    private final Path file;
+    private final long interval;
+    private long lastSave = System.currentTimeMillis();
+    private boolean resumed;
+    private int triplesMaps;
+    private long records;
+    private long length;
+    private long numberOfQuads;
+    private String mapping;
+    private String order;
+
+    /**
+     * @param file the checkpoint file.
+     * @param interval the minimum time between two checkpoints in milliseconds.
+     */
+    public Checkpoint(File file, long interval) {
+        this.file = file.toPath();
+        this.interval = interval;
+    }
+
+    /**
+     * This method reads the progress from the checkpoint file, if it exists.
+     * @return true if the progress is read, so the execution is resumed.
+     * @throws IOException
+     */
+    public boolean load() throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+
+        Properties properties = new Properties();
+
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        }
+
+        triplesMaps = Integer.parseInt(properties.getProperty("triplesMaps"));
+        records = Long.parseLong(properties.getProperty("records"));
+        length = Long.parseLong(properties.getProperty("length"));
+        numberOfQuads = Long.parseLong(properties.getProperty("quads"));
+        mapping = properties.getProperty("mapping");
+        order = properties.getProperty("order");
+        resumed = true;
+
+        return true;
+    }
+
+    /**
+     * @return true if the progress is read from the checkpoint file.
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * This method sets the fingerprints of the mapping and of the order of the Triples Maps that are written to the checkpoints.
+     * @param mapping a description of the mapping.
+     * @param order a description of the order in which the Triples Maps are executed.
+     * @throws IOException if the progress is read from the checkpoint file, but it was written for another mapping or order.
+     */
+    public void setFingerprints(String mapping, String order) throws IOException {
+        String mappingFingerprint = getFingerprint(mapping);
+        String orderFingerprint = getFingerprint(order);
+
+        if (resumed && !mappingFingerprint.equals(this.mapping)) {
+            throw new IOException("The checkpoint " + file + " was written for another mapping. Run the mapping without --resume to start it again.");
+        }
+
+        if (resumed && !orderFingerprint.equals(this.order)) {
+            throw new IOException("The checkpoint " + file + " was written for another selection or order of the Triples Maps (-t, -ord, -pln). "
+                    + "Use the same options to resume the mapping, or run it without --resume to start it again.");
+        }
+
+        this.mapping = mappingFingerprint;
+        this.order = orderFingerprint;
+    }
+
+    /**
+     * @return true if the interval passed since the last checkpoint.
+     */
+    public boolean isDue() {
+        return System.currentTimeMillis() - lastSave >= interval;
+    }
+
+    /**
+     * This method writes the progress to the checkpoint file.
+     * @param triplesMaps the number of Triples Maps that are done.
+     * @param records the number of records of the next Triples Map that are done.
+     * @param length the length of the output file, which contains all quads of these Triples Maps and records.
+     * @param numberOfQuads the number of quads in the output file.
+     * @throws IOException
+     */
+    public void save(int triplesMaps, long records, long length, long numberOfQuads) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("triplesMaps", "" + triplesMaps);
+        properties.setProperty("records", "" + records);
+        properties.setProperty("length", "" + length);
+        properties.setProperty("quads", "" + numberOfQuads);
+        properties.setProperty("mapping", mapping);
+        properties.setProperty("order", order);
+
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(temporaryFile.toFile())) {
+            properties.store(new OutputStreamWriter(out, StandardCharsets.UTF_8), null);
+            out.getFD().sync();
+        }
+
+        try {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        this.triplesMaps = triplesMaps;
+        this.records = records;
+        this.length = length;
+        this.numberOfQuads = numberOfQuads;
+        this.lastSave = System.currentTimeMillis();
+    }
+
+    /**
+     * This method deletes the checkpoint file, once the execution is done.
+     * @throws IOException
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    public int getTriplesMaps() {
+        return triplesMaps;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getNumberOfQuads() {
+        return numberOfQuads;
+    }
+
+    private static String getFingerprint(String value) {
+        try {
+            StringBuilder fingerprint = new StringBuilder();
+
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8))) {
+                fingerprint.append(String.format("%02x", b));
+            }
+
+            return fingerprint.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -2,10 +2,13 @@ package be.ugent.rml;
 
 import be.ugent.rml.functions.FunctionLoader;
 import be.ugent.rml.functions.MultipleRecordsFunctionExecutor;
+import be.ugent.rml.join.EqualityJoinCondition;
+import be.ugent.rml.join.JoinIndex;
 import be.ugent.rml.metadata.Metadata;
 import be.ugent.rml.metadata.MetadataGenerator;
 import be.ugent.rml.records.Record;
 import be.ugent.rml.records.RecordsFactory;
+import be.ugent.rml.store.Quad;
 import be.ugent.rml.store.QuadStore;
 import be.ugent.rml.store.SimpleQuadStore;
 import be.ugent.rml.term.NamedNode;
@@ -26,16 +29,34 @@ public class ConcurrentExecutor implements Mapper {
 
     public static ExecutorService executorService;
     public static int NUM_THREADS = 4;
+    // if true, the Logical Sources are fetched and parsed by virtual threads (Java 21+),
+    // while the records are still processed by the NUM_THREADS threads of the executorService.
+    public static boolean VIRTUAL_THREADS = false;
+    // the ExecutorService used to load the Logical Sources, if it is null the executorService is used.
+    public static ExecutorService ioExecutorService;
+    // the maximum number of records processed by a single task.
+    public static int CHUNK_SIZE = 1000;
+    // the number of predicate-object-graphs a task buffers before they are passed to the pogFunction.
+    public static int BATCH_SIZE = 1024;
+    // the maximum number of cached subjects per parent Triples Map, 0 to cache the subjects of all records.
+    public static int SUBJECT_CACHE_CAPACITY = 0;
 
     private Initializer initializer;
     private ConcurrentHashMap<Term, List<Record>> recordsHolders;
-    private ConcurrentHashMap<Term, ConcurrentHashMap<Integer, ProvenancedTerm>> subjectCache;
+    // the subjects of the records of the parent Triples Maps, the subjects of other Triples Maps are not cached.
+    private ConcurrentHashMap<Term, SubjectCache> subjectCache;
+    private ConcurrentHashMap<Term, ConcurrentHashMap<List<String>, JoinIndex>> joinIndexes;
+    // the subjects of all records of the parent Triples Maps that are referenced without join conditions.
+    private ConcurrentHashMap<Term, List<ProvenancedTerm>> allSubjects;
     private QuadStore resultingQuads;
     private QuadStore rmlStore;
     private RecordsFactory recordsFactory;
-    private static int blankNodeCounter = 0;
     private Map<Term, Mapping> mappings;
+    // the key of every Triples Map in the identifiers of its blank nodes (see BlankNodeScope.getKeys).
+    private Map<Term, String> blankNodeKeys;
     private String baseIRI;
+    // the buffers of the tasks are flushed one at a time, because the pogFunction and the resulting QuadStore are not thread-safe.
+    private final Object flushLock = new Object();
 
     public ConcurrentExecutor(QuadStore rmlStore, RecordsFactory recordsFactory, String baseIRI) throws Exception {
         this(rmlStore, recordsFactory, null, null, baseIRI);
@@ -46,17 +67,17 @@ public class ConcurrentExecutor implements Mapper {
     }
 
     public ConcurrentExecutor(QuadStore rmlStore, RecordsFactory recordsFactory, FunctionLoader functionLoader, QuadStore resultingQuads, String baseIRI) throws Exception {
-        if (executorService == null) {
-            executorService = Executors.newFixedThreadPool(NUM_THREADS);
-            logger.info("ExecutorService for ConcurrentExecutor initialized [num_threads = " + NUM_THREADS + "]");
-        }
+        initExecutorServices();
         this.initializer = new Initializer(rmlStore, functionLoader);
         this.mappings = this.initializer.getMappings();
         this.rmlStore = rmlStore;
         this.recordsFactory = recordsFactory;
         this.baseIRI = baseIRI;
         this.recordsHolders = new ConcurrentHashMap<Term, List<Record>>();
-        this.subjectCache = new ConcurrentHashMap<Term, ConcurrentHashMap<Integer, ProvenancedTerm>>();
+        this.subjectCache = new ConcurrentHashMap<Term, SubjectCache>();
+        this.joinIndexes = new ConcurrentHashMap<Term, ConcurrentHashMap<List<String>, JoinIndex>>();
+        this.allSubjects = new ConcurrentHashMap<Term, List<ProvenancedTerm>>();
+        this.blankNodeKeys = BlankNodeScope.getKeys(this.rmlStore, this.initializer.getTriplesMaps());
 
         if (resultingQuads == null) {
             this.resultingQuads = new SimpleQuadStore();
@@ -66,17 +87,17 @@ public class ConcurrentExecutor implements Mapper {
     }
 
     public ConcurrentExecutor(Initializer initializer, RecordsFactory recordsFactory, QuadStore resultingQuads, String baseIRI) throws Exception {
-        if (executorService == null) {
-            executorService = Executors.newFixedThreadPool(NUM_THREADS);
-            logger.info("ExecutorService for ConcurrentExecutor initialized [num_threads = " + NUM_THREADS + "]");
-        }
+        initExecutorServices();
         this.initializer = initializer;
         this.mappings = this.initializer.getMappings();
         this.rmlStore = this.initializer.getRMLStore();
         this.recordsFactory = recordsFactory;
         this.baseIRI = baseIRI;
         this.recordsHolders = new ConcurrentHashMap<Term, List<Record>>();
-        this.subjectCache = new ConcurrentHashMap<Term, ConcurrentHashMap<Integer, ProvenancedTerm>>();
+        this.subjectCache = new ConcurrentHashMap<Term, SubjectCache>();
+        this.joinIndexes = new ConcurrentHashMap<Term, ConcurrentHashMap<List<String>, JoinIndex>>();
+        this.allSubjects = new ConcurrentHashMap<Term, List<ProvenancedTerm>>();
+        this.blankNodeKeys = BlankNodeScope.getKeys(this.rmlStore, this.initializer.getTriplesMaps());
 
         if (resultingQuads == null) {
             this.resultingQuads = new SimpleQuadStore();
@@ -85,6 +106,24 @@ public class ConcurrentExecutor implements Mapper {
         }
     }
 
+    private static synchronized void initExecutorServices() {
+        if (executorService == null) {
+            executorService = Executors.newFixedThreadPool(NUM_THREADS);
+            logger.info("ExecutorService for ConcurrentExecutor initialized [num_threads = " + NUM_THREADS + "]");
+        }
+
+        if (ioExecutorService == null && VIRTUAL_THREADS) {
+            ioExecutorService = Utils.newVirtualThreadPerTaskExecutor();
+
+            if (ioExecutorService != null) {
+                logger.info("Virtual threads used to load logical sources");
+            } else {
+                logger.warn("Virtual threads are not available in Java " + System.getProperty("java.version")
+                        + ", logical sources are loaded by the ExecutorService of ConcurrentExecutor.");
+            }
+        }
+    }
+
     public QuadStore execute(List<Term> triplesMaps, boolean removeDuplicates, MetadataGenerator metadataGenerator) throws Exception {
 
         BiConsumer<ProvenancedTerm, PredicateObjectGraph> pogFunction;
@@ -109,31 +148,44 @@ public class ConcurrentExecutor implements Mapper {
             triplesMaps = this.initializer.getTriplesMaps();
         }
 
-        ExecutorCompletionService completionService = new ExecutorCompletionService<>(executorService);
+        Set<Term> parentTriplesMaps = this.getParentTriplesMaps();
 
-        for (Term triplesMap : triplesMaps) {
-            Mapping mapping = this.mappings.get(triplesMap);
+        // The Logical Sources are loaded concurrently and every Triples Map is started as soon as its records
+        // and the records and join indexes of its parents are available.
+        TriplesMapScheduler scheduler = new TriplesMapScheduler(triplesMaps, this.mappings, this::getSourceKey,
+                triplesMap -> this.recordsFactory.getSourceSize(triplesMap, this.rmlStore));
+        ExecutorCompletionService<String> completionService = new ExecutorCompletionService<>(ioExecutorService != null ? ioExecutorService : executorService);
+        List<Future<String>> tasks = new ArrayList<Future<String>>();
 
-            List<Record> records;
+        for (String source : scheduler.getSources()) {
+            completionService.submit(() -> {
+                this.loadSource(scheduler, source);
+                return source;
+            });
+        }
+
+        for (int i = 0; i < scheduler.getSources().size(); i++) {
+            String source;
             try {
-                records = this.getRecords(triplesMap);
-            } catch (IOException e) {
-                logger.error("Logical source not found or not accessible. Mapping " + triplesMap.getValue() + " skipped.");
-                continue;
-            }
+                source = completionService.take().get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
 
-            List<Future<String>> tasks = new ArrayList<Future<String>>();
+                throw (Error) e.getCause();
+            }
 
-            for (int j = 0; j < records.size(); j++) {
-                tasks.add(completionService.submit(new ProcessRecords(triplesMap, records, mapping, pogFunction, j)));
+            for (Term triplesMap : scheduler.sourceLoaded(source)) {
+                tasks.addAll(this.submitTriplesMap(triplesMap, parentTriplesMaps.contains(triplesMap), pogFunction));
             }
+        }
 
-            for(int i=0; i< tasks.size(); i++) {
-                try {
-                    tasks.get(i).get();
-                } catch(InterruptedException | ExecutionException e) {
-                    logger.error("Concurrent execution exception: " + e.getCause().getMessage(), e.getCause());
-                }
+        for (Future<String> task : tasks) {
+            try {
+                task.get();
+            } catch(InterruptedException | ExecutionException e) {
+                logger.error("Concurrent execution exception: " + e.getCause().getMessage(), e.getCause());
             }
         }
 
@@ -148,6 +200,93 @@ public class ConcurrentExecutor implements Mapper {
         return this.execute(triplesMaps, false, null);
     }
 
+    /**
+     * This method submits the tasks that process the records of a Triples Map.
+     * Every task processes a range of records, so that there are a few tasks per thread instead of one per record.
+     * @param isParent true if the Triples Map is used as parent in a join, so its subjects are cached.
+     * @return the submitted tasks.
+     */
+    private List<Future<String>> submitTriplesMap(Term triplesMap, boolean isParent, BiConsumer<ProvenancedTerm, PredicateObjectGraph> pogFunction) {
+        Mapping mapping = this.mappings.get(triplesMap);
+        List<Future<String>> tasks = new ArrayList<Future<String>>();
+
+        List<Record> records;
+        try {
+            records = this.getRecords(triplesMap);
+        } catch (IOException e) {
+            logger.error("Logical source not found or not accessible. Mapping " + triplesMap.getValue() + " skipped.");
+            return tasks;
+        }
+
+        int chunkSize = Math.max(1, Math.min(CHUNK_SIZE, records.size() / (4 * NUM_THREADS)));
+
+        for (int j = 0; j < records.size(); j += chunkSize) {
+            tasks.add(executorService.submit(new ProcessRecords(triplesMap, records, mapping, isParent, pogFunction, j, Math.min(j + chunkSize, records.size()))));
+        }
+
+        return tasks;
+    }
+
+    /**
+     * This method loads the records of the Triples Maps of a Logical Source
+     * and builds the join indexes on the records of the parent Triples Maps among them.
+     * If the source cannot be accessed, nothing is loaded: the error is reported when its Triples Maps are started.
+     */
+    private void loadSource(TriplesMapScheduler scheduler, String source) {
+        Set<Term> triplesMaps = new LinkedHashSet<>(scheduler.getTriplesMaps(source));
+        triplesMaps.addAll(scheduler.getParentTriplesMaps(source));
+
+        try {
+            for (Term triplesMap : triplesMaps) {
+                this.getRecords(triplesMap);
+            }
+
+            for (Term parent : scheduler.getParentTriplesMaps(source)) {
+                List<Record> records = this.getRecords(parent);
+                // One index per distinct tuple of parent references; the index does not depend on the child references.
+                Map<List<String>, List<EqualityJoinCondition>> indexedConditions = new LinkedHashMap<>();
+
+                for (Mapping mapping : this.mappings.values()) {
+                    for (PredicateObjectGraphMapping pogMapping : mapping.getPredicateObjectGraphMappings()) {
+                        List<EqualityJoinCondition> equalities = JoinIndex.getEqualityConditions(pogMapping.getJoinConditions());
+
+                        if (parent.equals(pogMapping.getParentTriplesMap()) && !equalities.isEmpty()) {
+                            indexedConditions.putIfAbsent(JoinIndex.getParentReferences(equalities), equalities);
+                        }
+                    }
+                }
+
+                for (List<EqualityJoinCondition> equalities : indexedConditions.values()) {
+                    this.getJoinIndex(parent, records, equalities);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Logical source " + source + " could not be loaded: " + e.getMessage());
+        }
+    }
+
+    /**
+     * This method returns a key for the Logical Source of a Triples Map,
+     * based on all its properties, so that Triples Maps with the same key share their records.
+     */
+    private String getSourceKey(Term triplesMap) {
+        List<Term> logicalSources = Utils.getObjectsFromQuads(rmlStore.getQuads(triplesMap, new NamedNode(NAMESPACES.RML + "logicalSource"), null));
+
+        if (logicalSources.isEmpty()) {
+            return triplesMap.getValue();
+        }
+
+        List<String> properties = new ArrayList<>();
+
+        for (Quad quad : rmlStore.getQuads(logicalSources.get(0), null, null)) {
+            properties.add(quad.getPredicate().getValue() + " " + quad.getObject().getValue());
+        }
+
+        Collections.sort(properties);
+
+        return String.join(", ", properties);
+    }
+
 
     private List<PredicateObjectGraph> generatePredicateObjectGraphs(Mapping mapping, Record record, List<ProvenancedTerm> alreadyNeededGraphs) throws Exception {
         ArrayList<PredicateObjectGraph> results = new ArrayList<>();
@@ -161,7 +300,7 @@ public class ConcurrentExecutor implements Mapper {
 
             if (pogMapping.getGraphMappingInfo() != null && pogMapping.getGraphMappingInfo().getTermGenerator() != null) {
                 pogMapping.getGraphMappingInfo().getTermGenerator().generate(record).forEach(term -> {
-                    if (!term.equals(new NamedNode(NAMESPACES.RR + "defaultGraph"))) {
+                    if (!term.equals(TermPlan.DEFAULT_GRAPH)) {
                         poGraphs.add(new ProvenancedTerm(term));
                     }
                 });
@@ -203,7 +342,7 @@ public class ConcurrentExecutor implements Mapper {
         return results;
     }
 
-    synchronized private void generateQuad(ProvenancedTerm subject, ProvenancedTerm predicate, ProvenancedTerm object, ProvenancedTerm graph) {
+    private void generateQuad(ProvenancedTerm subject, ProvenancedTerm predicate, ProvenancedTerm object, ProvenancedTerm graph) {
         Term g = null;
 
         if (graph != null) {
@@ -237,105 +376,174 @@ public class ConcurrentExecutor implements Mapper {
         }
     }
 
-    private List<ProvenancedTerm> getIRIsWithConditions(Record record, Term triplesMap, List<MultipleRecordsFunctionExecutor> conditions) throws Exception {
-        ArrayList<ProvenancedTerm> goodIRIs = new ArrayList<ProvenancedTerm>();
-        ArrayList<List<ProvenancedTerm>> allIRIs = new ArrayList<List<ProvenancedTerm>>();
+    /**
+     * This method returns the IRIs of the parent records that satisfy all join conditions with the child record.
+     * The equality conditions are evaluated together via a single probe in a hash index on the tuple of parent references.
+     * The other conditions are only evaluated for the parent records that are returned by the index.
+     * The IRIs are returned in the order of the parent records.
+     */
+    private List<ProvenancedTerm> getIRIsWithConditions(Record child, Term triplesMap, List<MultipleRecordsFunctionExecutor> conditions) throws Exception {
+        Mapping mapping = this.mappings.get(triplesMap);
+        List<Record> records = this.getRecords(triplesMap);
+        List<EqualityJoinCondition> equalities = JoinIndex.getEqualityConditions(conditions);
+        ArrayList<ProvenancedTerm> iris = new ArrayList<ProvenancedTerm>();
+
+        if (equalities.isEmpty()) {
+            for (int i = 0; i < records.size(); i++) {
+                if (this.areTrueConditions(child, records.get(i), conditions)) {
+                    iris.add(this.getSubject(triplesMap, mapping, records.get(i), i));
+                }
+            }
+        } else {
+            boolean allEqualities = equalities.size() == conditions.size();
 
-        for (MultipleRecordsFunctionExecutor condition : conditions) {
-            allIRIs.add(this.getIRIsWithTrueCondition(record, triplesMap, condition));
+            for (int i : this.getJoinIndex(triplesMap, records, equalities).get(equalities, child)) {
+                if (allEqualities || this.areTrueConditions(child, records.get(i), conditions)) {
+                    iris.add(this.getSubject(triplesMap, mapping, records.get(i), i));
+                }
+            }
         }
 
-        if (!allIRIs.isEmpty()) {
-            goodIRIs.addAll(allIRIs.get(0));
+        return iris;
+    }
 
-            for(int i = 1; i < allIRIs.size(); i ++) {
-                List<ProvenancedTerm> list = allIRIs.get(i);
+    private boolean areTrueConditions(Record child, Record parent, List<MultipleRecordsFunctionExecutor> conditions) throws Exception {
+        HashMap<String, Record> recordsMap = new HashMap<>();
+        recordsMap.put("child", child);
+        recordsMap.put("parent", parent);
 
-                for (int j = 0; j < goodIRIs.size(); j ++) {
-                    if (!list.contains(goodIRIs.get(j))) {
-                        goodIRIs.remove(j);
-                        j --;
-                    }
-                }
+        for (MultipleRecordsFunctionExecutor condition : conditions) {
+            // Equality conditions are already satisfied via the index.
+            if (condition instanceof EqualityJoinCondition) {
+                continue;
+            }
+
+            Object expectedBoolean = condition.execute(recordsMap);
+
+            if (!(expectedBoolean instanceof Boolean)) {
+                logger.warn("The used condition with the Parent Triples Map does not return a boolean.");
+                return false;
+            } else if (!(boolean) expectedBoolean) {
+                return false;
             }
         }
 
-        return goodIRIs;
+        return true;
     }
 
-    private List<ProvenancedTerm> getIRIsWithTrueCondition(Record child, Term triplesMap, MultipleRecordsFunctionExecutor condition) throws Exception {
-        Mapping mapping = this.mappings.get(triplesMap);
+    /**
+     * This method returns the index of the parent records on the parent references of the conditions, which is built only once.
+     * It is probed with the conditions of the caller, because other conditions with the same parent references share it.
+     */
+    private JoinIndex getJoinIndex(Term triplesMap, List<Record> records, List<EqualityJoinCondition> conditions) {
+        return this.joinIndexes
+                .computeIfAbsent(triplesMap, key -> new ConcurrentHashMap<List<String>, JoinIndex>())
+                .computeIfAbsent(JoinIndex.getParentReferences(conditions), key -> JoinIndex.build(records, conditions));
+    }
 
-        //iterator over all the records corresponding with @triplesMap
-        List<Record> records = this.getRecords(triplesMap);
-        //this array contains all the IRIs that are valid regarding @path and @values
-        ArrayList<ProvenancedTerm> iris = new ArrayList<ProvenancedTerm>();
+    /**
+     * This method returns the subject of a record of a Triples Map, which is generated only the first time.
+     * The subjects are cached per Triples Map in a SubjectCache, so no lock is held while a subject is generated.
+     * If two threads generate the subject of the same record, the first one that is cached is returned to both.
+     */
+    private ProvenancedTerm getSubject(Term triplesMap, Mapping mapping, Record record, int i) throws Exception {
+        SubjectCache subjects = this.subjectCache.get(triplesMap);
 
-        for (int i = 0; i < records.size(); i++) {
-            Record parent = records.get(i);
+        if (subjects == null) {
+            int size = this.getRecords(triplesMap).size();
+            subjects = this.subjectCache.computeIfAbsent(triplesMap, key -> SubjectCache.create(mapping, size, SUBJECT_CACHE_CAPACITY));
+        }
 
-            HashMap<String, Record> recordsMap = new HashMap<>();
-            recordsMap.put("child", child);
-            recordsMap.put("parent", parent);
+        ProvenancedTerm subject = subjects.get(i);
 
-            Object expectedBoolean = condition.execute(recordsMap);
+        if (subject == null) {
+            subject = generateSubject(triplesMap, mapping, record, i);
 
-            if (expectedBoolean instanceof Boolean) {
-                if ((boolean) expectedBoolean) {
-                    ProvenancedTerm subject = this.getSubject(triplesMap, mapping, parent, i);
-                    iris.add(subject);
-                }
-            } else {
-                logger.warn("The used condition with the Parent Triples Map does not return a boolean.");
+            if (subject != null) {
+                subject = subjects.putIfAbsent(i, subject);
             }
         }
 
-        return iris;
+        return subject;
     }
 
-    private ProvenancedTerm getSubject(Term triplesMap, Mapping mapping, Record record, int i) throws Exception {
-        synchronized (subjectCache) {
-            if (!this.subjectCache.containsKey(triplesMap)) {
-                this.subjectCache.put(triplesMap, new ConcurrentHashMap<Integer, ProvenancedTerm>());
+    private ProvenancedTerm generateSubject(Term triplesMap, Mapping mapping, Record record, int index) throws Exception {
+        try (BlankNodeScope scope = BlankNodeScope.open(this.getBlankNodeKey(triplesMap), index, true)) {
+            List<Term> nodes = mapping.getSubjectMappingInfo().getTermGenerator().generate(record);
+
+            if (!nodes.isEmpty()) {
+                //todo: only create metadata when it's required
+                return new ProvenancedTerm(nodes.get(0), new Metadata(triplesMap, mapping.getSubjectMappingInfo().getTerm()));
             }
+        }
 
-            if (!this.subjectCache.get(triplesMap).containsKey(i)) {
-                List<Term> nodes = mapping.getSubjectMappingInfo().getTermGenerator().generate(record);
+        return null;
+    }
 
-                if (!nodes.isEmpty()) {
-                    //todo: only create metadata when it's required
-                    this.subjectCache.get(triplesMap).put(i, new ProvenancedTerm(nodes.get(0), new Metadata(triplesMap, mapping.getSubjectMappingInfo().getTerm())));
+    /**
+     * This method returns the Triples Maps that are used as parent in a referencing object map.
+     * Only the subjects of these Triples Maps are needed again after their records are processed, so only they are cached.
+     * @return the parent Triples Maps.
+     */
+    private Set<Term> getParentTriplesMaps() {
+        Set<Term> parents = new HashSet<>();
+
+        for (Mapping mapping : this.mappings.values()) {
+            for (PredicateObjectGraphMapping pogMapping : mapping.getPredicateObjectGraphMappings()) {
+                if (pogMapping.getParentTriplesMap() != null) {
+                    parents.add(pogMapping.getParentTriplesMap());
                 }
             }
-
-            return this.subjectCache.get(triplesMap).get(i);
         }
+
+        return parents;
     }
 
+    /**
+     * This method returns the subjects of all records of a parent Triples Map.
+     * The list is created once per parent Triples Map and shared, read-only, by all tasks.
+     */
     private List<ProvenancedTerm> getAllIRIs(Term triplesMap) throws Exception {
-        Mapping mapping = this.mappings.get(triplesMap);
+        List<ProvenancedTerm> iris = this.allSubjects.get(triplesMap);
 
+        if (iris != null) {
+            return iris;
+        }
+
+        Mapping mapping = this.mappings.get(triplesMap);
         List<Record> records = getRecords(triplesMap);
-        ArrayList<ProvenancedTerm> iris = new ArrayList<ProvenancedTerm>();
+        ArrayList<ProvenancedTerm> subjects = new ArrayList<ProvenancedTerm>(records.size());
 
         for (int i = 0; i < records.size(); i++) {
-            Record record = records.get(i);
-            ProvenancedTerm subject = getSubject(triplesMap, mapping, record, i);
+            ProvenancedTerm subject = getSubject(triplesMap, mapping, records.get(i), i);
 
-            iris.add(subject);
+            if (subject != null) {
+                subjects.add(subject);
+            }
         }
 
-        return iris;
+        iris = Collections.unmodifiableList(subjects);
+        List<ProvenancedTerm> previous = this.allSubjects.putIfAbsent(triplesMap, iris);
+
+        return previous != null ? previous : iris;
     }
 
     private List<Record> getRecords(Term triplesMap) throws IOException {
-        synchronized (recordsHolders) {
-            if (!this.recordsHolders.containsKey(triplesMap)) {
-                this.recordsHolders.put(triplesMap, this.recordsFactory.createRecords(triplesMap, this.rmlStore));
-            }
+        List<Record> records = this.recordsHolders.get(triplesMap);
+
+        // Only the first time the records are created a lock is needed.
+        if (records == null) {
+            synchronized (recordsHolders) {
+                records = this.recordsHolders.get(triplesMap);
 
-            return this.recordsHolders.get(triplesMap);
+                if (records == null) {
+                    records = this.recordsFactory.createRecords(triplesMap, this.rmlStore);
+                    this.recordsHolders.put(triplesMap, records);
+                }
+            }
         }
+
+        return records;
     }
 
     public FunctionLoader getFunctionLoader() {
@@ -360,11 +568,17 @@ public class ConcurrentExecutor implements Mapper {
         return results;
     }
 
+    /**
+     * @return the identifier of a new blank node, as generated by the Executor.
+     */
     public static String getNewBlankNodeID() {
-        String temp = "" + ConcurrentExecutor.blankNodeCounter;
-        ConcurrentExecutor.blankNodeCounter++;
+        return Executor.getNewBlankNodeID();
+    }
 
-        return temp;
+    private String getBlankNodeKey(Term triplesMap) {
+        String key = this.blankNodeKeys.get(triplesMap);
+
+        return key != null ? key : BlankNodeScope.getKey(triplesMap);
     }
 
     @Override
@@ -382,88 +596,128 @@ public class ConcurrentExecutor implements Mapper {
         private final Term triplesMap;
         private final Mapping mapping;
         private final List<Record> records;
-        private final int j;
+        private final boolean isParent;
+        private final int from;
+        private final int to;
         private final BiConsumer<ProvenancedTerm, PredicateObjectGraph> pogFunction;
+        // the predicate-object-graphs of this task that are not yet passed to the pogFunction, with their subjects.
+        private final List<ProvenancedTerm> subjects = new ArrayList<>();
+        private final List<PredicateObjectGraph> pogs = new ArrayList<>();
 
-        ProcessRecords(Term theTripleMap, List<Record> theRecords, Mapping theMapping, BiConsumer<ProvenancedTerm, PredicateObjectGraph> thePogFunction, int theCounter) {
+        ProcessRecords(Term theTripleMap, List<Record> theRecords, Mapping theMapping, boolean theIsParent, BiConsumer<ProvenancedTerm, PredicateObjectGraph> thePogFunction, int theFrom, int theTo) {
             triplesMap = theTripleMap;
             mapping = theMapping;
             records = theRecords;
-            j = theCounter;
+            isParent = theIsParent;
+            from = theFrom;
+            to = theTo;
             pogFunction = thePogFunction;
-
-
         }
 
         @Override
         public String call() throws Exception {
+            try {
+                for (int j = from; j < to; j++) {
+                    processRecord(j);
 
-            Record record = records.get(j);
-            ProvenancedTerm subject = getSubject(triplesMap, mapping, record, j);
+                    if (pogs.size() >= BATCH_SIZE) {
+                        flush();
+                    }
+                }
+            } finally {
+                flush();
+            }
 
-            // If we have subject and it's a named node,
-            // we validate it and make it an absolute IRI if needed.
-            if (subject != null && subject.getTerm() instanceof NamedNode) {
-                String iri = subject.getTerm().getValue();
+            String message = "Done records " + from + " to " + to + " on triple " + triplesMap.getValue();
+            logger.debug(message);
+            return message;
+        }
 
-                // Is the IRI valid?
-                if (!Utils.isValidIRI(iri)) {
-                    logger.error("The subject \"" + iri + "\" is not a valid IRI. Skipped.");
-                    subject = null;
+        /**
+         * This method passes the buffered predicate-object-graphs to the pogFunction, holding the lock once for the whole batch.
+         */
+        private void flush() {
+            if (pogs.isEmpty()) {
+                return;
+            }
 
-                    // Is the IRI relative?
-                } else if (Utils.isRelativeIRI(iri)) {
+            synchronized (flushLock) {
+                for (int i = 0; i < pogs.size(); i++) {
+                    pogFunction.accept(subjects.get(i), pogs.get(i));
+                }
+            }
 
-                    // Check the base IRI to see if we can use it to turn the IRI into an absolute one.
-                    if (baseIRI == null) {
-                        logger.error("The base IRI is null, so relative IRI of subject cannot be turned in to absolute IRI. Skipped.");
+            subjects.clear();
+            pogs.clear();
+        }
+
+        private void processRecord(int j) throws Exception {
+            Record record = records.get(j);
+
+            // The blank nodes of the record are derived from its Triples Map and position.
+            try (BlankNodeScope scope = BlankNodeScope.open(getBlankNodeKey(triplesMap), j, false)) {
+                ProvenancedTerm subject = isParent ? getSubject(triplesMap, mapping, record, j) : generateSubject(triplesMap, mapping, record, j);
+
+                // If we have subject and it's a named node,
+                // we validate it and make it an absolute IRI if needed.
+                if (subject != null && subject.getTerm() instanceof NamedNode) {
+                    String iri = subject.getTerm().getValue();
+
+                    // Is the IRI valid?
+                    if (!Utils.isValidIRI(iri)) {
+                        logger.error("The subject \"" + iri + "\" is not a valid IRI. Skipped.");
                         subject = null;
-                    } else {
-                        logger.debug("The IRI of subject is made absolute via base IRI.");
-                        iri = baseIRI + iri;
 
-                        // Check if the new absolute IRI is valid.
-                        if (Utils.isValidIRI(iri)) {
-                            subject = new ProvenancedTerm(new NamedNode(iri), subject.getMetadata());
+                        // Is the IRI relative?
+                    } else if (Utils.isRelativeIRI(iri)) {
+
+                        // Check the base IRI to see if we can use it to turn the IRI into an absolute one.
+                        if (baseIRI == null) {
+                            logger.error("The base IRI is null, so relative IRI of subject cannot be turned in to absolute IRI. Skipped.");
+                            subject = null;
                         } else {
-                            logger.error("The subject \"" + iri + "\" is not a valid IRI. Skipped.");
+                            logger.debug("The IRI of subject is made absolute via base IRI.");
+                            iri = baseIRI + iri;
+
+                            // Check if the new absolute IRI is valid.
+                            if (Utils.isValidIRI(iri)) {
+                                subject = new ProvenancedTerm(new NamedNode(iri), subject.getMetadata());
+                            } else {
+                                logger.error("The subject \"" + iri + "\" is not a valid IRI. Skipped.");
+                            }
                         }
                     }
                 }
-            }
 
-            final ProvenancedTerm finalSubject = subject;
-
-            //TODO validate subject or check if blank node
-            if (subject != null) {
-                List<ProvenancedTerm> subjectGraphs = new ArrayList<>();
+                final ProvenancedTerm finalSubject = subject;
 
-                mapping.getGraphMappingInfos().forEach(mappingInfo -> {
-                    List<Term> terms = null;
+                //TODO validate subject or check if blank node
+                if (subject != null) {
+                    List<ProvenancedTerm> subjectGraphs = new ArrayList<>();
 
-                    try {
-                        terms = mappingInfo.getTermGenerator().generate(record);
-                    } catch (Exception e) {
-                        //todo be more nice and gentle
-                        e.printStackTrace();
-                    }
+                    mapping.getGraphMappingInfos().forEach(mappingInfo -> {
+                        List<Term> terms = null;
 
-                    terms.forEach(term -> {
-                        if (!term.equals(new NamedNode(NAMESPACES.RR + "defaultGraph"))) {
-                            subjectGraphs.add(new ProvenancedTerm(term));
+                        try {
+                            terms = mappingInfo.getTermGenerator().generate(record);
+                        } catch (Exception e) {
+                            //todo be more nice and gentle
+                            e.printStackTrace();
                         }
-                    });
-                });
 
-                List<PredicateObjectGraph> pogs = generatePredicateObjectGraphs(mapping, record, subjectGraphs);
+                        terms.forEach(term -> {
+                            if (!term.equals(TermPlan.DEFAULT_GRAPH)) {
+                                subjectGraphs.add(new ProvenancedTerm(term));
+                            }
+                        });
+                    });
 
-                pogs.forEach(pog -> pogFunction.accept(finalSubject, pog));
+                    for (PredicateObjectGraph pog : generatePredicateObjectGraphs(mapping, record, subjectGraphs)) {
+                        subjects.add(finalSubject);
+                        pogs.add(pog);
+                    }
+                }
             }
-
-            String message = (finalSubject != null ? "Done " + finalSubject.getTerm().getValue() : "No subject")
-                    + " on triple " + triplesMap.getValue();
-            logger.debug(message);
-            return message;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+package be.ugent.rml;
+
+import be.ugent.rml.term.Term;
+
+import java.util.*;
+
+/**
+ * The execution plan of a mapping, as chosen by the ExecutionPlanner: the order of the Triples Maps,
+ * the strategy of every join, the caches and the parallelism.
+ * The plan is applied to an Executor via its setters, and its string is the explanation of the plan.
+ */
+public class ExecutionPlan {
+
+    public enum JoinStrategy {
+        // the parent records are indexed on the join key.
+        HASH("hash join"),
+        // the parent records are checked one by one, because not all join conditions are equalities.
+        NESTED_LOOP("nested loop join"),
+        // both sides are sorted on the join key, on disk if needed, and joined at the end.
+        SORT_MERGE("sort-merge join"),
+        // the parent record is the child record.
+        SELF_JOIN("self-join"),
+        // every child is joined with every parent.
+        CROSS_PRODUCT("cross product");
+
+        private final String label;
+
+        JoinStrategy(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * A referencing object map of a Triples Map with its parent Triples Map and the chosen strategy.
+     */
+    public static class Join {
+
+        private final Term triplesMap;
+        private final Term parentTriplesMap;
+        private JoinStrategy strategy;
+        private final long distinctKeys;
+        private String reason;
+
+        Join(Term triplesMap, Term parentTriplesMap, JoinStrategy strategy, long distinctKeys, String reason) {
+            this.triplesMap = triplesMap;
+            this.parentTriplesMap = parentTriplesMap;
+            this.strategy = strategy;
+            this.distinctKeys = distinctKeys;
+            this.reason = reason;
+        }
+
+        public Term getTriplesMap() {
+            return triplesMap;
+        }
+
+        public Term getParentTriplesMap() {
+            return parentTriplesMap;
+        }
+
+        public JoinStrategy getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * @return the (estimated) number of distinct join keys of the parent records, or -1 if it is unknown.
+         */
+        public long getDistinctKeys() {
+            return distinctKeys;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        void setStrategy(JoinStrategy strategy, String reason) {
+            this.strategy = strategy;
+            this.reason = reason;
+        }
+    }
+
+    private final Map<String, SourceStatistics> statistics;
+    private final List<Term> order;
+    private final List<Join> joins;
+    private final boolean ordered;
+    private final Set<Term> sortMergeJoinParents;
+    private final int subjectCacheCapacity;
+    private final int parallelism;
+    private final long memoryBudget;
+    private final long memoryEstimate;
+
+    ExecutionPlan(Map<String, SourceStatistics> statistics, List<Term> order, List<Join> joins, boolean ordered, Set<Term> sortMergeJoinParents,
+                  int subjectCacheCapacity, int parallelism, long memoryBudget, long memoryEstimate) {
+        this.statistics = statistics;
+        this.order = order;
+        this.joins = joins;
+        this.ordered = ordered;
+        this.sortMergeJoinParents = sortMergeJoinParents;
+        this.subjectCacheCapacity = subjectCacheCapacity;
+        this.parallelism = parallelism;
+        this.memoryBudget = memoryBudget;
+        this.memoryEstimate = memoryEstimate;
+    }
+
+    /**
+     * This method applies the plan to an Executor. Options that are set on the Executor afterwards override the plan.
+     * @param executor the Executor of the mapping for which the plan is made.
+     */
+    public void apply(Executor executor) {
+        executor.setOrdered(ordered);
+        executor.setSortMergeJoinParents(sortMergeJoinParents);
+        executor.setSubjectCacheCapacity(subjectCacheCapacity);
+        executor.setParallelism(parallelism);
+
+        // The quads are generated in the same order as without the plan.
+        if (parallelism > 1) {
+            executor.setDeterministic(true);
+        }
+    }
+
+    /**
+     * @return the statistics of the sources, per value of rml:source.
+     */
+    public Map<String, SourceStatistics> getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the Triples Maps in the order in which they are executed.
+     */
+    public List<Term> getOrder() {
+        return order;
+    }
+
+    public List<Join> getJoins() {
+        return joins;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * @return the parent Triples Maps of which the joins are sort-merge joins.
+     */
+    public Set<Term> getSortMergeJoinParents() {
+        return sortMergeJoinParents;
+    }
+
+    /**
+     * @return the maximum number of subjects that are cached per parent Triples Map, 0 if all of them are cached.
+     */
+    public int getSubjectCacheCapacity() {
+        return subjectCacheCapacity;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder explain = new StringBuilder();
+
+        explain.append("Sources:\n");
+        for (SourceStatistics source : statistics.values()) {
+            explain.append("  ").append(source).append("\n");
+        }
+
+        explain.append("Triples Maps (").append(ordered ? "ordered by source, which are released when they are not needed anymore" : "in the order of the mapping").append("):\n");
+        for (int i = 0; i < order.size(); i++) {
+            explain.append("  ").append(i + 1).append(". ").append(order.get(i).getValue()).append("\n");
+        }
+
+        explain.append("Joins:\n");
+        if (joins.isEmpty()) {
+            explain.append("  none\n");
+        }
+        for (Join join : joins) {
+            explain.append("  ").append(join.getTriplesMap().getValue()).append(" -> ").append(join.getParentTriplesMap().getValue())
+                    .append(": ").append(join.getStrategy());
+            if (join.getDistinctKeys() >= 0) {
+                explain.append(", ~").append(join.getDistinctKeys()).append(" distinct keys");
+            }
+            explain.append(" (").append(join.getReason()).append(")\n");
+        }
+
+        explain.append("Caches: records, join indexes and subjects of parent Triples Maps");
+        explain.append(subjectCacheCapacity > 0 ? ", at most " + subjectCacheCapacity + " subjects per parent Triples Map" : "");
+        explain.append(" (estimated memory ").append(toMegabytes(memoryEstimate)).append(" of ").append(toMegabytes(memoryBudget)).append(")\n");
+        explain.append("Parallelism: ").append(parallelism).append(parallelism > 1 ? " threads, deterministic order" : "").append("\n");
+
+        return explain.toString();
+    }
+
+    private static String toMegabytes(long bytes) {
+        return (bytes + 1024 * 1024 - 1) / (1024 * 1024) + " MB";
+    }
+}
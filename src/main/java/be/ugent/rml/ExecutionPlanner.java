@@ -0,0 +1,385 @@
+package be.ugent.rml;
+
+import be.ugent.rml.ExecutionPlan.Join;
+import be.ugent.rml.ExecutionPlan.JoinStrategy;
+import be.ugent.rml.access.Access;
+import be.ugent.rml.access.LocalFileAccess;
+import be.ugent.rml.join.EqualityJoinCondition;
+import be.ugent.rml.join.JoinIndex;
+import be.ugent.rml.records.Record;
+import be.ugent.rml.records.RecordsFactory;
+import be.ugent.rml.store.Quad;
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * This class chooses the execution plan of a mapping, between the Initializer and the execution,
+ * based on statistics of the sources: their size, their (estimated) number of records and the number of distinct join keys.
+ * - The Triples Maps are ordered by source if there is more than one source, so the records of a source are released when they are not needed anymore.
+ * - Joins of which all conditions are equalities are hash joins, unless the estimated memory of the parent records, subjects and indexes
+ *   exceeds the memory budget: then the largest parents are joined via sort-merge joins, until the estimate fits.
+ * - If it still does not fit, the number of cached subjects per parent is bounded.
+ * - Records are processed in parallel, in a deterministic order, if there are many of them.
+ * The records and indexes are always cached, because not caching them makes every join a nested loop over the parent source.
+ * The statistics are estimates: local CSV files are sampled, other local files are loaded if they are small,
+ * and the size of remote sources and databases is unknown, so they do not influence the plan.
+ */
+public class ExecutionPlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionPlanner.class);
+
+    // the number of bytes of a CSV file of which the records are counted.
+    public static final int SAMPLE_BYTES = 1024 * 1024;
+    // the number of parent records of which the join keys are counted.
+    public static final int SAMPLE_RECORDS = 10000;
+    // the maximum size of other local files that are loaded to count their records.
+    public static final long LOAD_LIMIT = 16L * 1024 * 1024;
+    // the number of records from which they are processed in parallel.
+    public static final long PARALLEL_RECORDS = 100000;
+    // the estimated memory per byte of a source that is kept in memory, per subject and per indexed record.
+    static final int RECORD_EXPANSION = 4;
+    static final int SUBJECT_BYTES = 200;
+    static final int INDEX_BYTES = 64;
+    // the estimated number of bytes per record of a source of which the records are not counted.
+    static final int RECORD_BYTES = 100;
+    static final int MIN_SUBJECT_CACHE_CAPACITY = 10000;
+
+    private final Initializer initializer;
+    private final RecordsFactory recordsFactory;
+    private final QuadStore rmlStore;
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 2;
+    private int processors = Runtime.getRuntime().availableProcessors();
+
+    public ExecutionPlanner(Initializer initializer, RecordsFactory recordsFactory) {
+        this.initializer = initializer;
+        this.recordsFactory = recordsFactory;
+        this.rmlStore = initializer.getRMLStore();
+    }
+
+    /**
+     * Set the number of bytes that the parent records, subjects and indexes can use (default half of the maximum heap size).
+     */
+    public void setMemoryBudget(long bytes) {
+        this.memoryBudget = bytes;
+    }
+
+    /**
+     * Set the number of threads that are used if records are processed in parallel (default the number of processors).
+     */
+    public void setProcessors(int processors) {
+        this.processors = processors;
+    }
+
+    /**
+     * This method gathers the statistics of the sources and chooses the execution plan.
+     * @param triplesMaps the Triples Maps that need to be executed, all Triples Maps if it is null or empty.
+     * @return the plan.
+     */
+    public ExecutionPlan plan(List<Term> triplesMaps) {
+        if (triplesMaps == null || triplesMaps.isEmpty()) {
+            triplesMaps = initializer.getTriplesMaps();
+        }
+
+        Map<Term, Mapping> mappings = initializer.getMappings();
+        Map<String, SourceStatistics> statistics = new LinkedHashMap<>();
+
+        for (Term triplesMap : triplesMaps) {
+            statistics.computeIfAbsent(getSource(triplesMap), source -> this.gatherStatistics(triplesMap, source));
+
+            for (PredicateObjectGraphMapping pogMapping : mappings.get(triplesMap).getPredicateObjectGraphMappings()) {
+                Term parent = pogMapping.getParentTriplesMap();
+
+                if (parent != null) {
+                    statistics.computeIfAbsent(getSource(parent), source -> this.gatherStatistics(parent, source));
+                }
+            }
+        }
+
+        // The joins per parent Triples Map of which the records are kept in memory.
+        List<Join> joins = new ArrayList<>();
+        Map<Term, List<Join>> joinsOfParent = new LinkedHashMap<>();
+        Map<List<Object>, Long> distinctKeys = new HashMap<>();
+
+        for (Term triplesMap : triplesMaps) {
+            for (PredicateObjectGraphPlan pogPlan : initializer.getPlans().get(triplesMap).getPredicateObjectGraphPlans()) {
+                PredicateObjectGraphMapping pogMapping = pogPlan.getPredicateObjectGraphMapping();
+                Term parent = pogMapping.getParentTriplesMap();
+
+                if (parent == null) {
+                    continue;
+                }
+
+                List<EqualityJoinCondition> equalities = JoinIndex.getEqualityConditions(pogMapping.getJoinConditions());
+                long keys = -1;
+
+                if (!pogPlan.isSelfJoin() && !equalities.isEmpty()) {
+                    keys = distinctKeys.computeIfAbsent(Arrays.asList(parent, JoinIndex.getParentReferences(equalities)),
+                            key -> this.countDistinctKeys(parent, equalities, statistics.get(getSource(parent))));
+                }
+
+                Join join;
+
+                if (pogPlan.isSelfJoin()) {
+                    join = new Join(triplesMap, parent, JoinStrategy.SELF_JOIN, keys, "the parent record is the child record, no parent records are kept");
+                } else if (pogMapping.getJoinConditions().isEmpty()) {
+                    join = new Join(triplesMap, parent, JoinStrategy.CROSS_PRODUCT, keys, "no join conditions, the parent subjects are generated once");
+                } else if (equalities.size() < pogMapping.getJoinConditions().size()) {
+                    join = new Join(triplesMap, parent, JoinStrategy.NESTED_LOOP, keys, "join conditions with functions are checked per parent record"
+                            + (equalities.isEmpty() ? "" : " that matches the index of the equality conditions"));
+                } else {
+                    join = new Join(triplesMap, parent, JoinStrategy.HASH, keys, "the parent records are indexed on the join key in memory");
+                }
+
+                joins.add(join);
+
+                if (join.getStrategy() != JoinStrategy.SELF_JOIN) {
+                    joinsOfParent.computeIfAbsent(parent, key -> new ArrayList<>()).add(join);
+                }
+            }
+        }
+
+        // The estimated memory of the parents that are kept in memory.
+        Map<Term, Long> memory = new LinkedHashMap<>();
+        long subjects = 0;
+
+        for (Map.Entry<Term, List<Join>> entry : joinsOfParent.entrySet()) {
+            SourceStatistics source = statistics.get(getSource(entry.getKey()));
+            long records = getRecords(source);
+            boolean indexed = entry.getValue().stream().anyMatch(join -> join.getDistinctKeys() >= 0);
+
+            memory.put(entry.getKey(), Math.max(0, source.getSize()) * RECORD_EXPANSION + records * (SUBJECT_BYTES + (indexed ? INDEX_BYTES : 0)));
+            subjects += records * SUBJECT_BYTES;
+        }
+
+        long memoryEstimate = memory.values().stream().mapToLong(Long::longValue).sum();
+        Set<Term> sortMergeJoinParents = new LinkedHashSet<>();
+
+        // The largest parents of which all joins can be sort-merge joins are not kept in memory, until the others fit.
+        while (memoryEstimate > memoryBudget) {
+            Term largest = null;
+
+            for (Term parent : memory.keySet()) {
+                boolean hashJoins = joinsOfParent.get(parent).stream().allMatch(join -> join.getStrategy() == JoinStrategy.HASH);
+
+                if (hashJoins && (largest == null || memory.get(parent) > memory.get(largest))) {
+                    largest = parent;
+                }
+            }
+
+            if (largest == null || memory.get(largest) == 0) {
+                break;
+            }
+
+            for (Join join : joinsOfParent.get(largest)) {
+                join.setStrategy(JoinStrategy.SORT_MERGE, "the parent records (~" + memory.get(largest) / (1024 * 1024)
+                        + " MB in memory) do not fit in the memory budget, both sides are sorted on disk");
+            }
+
+            sortMergeJoinParents.add(largest);
+            memoryEstimate -= memory.remove(largest);
+            subjects -= getRecords(statistics.get(getSource(largest))) * SUBJECT_BYTES;
+        }
+
+        // If the others do not fit either, only part of their subjects is cached.
+        int subjectCacheCapacity = 0;
+
+        if (memoryEstimate > memoryBudget && !memory.isEmpty()) {
+            long available = Math.max(0, memoryBudget - (memoryEstimate - subjects)) / SUBJECT_BYTES / memory.size();
+            subjectCacheCapacity = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_SUBJECT_CACHE_CAPACITY, available));
+            memoryEstimate = memoryEstimate - subjects + Math.min(subjects, (long) subjectCacheCapacity * SUBJECT_BYTES * memory.size());
+        }
+
+        // The parents of which the records and subjects are kept, as in the Executor.
+        Set<Term> parentTriplesMaps = new HashSet<>();
+
+        for (TriplesMapPlan plan : initializer.getPlans().values()) {
+            for (PredicateObjectGraphPlan pogPlan : plan.getPredicateObjectGraphPlans()) {
+                Term parent = pogPlan.getPredicateObjectGraphMapping().getParentTriplesMap();
+
+                if (parent != null && !pogPlan.isSelfJoin() && !sortMergeJoinParents.contains(parent)) {
+                    parentTriplesMaps.add(parent);
+                }
+            }
+        }
+
+        Set<String> sources = new HashSet<>();
+        long records = 0;
+
+        for (Term triplesMap : triplesMaps) {
+            sources.add(getSource(triplesMap));
+            records += Math.max(0, getRecords(statistics.get(getSource(triplesMap))));
+        }
+
+        boolean ordered = sources.size() > 1;
+        List<Term> order = triplesMaps;
+
+        if (ordered) {
+            order = new SourceLifecycle(triplesMaps, mappings, this::getSource, parentTriplesMaps).getOrder();
+        }
+
+        int parallelism = records >= PARALLEL_RECORDS ? Math.max(1, processors) : 1;
+
+        return new ExecutionPlan(statistics, order, joins, ordered, sortMergeJoinParents, subjectCacheCapacity, parallelism, memoryBudget, memoryEstimate);
+    }
+
+    /**
+     * This method gathers the statistics of the source of a Triples Map.
+     * The lines of a local CSV file are counted in its first bytes, other local files are loaded if they are small.
+     * @param triplesMap the Triples Map.
+     * @param source the key of the source.
+     * @return the statistics.
+     */
+    private SourceStatistics gatherStatistics(Term triplesMap, String source) {
+        String referenceFormulation = recordsFactory.getReferenceFormulation(triplesMap, rmlStore);
+        Access access = recordsFactory.getAccess(triplesMap, rmlStore);
+
+        if (!(access instanceof LocalFileAccess)) {
+            return new SourceStatistics(source, referenceFormulation, -1, -1, false);
+        }
+
+        long size = ((LocalFileAccess) access).getSize();
+
+        try {
+            if (referenceFormulation.equals(NAMESPACES.QL + "CSV")) {
+                try (InputStream in = access.getInputStream()) {
+                    byte[] buffer = new byte[(int) Math.min(SAMPLE_BYTES, size)];
+                    int read = 0;
+                    int n;
+
+                    while (read < buffer.length && (n = in.read(buffer, read, buffer.length - read)) > 0) {
+                        read += n;
+                    }
+
+                    // Line breaks in quoted values do not end a record.
+                    long lines = 0;
+                    boolean quoted = false;
+
+                    for (int i = 0; i < read; i++) {
+                        if (buffer[i] == '"') {
+                            quoted = !quoted;
+                        } else if (buffer[i] == '\n' && !quoted) {
+                            lines++;
+                        }
+                    }
+
+                    boolean exact = read >= size;
+
+                    if (exact && read > 0 && buffer[read - 1] != '\n') {
+                        lines++;
+                    }
+
+                    // The first line is the header.
+                    long records = Math.max(0, lines - 1);
+
+                    if (!exact && read > 0) {
+                        records = records * size / read;
+                    }
+
+                    return new SourceStatistics(source, referenceFormulation, size, records, exact);
+                }
+            } else if (size <= LOAD_LIMIT) {
+                // The records stay in the cache of the records factory for the execution.
+                return new SourceStatistics(source, referenceFormulation, size, recordsFactory.createRecords(triplesMap, rmlStore).size(), true);
+            }
+        } catch (IOException e) {
+            logger.warn("No statistics of " + source + ": " + e.getMessage());
+        }
+
+        return new SourceStatistics(source, referenceFormulation, size, -1, false);
+    }
+
+    /**
+     * This method estimates the number of distinct join keys of the records of a parent Triples Map from a sample of the records,
+     * via the Guaranteed-Error Estimator: the keys that occur once in the sample are scaled with the square root of the sampling ratio.
+     * @param parent the parent Triples Map.
+     * @param conditions the equality join conditions.
+     * @param source the statistics of the source of the parent Triples Map.
+     * @return the estimated number of distinct keys, or -1 if the records of the source are not read.
+     */
+    private long countDistinctKeys(Term parent, List<EqualityJoinCondition> conditions, SourceStatistics source) {
+        if (source.getSize() < 0 || (source.getSize() > LOAD_LIMIT && !source.getReferenceFormulation().equals(NAMESPACES.QL + "CSV"))) {
+            return -1;
+        }
+
+        Map<List<String>, Integer> counts = new HashMap<>();
+        int sampled = 0;
+        Iterator<Record> records = null;
+
+        try {
+            records = recordsFactory.createRecordIterator(parent, rmlStore);
+
+            while (sampled < SAMPLE_RECORDS && records.hasNext()) {
+                Record record = records.next();
+                List<String> key = new ArrayList<>(conditions.size());
+
+                for (EqualityJoinCondition condition : conditions) {
+                    key.add(condition.getParentValue(record));
+                }
+
+                // Records without a value for one of the references never match.
+                if (!key.contains(null)) {
+                    counts.merge(key, 1, Integer::sum);
+                }
+
+                sampled++;
+            }
+
+            if (!records.hasNext()) {
+                return counts.size();
+            }
+        } catch (Exception e) {
+            logger.warn("No join keys of " + parent.getValue() + ": " + e.getMessage());
+            return -1;
+        } finally {
+            // The source is closed, because only a sample of its records is read.
+            if (records instanceof Closeable) {
+                try {
+                    ((Closeable) records).close();
+                } catch (IOException e) {
+                    logger.debug("Source of " + parent.getValue() + " could not be closed: " + e.getMessage());
+                }
+            }
+        }
+
+        long once = counts.values().stream().filter(count -> count == 1).count();
+        double ratio = Math.max(1, (double) getRecords(source) / sampled);
+
+        return Math.round(Math.sqrt(ratio) * once) + counts.size() - once;
+    }
+
+    /**
+     * @return the (estimated) number of records of a source, estimated from its size if they are not counted, 0 if the size is unknown.
+     */
+    private static long getRecords(SourceStatistics source) {
+        if (source.getRecords() >= 0) {
+            return source.getRecords();
+        }
+
+        return Math.max(0, source.getSize()) / RECORD_BYTES;
+    }
+
+    /**
+     * @return the value of rml:source of the Logical Source of a Triples Map or "others" if there is none, as in the Executor.
+     */
+    private String getSource(Term triplesMap) {
+        List<Term> logicalSources = Utils.getObjectsFromQuads(rmlStore.getQuads(triplesMap, new NamedNode(NAMESPACES.RML + "logicalSource"), null));
+
+        if (!logicalSources.isEmpty()) {
+            List<Quad> quads = rmlStore.getQuads(logicalSources.get(0), new NamedNode(NAMESPACES.RML + "source"), null);
+
+            if (!quads.isEmpty()) {
+                return quads.get(0).getObject().getValue();
+            }
+        }
+
+        return "others";
+    }
+}
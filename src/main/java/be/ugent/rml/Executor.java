@@ -2,41 +2,97 @@ package be.ugent.rml;
 
 import be.ugent.rml.functions.FunctionLoader;
 import be.ugent.rml.functions.MultipleRecordsFunctionExecutor;
+import be.ugent.rml.join.EqualityJoinCondition;
+import be.ugent.rml.join.JoinIndex;
+import be.ugent.rml.join.SelfJoin;
+import be.ugent.rml.join.SortMergeJoin;
+import be.ugent.rml.extractor.Extractor;
+import be.ugent.rml.extractor.ReferenceExtractor;
 import be.ugent.rml.metadata.Metadata;
 import be.ugent.rml.metadata.MetadataGenerator;
+import be.ugent.rml.records.ReadAheadIterator;
 import be.ugent.rml.records.Record;
 import be.ugent.rml.records.RecordsFactory;
+import be.ugent.rml.store.NQuadsSink;
+import be.ugent.rml.store.QuadSink;
+import be.ugent.rml.store.QuadStoreSink;
+import be.ugent.rml.store.RecordState;
 import be.ugent.rml.store.SimpleQuadStore;
 import be.ugent.rml.term.ProvenancedQuad;
 import be.ugent.rml.store.QuadStore;
 import be.ugent.rml.store.Quad;
+import be.ugent.rml.term.BlankNode;
+import be.ugent.rml.term.Literal;
 import be.ugent.rml.term.NamedNode;
 import be.ugent.rml.term.ProvenancedTerm;
 import be.ugent.rml.term.Term;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
 
 public class Executor implements Mapper {
 
     private static final Logger logger = LoggerFactory.getLogger(Executor.class);
 
+    public static final long DEFAULT_JOIN_MEMORY_BUDGET = 256L * 1024 * 1024;
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
     private Initializer initializer;
-    private HashMap<Term, List<Record>> recordsHolders;
-    // this map stores for every Triples Map, which is a Term, a map with the record index and the record's corresponding subject,
-    // which is a ProvenancedTerm.
-    private HashMap<Term, HashMap<Integer, ProvenancedTerm>> subjectCache;
+    // the caches are concurrent maps, because they are filled by the workers when records are processed in parallel.
+    private ConcurrentHashMap<Term, List<Record>> recordsHolders;
+    // this map stores for every parent Triples Map, which is a Term, the subjects of its records, indexed by the record index.
+    private ConcurrentHashMap<Term, SubjectCache> subjectCache;
+    // this map stores for every parent Triples Map the hash indexes of its records, one per indexed tuple of parent references.
+    private ConcurrentHashMap<Term, ConcurrentHashMap<List<String>, JoinIndex>> joinIndexes;
+    // this map stores for every parent Triples Map that is referenced without join conditions, the subjects of all its records.
+    private ConcurrentHashMap<Term, List<ProvenancedTerm>> allSubjects;
     private QuadStore resultingQuads;
+    // the generated quads are added to this sink, by default the resulting QuadStore.
+    private QuadSink quadSink;
     private QuadStore rmlStore;
     private RecordsFactory recordsFactory;
-    private static int blankNodeCounter = 0;
+    // the prefix of the generated blank node identifiers, so that the identifiers of different processes do not collide.
+    private String blankNodePrefix = "";
+    // the source of the Triples Maps of which the blank node identifiers get the prefix, all Triples Maps if it is null.
+    private String blankNodePrefixSource;
+    // the key of every Triples Map in the identifiers of its blank nodes (see BlankNodeScope.getKeys).
+    private Map<Term, String> triplesMapKeys;
+    // the key of every Triples Map in the identifiers of its blank nodes, with the prefix if needed.
+    private ConcurrentHashMap<Term, String> blankNodeKeys = new ConcurrentHashMap<>();
     private Map<Term, Mapping> mappings;
+    private Map<Term, TriplesMapPlan> plans;
     private String baseIRI;
     private boolean noCache;
     private boolean ordered;
+    private boolean sortMergeJoin;
+    // the parent Triples Maps of which the joins are sort-merge joins, also when sortMergeJoin is false.
+    private Set<Term> sortMergeJoinParents = new HashSet<>();
+    private long joinMemoryBudget = DEFAULT_JOIN_MEMORY_BUDGET;
+    private Set<String> sortedSources = new HashSet<>();
+    // this map stores for every referencing object map that is evaluated via a sort-merge join, the join with its child records.
+    private LinkedHashMap<PredicateObjectGraphMapping, SortMergeJoin> sortMergeJoins = new LinkedHashMap<>();
+    private int parallelism = 1;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean deterministic;
+    private int readAhead;
+    // the maximum number of cached subjects per Triples Map, 0 to cache the subjects of all records.
+    private int subjectCacheCapacity;
+    private Checkpoint checkpoint;
+    // the sink of which the output is synced for the checkpoints, null if no checkpoints are written.
+    private NQuadsSink checkpointSink;
+    // true when the execution has to stop, checked for every record that is read.
+    private BooleanSupplier cancellation = () -> false;
+    // the state of incremental re-mapping per record, null if all records are mapped.
+    private RecordState recordState;
+    // the key of the record of which the quads are generated, if they are added to the record state.
+    private Long recordKey;
 
     public Executor(QuadStore rmlStore, RecordsFactory recordsFactory, String baseIRI) throws Exception {
         this(rmlStore, recordsFactory, null, null, baseIRI);
@@ -49,33 +105,45 @@ public class Executor implements Mapper {
     public Executor(QuadStore rmlStore, RecordsFactory recordsFactory, FunctionLoader functionLoader, QuadStore resultingQuads, String baseIRI) throws Exception {
         this.initializer = new Initializer(rmlStore, functionLoader);
         this.mappings = this.initializer.getMappings();
+        this.plans = this.initializer.getPlans();
         this.rmlStore = rmlStore;
         this.recordsFactory = recordsFactory;
         this.baseIRI = baseIRI;
-        this.recordsHolders = new HashMap<Term, List<Record>>();
-        this.subjectCache = new HashMap<Term, HashMap<Integer, ProvenancedTerm>>();
+        this.recordsHolders = new ConcurrentHashMap<Term, List<Record>>();
+        this.subjectCache = new ConcurrentHashMap<Term, SubjectCache>();
+        this.joinIndexes = new ConcurrentHashMap<Term, ConcurrentHashMap<List<String>, JoinIndex>>();
+        this.allSubjects = new ConcurrentHashMap<Term, List<ProvenancedTerm>>();
+        this.triplesMapKeys = BlankNodeScope.getKeys(this.rmlStore, this.initializer.getTriplesMaps());
 
         if (resultingQuads == null) {
             this.resultingQuads = new SimpleQuadStore();
         } else {
             this.resultingQuads = resultingQuads;
         }
+
+        this.quadSink = new QuadStoreSink(this.resultingQuads);
     }
 
     public Executor(Initializer initializer, RecordsFactory recordsFactory, QuadStore resultingQuads, String baseIRI) throws Exception {
         this.initializer = initializer;
         this.mappings = this.initializer.getMappings();
+        this.plans = this.initializer.getPlans();
         this.rmlStore = this.initializer.getRMLStore();
         this.recordsFactory = recordsFactory;
         this.baseIRI = baseIRI;
-        this.recordsHolders = new HashMap<Term, List<Record>>();
-        this.subjectCache = new HashMap<Term, HashMap<Integer, ProvenancedTerm>>();
+        this.recordsHolders = new ConcurrentHashMap<Term, List<Record>>();
+        this.subjectCache = new ConcurrentHashMap<Term, SubjectCache>();
+        this.joinIndexes = new ConcurrentHashMap<Term, ConcurrentHashMap<List<String>, JoinIndex>>();
+        this.allSubjects = new ConcurrentHashMap<Term, List<ProvenancedTerm>>();
+        this.triplesMapKeys = BlankNodeScope.getKeys(this.rmlStore, this.initializer.getTriplesMaps());
 
         if (resultingQuads == null) {
             this.resultingQuads = new SimpleQuadStore();
         } else {
             this.resultingQuads = resultingQuads;
         }
+
+        this.quadSink = new QuadStoreSink(this.resultingQuads);
     }
 
     public void setNoCache(boolean flag) {
@@ -85,6 +153,119 @@ public class Executor implements Mapper {
         this.ordered = flag;
     }
 
+    /**
+     * Set the sink to which the generated quads are added, instead of the resulting QuadStore.
+     * The sink is flushed at the end of every execution, but it is not closed.
+     */
+    public void setQuadSink(QuadSink sink) {
+        this.quadSink = sink;
+    }
+
+    /**
+     * Evaluate referencing object maps with equality join conditions via an external sort-merge join,
+     * instead of keeping the records and subjects of the parent Triples Map in memory.
+     */
+    public void setSortMergeJoin(boolean flag) {
+        this.sortMergeJoin = flag;
+    }
+
+    /**
+     * Evaluate the referencing object maps with equality join conditions of the given parent Triples Maps via an external sort-merge join,
+     * also when sort-merge joins are not used for all joins.
+     */
+    public void setSortMergeJoinParents(Set<Term> parents) {
+        this.sortMergeJoinParents = parents;
+    }
+
+    /**
+     * Set the number of bytes each side of a sort-merge join can use before it is sorted and written to a temporary file.
+     */
+    public void setJoinMemoryBudget(long bytes) {
+        this.joinMemoryBudget = bytes;
+    }
+
+    /**
+     * Set the sources (values of rml:source) of which the records are already ordered on the join key,
+     * so that they do not need to be sorted for a sort-merge join.
+     */
+    public void setSortedSources(Set<String> sources) {
+        this.sortedSources = sources;
+    }
+
+    /**
+     * Set the number of workers that process the records of a Triples Map in parallel.
+     * If it is 1, which is the default, the records are processed sequentially.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set the number of records that a worker processes at once, when records are processed in parallel.
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Set the maximum number of subjects that are cached per parent Triples Map (0 to cache all of them).
+     * When the cache is full, a cached subject is evicted and generated again when it is needed.
+     * The subjects of Triples Maps that generate blank nodes without a template are always cached.
+     */
+    public void setSubjectCacheCapacity(int subjectCacheCapacity) {
+        this.subjectCacheCapacity = subjectCacheCapacity;
+    }
+
+    /**
+     * Generate the quads of records that are processed in parallel in the same order as when they are processed sequentially.
+     */
+    public void setDeterministic(boolean flag) {
+        this.deterministic = flag;
+    }
+
+    /**
+     * Read the records of sources that are read while their records are processed (e.g., CSV files) in a separate thread,
+     * at most the given number of chunks ahead of the records that are processed, so reading and parsing overlaps with generating the quads.
+     * If it is 0, which is the default, the records are read by the thread that processes them.
+     */
+    public void setReadAhead(int chunks) {
+        this.readAhead = chunks;
+    }
+
+    /**
+     * Write the progress of the execution to the given checkpoint, periodically and after every Triples Map.
+     * If the progress is loaded from the checkpoint file, the execution continues after it:
+     * the Triples Maps and records that are done are skipped.
+     * The checkpoint is only resumed for the same mapping and the same order of the Triples Maps, otherwise the execution fails.
+     * Checkpoints are only written if the quads are written directly to a file by an NQuadsSink,
+     * continued from the length in the checkpoint, and sort-merge joins are not used, as their joins are only done at the end.
+     */
+    public void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Only map the records that changed since the previous execution with the given state, if their quads depend on nothing else:
+     * the records of Triples Maps without referencing object maps, functions and blank nodes.
+     * The quads of the other records are taken from the state, so they are still passed to the QuadSink, but not to the metadata.
+     * The records of the other Triples Maps are always mapped.
+     * The state is not closed.
+     */
+    public void setRecordState(RecordState recordState) {
+        this.recordState = recordState;
+    }
+
+    /**
+     * Set the condition under which the execution stops, e.g., when the subscriber of its quads cancels the subscription.
+     * It is checked for every record that is read, also for the records of parent Triples Maps and sort-merge joins,
+     * so the sources are not read further once it is true, also when no quads are generated.
+     * The execution then fails with a CancellationException.
+     * @param cancellation the condition or null to never stop.
+     */
+    public void setCancellation(BooleanSupplier cancellation) {
+        this.cancellation = cancellation == null ? () -> false : cancellation;
+    }
+
     public QuadStore execute(List<Term> triplesMaps, boolean removeDuplicates, MetadataGenerator metadataGenerator) throws Exception {
 
         BiConsumer<ProvenancedTerm, PredicateObjectGraph> pogFunction;
@@ -109,102 +290,166 @@ public class Executor implements Mapper {
             triplesMaps = this.initializer.getTriplesMaps();
         }
 
-        // Order triples map by source to help cleaning the cache and preserving memory
-        // Mainly useful when no join conditions
-        Map<String, List<Term>> orderedTriplesMaps;
+        // The records of Triples Maps that are not used as parent are processed while they are read.
+        Set<Term> parentTriplesMaps = this.getParentTriplesMaps();
+
+        // Order triples map by source to help cleaning the cache and preserving memory.
+        // The records, subjects and documents of a source are released as soon as no remaining Triples Map needs them.
+        SourceLifecycle lifecycle = null;
+
         if (ordered) {
-            orderedTriplesMaps = getOrderedTriplesMaps(triplesMaps);
-        } else {
-            orderedTriplesMaps = new HashMap<>();
-            orderedTriplesMaps.put("all", triplesMaps);
+            // Triples Maps without rml:source are grouped together.
+            lifecycle = new SourceLifecycle(triplesMaps, this.mappings, triplesMap -> {
+                String source = this.getSource(triplesMap);
+                return source != null ? source : "others";
+            }, parentTriplesMaps);
+            triplesMaps = lifecycle.getOrder();
+        }
+
+        // The results of the records are passed directly to the pogFunction and the sort-merge joins.
+        RecordOutput output = new RecordOutput() {
+            @Override
+            public void addPredicateObjectGraph(ProvenancedTerm subject, PredicateObjectGraph pog) {
+                pogFunction.accept(subject, pog);
+            }
+
+            @Override
+            public void addJoinChild(SortMergeJoin join, Record record, ProvenancedTerm subject, List<ProvenancedTerm> predicates, List<ProvenancedTerm> graphs) throws IOException {
+                join.addChild(record, subject, predicates, graphs);
+            }
+
+            @Override
+            public void startRecord(Long key) {
+                recordKey = key;
+            }
+        };
+
+        this.checkpointSink = null;
+
+        if (this.checkpoint != null) {
+            if (this.quadSink instanceof NQuadsSink && !this.sortMergeJoin && this.sortMergeJoinParents.isEmpty() && ((NQuadsSink) this.quadSink).isFileBacked()) {
+                this.checkpointSink = (NQuadsSink) this.quadSink;
+                // The Triples Maps that are done are identified by their position in the order, which depends on the mapping and the options.
+                this.checkpoint.setFingerprints(this.getMappingDescription(),
+                        triplesMaps.stream().map(this::getTriplesMapKey).collect(Collectors.joining(",")));
+            } else {
+                logger.warn("Checkpoints are only written when the quads are written directly to a file, without sort-merge joins. No checkpoints are written.");
+            }
         }
 
-        //we execute every mapping ordered by source
-        for(String key : orderedTriplesMaps.keySet()) {
-            triplesMaps = orderedTriplesMaps.get(key);
-            logger.info("Logical Source [key: " + key + ", size: " + triplesMaps.size() + "]");
+        // The Triples Maps and records that are done before the checkpoint are skipped.
+        int doneTriplesMaps = 0;
+        long doneRecords = 0;
+
+        if (this.checkpointSink != null && this.checkpoint.isResumed()) {
+            doneTriplesMaps = this.checkpoint.getTriplesMaps();
+            doneRecords = this.checkpoint.getRecords();
+            logger.info("Resuming after " + doneTriplesMaps + " Triples Maps and " + doneRecords + " records");
+        }
+
+        // The Triples Maps of which the records are only mapped if they changed.
+        Map<Term, RecordInputs> recordInputs = new HashMap<>();
+
+        if (this.recordState != null) {
             for (Term triplesMap : triplesMaps) {
-                Mapping mapping = this.mappings.get(triplesMap);
+                RecordInputs inputs = this.getRecordInputs(triplesMap);
 
-                List<Record> records;
-                try {
-                    records = this.getRecords(triplesMap);
-                } catch (IOException e) {
-                    logger.error("Source [" + key + "] not found or not accessible. Mapping skipped.");
-                    continue;
+                if (inputs != null) {
+                    recordInputs.put(triplesMap, inputs);
                 }
+            }
 
-                for (int j = 0; j < records.size(); j++) {
-                    Record record = records.get(j);
-                    ProvenancedTerm subject = getSubject(triplesMap, mapping, record, j);
+            logger.info("Only changed records are mapped for " + recordInputs.size() + " of " + triplesMaps.size() + " Triples Maps");
+        }
 
-                    // If we have subject and it's a named node,
-                    // we validate it and make it an absolute IRI if needed.
-                    if (subject != null && subject.getTerm() instanceof NamedNode) {
-                        String iri = subject.getTerm().getValue();
+        String previousSource = null;
 
-                        // Is the IRI valid?
-                        if (!Utils.isValidIRI(iri)) {
-                            logger.error("The subject \"" + iri + "\" is not a valid IRI. Skipped.");
-                            subject = null;
-
-                            // Is the IRI relative?
-                        } else if (Utils.isRelativeIRI(iri)) {
-
-                            // Check the base IRI to see if we can use it to turn the IRI into an absolute one.
-                            if (this.baseIRI == null) {
-                                logger.error("The base IRI is null, so relative IRI of subject cannot be turned in to absolute IRI. Skipped.");
-                                subject = null;
-                            } else {
-                                logger.debug("The IRI of subject is made absolute via base IRI.");
-                                iri = this.baseIRI + iri;
-
-                                // Check if the new absolute IRI is valid.
-                                if (Utils.isValidIRI(iri)) {
-                                    subject = new ProvenancedTerm(new NamedNode(iri), subject.getMetadata());
-                                } else {
-                                    logger.error("The subject \"" + iri + "\" is not a valid IRI. Skipped.");
-                                }
-                            }
-                        }
-                    }
+        for (int i = 0; i < triplesMaps.size(); i++) {
+            Term triplesMap = triplesMaps.get(i);
+            Mapping mapping = this.mappings.get(triplesMap);
 
-                    final ProvenancedTerm finalSubject = subject;
+            if (i < doneTriplesMaps) {
+                if (lifecycle != null) {
+                    lifecycle.triplesMapDone(triplesMap, this::releaseParent, this::releaseSource);
+                }
 
-                    //TODO validate subject or check if blank node
-                    if (subject != null) {
-                        List<ProvenancedTerm> subjectGraphs = new ArrayList<>();
+                continue;
+            }
 
-                        mapping.getGraphMappingInfos().forEach(mappingInfo -> {
-                            List<Term> terms = null;
+            if (lifecycle != null && !lifecycle.getSource(triplesMap).equals(previousSource)) {
+                previousSource = lifecycle.getSource(triplesMap);
+                logger.info("Logical Source [key: " + previousSource + "]");
+            }
 
-                            try {
-                                terms = mappingInfo.getTermGenerator().generate(record);
-                            } catch (Exception e) {
-                                //todo be more nice and gentle
-                                e.printStackTrace();
-                            }
+            boolean isParent = parentTriplesMaps.contains(triplesMap);
+            Iterator<Record> records = null;
+            try {
+                records = this.getRecordIterator(triplesMap, isParent);
+            } catch (IOException e) {
+                logger.error("Source of " + triplesMap.getValue() + " not found or not accessible. Mapping skipped.");
+            }
 
-                            terms.forEach(term -> {
-                                if (!term.equals(new NamedNode(NAMESPACES.RR + "defaultGraph"))) {
-                                    subjectGraphs.add(new ProvenancedTerm(term));
-                                }
-                            });
-                        });
+            if (records != null) {
+                this.createSortMergeJoins(triplesMap, mapping);
 
-                        List<PredicateObjectGraph> pogs = this.generatePredicateObjectGraphs(mapping, record, subjectGraphs);
+                // Records that are kept in memory are already read.
+                if (this.readAhead > 0 && !isParent && !this.recordsHolders.containsKey(triplesMap)) {
+                    records = new ReadAheadIterator<>(records, this.chunkSize, this.readAhead);
+                }
+
+                try {
+                    int first = 0;
 
-                        pogs.forEach(pog -> pogFunction.accept(finalSubject, pog));
+                    while (i == doneTriplesMaps && first < doneRecords && records.hasNext()) {
+                        records.next();
+                        first++;
+                    }
+
+                    RecordInputs inputs = recordInputs.get(triplesMap);
+
+                    if (this.parallelism > 1) {
+                        this.executeInParallel(triplesMap, mapping, records, first, i, isParent, inputs, output);
+                    } else {
+                        for (int j = first; records.hasNext(); j++) {
+                            Record record = records.next();
+                            Long key = this.getRecordKey(inputs, record);
+
+                            if (key == null || this.recordState.isChanged(key)) {
+                                output.startRecord(key);
+                                this.processRecord(triplesMap, mapping, record, j, isParent, output);
+                            }
+
+                            if (this.checkpointSink != null && this.checkpoint.isDue()) {
+                                this.saveCheckpoint(i, j + 1);
+                            }
+                        }
+                    }
+                } finally {
+                    this.recordKey = null;
+
+                    // The source is closed if not all records are used, e.g., after a failure.
+                    if (records instanceof Closeable) {
+                        ((Closeable) records).close();
                     }
                 }
             }
-            if(ordered) {
-                recordsFactory.cleanRecordCache();
-                subjectCache = new HashMap<>();
-                recordsHolders = new HashMap<>();
+
+            if (lifecycle != null) {
+                lifecycle.triplesMapDone(triplesMap, this::releaseParent, this::releaseSource);
+            }
+
+            if (this.checkpointSink != null) {
+                this.saveCheckpoint(i + 1, 0);
             }
         }
 
+        if (this.recordState != null) {
+            this.recordState.addUnchangedQuads(this.quadSink);
+        }
+
+        this.executeSortMergeJoins(pogFunction);
+        this.quadSink.flush();
+
         if (removeDuplicates) {
             this.resultingQuads.removeDuplicates();
         }
@@ -212,93 +457,326 @@ public class Executor implements Mapper {
         return resultingQuads;
     }
 
-    private Map<String, List<Term>> getOrderedTriplesMaps(List<Term> triplesMaps) {
-        Map<String, List<Term>> orderedTriplesMaps = new HashMap<>();
-        for (Term triplesMap : triplesMaps) {
-            List<Term> logicalSources = Utils.getObjectsFromQuads(rmlStore.getQuads(triplesMap, new NamedNode(NAMESPACES.RML + "logicalSource"), null));
-            if (logicalSources.isEmpty()) {
-                orderedTriplesMaps.get("others").add(triplesMap);
-                continue;
-            }
-            Term logicalSource = logicalSources.get(0);
-            List<Quad> quads = rmlStore.getQuads(logicalSource, new NamedNode(NAMESPACES.RML + "source"), null);
-            if (quads.isEmpty()) {
-                orderedTriplesMaps.get("others").add(triplesMap);
-                continue;
+    /**
+     * This method generates the subject, graphs and predicate-object-graphs of a single record
+     * and passes them to the given output.
+     * @param triplesMap the Triples Map of the record.
+     * @param mapping the mapping of the Triples Map.
+     * @param record the record.
+     * @param index the index of the record in the records of the Triples Map.
+     * @param isParent true if the Triples Map is used as parent in a join, so its subject is cached.
+     * @param output the output to which the results are passed.
+     * @throws Exception
+     */
+    private void processRecord(Term triplesMap, Mapping mapping, Record record, int index, boolean isParent, RecordOutput output) throws Exception {
+        // The blank nodes of the record are derived from its Triples Map and position.
+        try (BlankNodeScope scope = BlankNodeScope.open(this.getBlankNodeKey(triplesMap), index, false)) {
+            // Only the subjects of parent Triples Maps are needed again for joins.
+            ProvenancedTerm subject = isParent ? getSubject(triplesMap, mapping, record, index) : generateSubject(triplesMap, mapping, record, index);
+
+            // If we have subject and it's a named node,
+            // we validate it and make it an absolute IRI if needed.
+            if (subject != null && subject.getTerm() instanceof NamedNode) {
+                String iri = subject.getTerm().getValue();
+
+                // Is the IRI valid?
+                if (!Utils.isValidIRI(iri)) {
+                    logger.error("The subject \"" + iri + "\" is not a valid IRI. Skipped.");
+                    subject = null;
+
+                    // Is the IRI relative?
+                } else if (Utils.isRelativeIRI(iri)) {
+
+                    // Check the base IRI to see if we can use it to turn the IRI into an absolute one.
+                    if (this.baseIRI == null) {
+                        logger.error("The base IRI is null, so relative IRI of subject cannot be turned in to absolute IRI. Skipped.");
+                        subject = null;
+                    } else {
+                        logger.debug("The IRI of subject is made absolute via base IRI.");
+                        iri = this.baseIRI + iri;
+
+                        // Check if the new absolute IRI is valid.
+                        if (Utils.isValidIRI(iri)) {
+                            subject = new ProvenancedTerm(new NamedNode(iri), subject.getMetadata());
+                        } else {
+                            logger.error("The subject \"" + iri + "\" is not a valid IRI. Skipped.");
+                        }
+                    }
+                }
             }
-            String source = quads.get(0).getObject().getValue();
-            if (source == null) {
-                orderedTriplesMaps.get("others").add(triplesMap);
-                continue;
+
+            //TODO validate subject or check if blank node
+            if (subject != null) {
+                TriplesMapPlan plan = this.plans.get(triplesMap);
+
+                this.generatePredicateObjectGraphs(plan, record, index, subject, plan.getSubjectGraphs(record), output);
             }
-            if(orderedTriplesMaps.containsKey(source))
-                orderedTriplesMaps.get(source).add(triplesMap);
-            else{
-                List<Term> terms = new ArrayList<>();
-                terms.add(triplesMap);
-                orderedTriplesMaps.put(source, terms);
+        }
+    }
+
+    /**
+     * This method processes the records of a Triples Map in parallel.
+     * The records are split in chunks, which are processed by the workers of a ForkJoinPool.
+     * Every chunk has its own buffer, which is passed to the output by the calling thread,
+     * so that the pogFunction, sinks and sort-merge joins are never used concurrently.
+     * If the order is deterministic, the buffers are passed in the order of the chunks, so the output is in the same order
+     * as when the records are processed sequentially. Otherwise, they are passed as soon as their chunk is processed.
+     * At most two chunks per worker are read ahead, so records that are read while they are processed are not all kept in memory.
+     * Records that did not change since the previous execution (see setRecordState) are skipped when the chunks are created.
+     */
+    private void executeInParallel(Term triplesMap, Mapping mapping, Iterator<Record> records, int first, int triplesMapIndex, boolean isParent,
+                                   RecordInputs inputs, RecordOutput output) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        ArrayDeque<Future<ChunkBuffer>> chunks = new ArrayDeque<>();
+        CompletionService<ChunkBuffer> completionService = new ExecutorCompletionService<>(pool);
+        int maxPendingChunks = 2 * this.parallelism;
+        int pendingChunks = 0;
+        int index = first;
+        // the number of records of which the results are passed to the output, if the order is deterministic.
+        long done = first;
+
+        try {
+            while (records.hasNext() || pendingChunks > 0) {
+                if (records.hasNext() && pendingChunks < maxPendingChunks) {
+                    // A record that is skipped is null, so the other records keep their index.
+                    List<Record> chunk = new ArrayList<>(this.chunkSize);
+                    List<Long> keys = new ArrayList<>(this.chunkSize);
+
+                    while (records.hasNext() && chunk.size() < this.chunkSize) {
+                        Record record = records.next();
+                        Long key = this.getRecordKey(inputs, record);
+
+                        chunk.add(key == null || this.recordState.isChanged(key) ? record : null);
+                        keys.add(key);
+                    }
+
+                    final int firstIndex = index;
+                    Callable<ChunkBuffer> task = () -> {
+                        ChunkBuffer buffer = new ChunkBuffer(chunk.size());
+
+                        for (int j = 0; j < chunk.size(); j++) {
+                            if (chunk.get(j) != null) {
+                                buffer.startRecord(keys.get(j));
+                                this.processRecord(triplesMap, mapping, chunk.get(j), firstIndex + j, isParent, buffer);
+                            }
+                        }
+
+                        return buffer;
+                    };
+
+                    if (this.deterministic) {
+                        chunks.add(pool.submit(task));
+                    } else {
+                        completionService.submit(task);
+                    }
+
+                    index += chunk.size();
+                    pendingChunks++;
+                } else {
+                    Future<ChunkBuffer> chunk = this.deterministic ? chunks.poll() : completionService.take();
+
+                    try {
+                        ChunkBuffer buffer = chunk.get();
+                        buffer.writeTo(output);
+                        done += buffer.records;
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof Exception) {
+                            throw (Exception) e.getCause();
+                        }
+
+                        throw e;
+                    }
+
+                    pendingChunks--;
+
+                    // Otherwise, the records that are done are not the first ones, so checkpoints are only written after the Triples Map.
+                    if (this.deterministic && this.checkpointSink != null && this.checkpoint.isDue()) {
+                        this.saveCheckpoint(triplesMapIndex, done);
+                    }
+                }
             }
+        } finally {
+            // Chunks that are still processed after a failure are cancelled.
+            pool.shutdownNow();
         }
-        return orderedTriplesMaps;
     }
 
-    public QuadStore execute(List<Term> triplesMaps) throws Exception {
-        return this.execute(triplesMaps, false, null);
+    /**
+     * This method writes a checkpoint, after the output is synced.
+     * @param triplesMaps the number of Triples Maps that are done.
+     * @param records the number of records of the next Triples Map that are done.
+     * @throws IOException
+     */
+    private void saveCheckpoint(int triplesMaps, long records) throws IOException {
+        long length = this.checkpointSink.sync();
+
+        this.checkpoint.save(triplesMaps, records, length, this.checkpointSink.getNumberOfQuads());
+    }
+
+    /**
+     * This method creates the sort-merge joins of the referencing object maps of a Triples Map,
+     * before its records are processed.
+     */
+    private void createSortMergeJoins(Term triplesMap, Mapping mapping) {
+        if (!sortMergeJoin && sortMergeJoinParents.isEmpty()) {
+            return;
+        }
+
+        for (PredicateObjectGraphPlan pogPlan : this.plans.get(triplesMap).getPredicateObjectGraphPlans()) {
+            PredicateObjectGraphMapping pogMapping = pogPlan.getPredicateObjectGraphMapping();
+
+            if (!pogPlan.isSelfJoin() && this.isSortMergeJoin(pogMapping) && !this.sortMergeJoins.containsKey(pogMapping)) {
+                // Children that are processed in parallel are only added in the order of the source if the order is deterministic.
+                boolean sortedChildren = this.sortedSources.contains(this.getSource(triplesMap)) && (this.parallelism <= 1 || this.deterministic);
+                this.sortMergeJoins.put(pogMapping, new SortMergeJoin(triplesMap, mapping, pogMapping, this.joinMemoryBudget, sortedChildren));
+            }
+        }
     }
 
+    /**
+     * @return true if the referencing object map is evaluated via a sort-merge join.
+     */
+    private boolean isSortMergeJoin(PredicateObjectGraphMapping pogMapping) {
+        return (sortMergeJoin || sortMergeJoinParents.contains(pogMapping.getParentTriplesMap())) && SortMergeJoin.isApplicable(pogMapping);
+    }
 
-    private List<PredicateObjectGraph> generatePredicateObjectGraphs(Mapping mapping, Record record, List<ProvenancedTerm> alreadyNeededGraphs) throws Exception {
-        ArrayList<PredicateObjectGraph> results = new ArrayList<>();
+    /**
+     * This method executes the sort-merge joins of which all child records are collected.
+     * The parent records are read while they are joined, without being kept in memory.
+     * A join is only skipped if its parent records cannot be read; other errors abort the mapping,
+     * because part of the join might already be generated.
+     */
+    private void executeSortMergeJoins(BiConsumer<ProvenancedTerm, PredicateObjectGraph> pogFunction) throws Exception {
+        for (SortMergeJoin join : this.sortMergeJoins.values()) {
+            Term parentTriplesMap = join.getParentTriplesMap();
+            Iterator<Record> parents = null;
+
+            try {
+                try {
+                    parents = this.getRecordIterator(parentTriplesMap, false);
+                } catch (IOException e) {
+                    logger.error("Join of " + join.getTriplesMap() + " with " + parentTriplesMap + " failed: " + e.getMessage() + ". Join skipped.");
+                    continue;
+                }
 
-        List<PredicateObjectGraphMapping> predicateObjectGraphMappings = mapping.getPredicateObjectGraphMappings();
+                boolean sortedParents = this.sortedSources.contains(this.getSource(parentTriplesMap));
 
-        for (PredicateObjectGraphMapping pogMapping : predicateObjectGraphMappings) {
-            ArrayList<ProvenancedTerm> predicates = new ArrayList<>();
-            ArrayList<ProvenancedTerm> poGraphs = new ArrayList<>();
-            poGraphs.addAll(alreadyNeededGraphs);
+                join.join(parents, this.mappings.get(parentTriplesMap), this.getBlankNodeKey(parentTriplesMap), sortedParents, pogFunction);
+            } finally {
+                join.close();
 
-            if (pogMapping.getGraphMappingInfo() != null && pogMapping.getGraphMappingInfo().getTermGenerator() != null) {
-                pogMapping.getGraphMappingInfo().getTermGenerator().generate(record).forEach(term -> {
-                    if (!term.equals(new NamedNode(NAMESPACES.RR + "defaultGraph"))) {
-                        poGraphs.add(new ProvenancedTerm(term));
-                    }
-                });
+                // The source is closed if not all parent records are read, e.g., after the execution is cancelled.
+                if (parents instanceof Closeable) {
+                    ((Closeable) parents).close();
+                }
             }
+        }
 
-            pogMapping.getPredicateMappingInfo().getTermGenerator().generate(record).forEach(p -> {
-                predicates.add(new ProvenancedTerm(p, pogMapping.getPredicateMappingInfo()));
-            });
+        this.sortMergeJoins.clear();
+    }
+
+    /**
+     * @return the value of rml:source of the Logical Source of a Triples Map or null if there is none.
+     */
+    private String getSource(Term triplesMap) {
+        List<Term> logicalSources = Utils.getObjectsFromQuads(rmlStore.getQuads(triplesMap, new NamedNode(NAMESPACES.RML + "logicalSource"), null));
+
+        if (logicalSources.isEmpty()) {
+            return null;
+        }
 
-            if (pogMapping.getObjectMappingInfo() != null && pogMapping.getObjectMappingInfo().getTermGenerator() != null) {
-                List<Term> objects = pogMapping.getObjectMappingInfo().getTermGenerator().generate(record);
-                ArrayList<ProvenancedTerm> provenancedObjects = new ArrayList<>();
+        List<Quad> quads = rmlStore.getQuads(logicalSources.get(0), new NamedNode(NAMESPACES.RML + "source"), null);
 
-                objects.forEach(object -> {
-                    provenancedObjects.add(new ProvenancedTerm(object, pogMapping.getObjectMappingInfo()));
-                });
+        if (quads.isEmpty()) {
+            return null;
+        }
+
+        return quads.get(0).getObject().getValue();
+    }
+
+    /**
+     * This method releases the records, subjects and join indexes of a parent Triples Map.
+     * @param triplesMap the parent Triples Map.
+     */
+    private void releaseParent(Term triplesMap) {
+        this.recordsHolders.remove(triplesMap);
+        this.subjectCache.remove(triplesMap);
+        this.joinIndexes.remove(triplesMap);
+        this.allSubjects.remove(triplesMap);
+    }
 
-                if (objects.size() > 0) {
-                    //add pogs
-                    results.addAll(combineMultiplePOGs(predicates, provenancedObjects, poGraphs));
+    /**
+     * This method releases the cached records and documents of the source of a Triples Map.
+     * @param triplesMap the Triples Map.
+     */
+    private void releaseSource(Term triplesMap) {
+        this.recordsFactory.releaseRecords(triplesMap, this.rmlStore);
+    }
+
+    public QuadStore execute(List<Term> triplesMaps) throws Exception {
+        return this.execute(triplesMaps, false, null);
+    }
+
+    /**
+     * This method returns a publisher that executes the mapping when a subscriber subscribes
+     * and passes the quads to the subscriber while they are generated, as many as it requests.
+     * The QuadSink and the cancellation condition of this executor are replaced.
+     * @param triplesMaps the Triples Maps that are executed, all Triples Maps if it is null or empty.
+     * @return the publisher, which accepts one subscriber.
+     */
+    public Flow.Publisher<Quad> publish(List<Term> triplesMaps) {
+        return new QuadPublisher(this, triplesMaps);
+    }
+
+
+    /**
+     * This method generates the predicate-object-graphs of a record, following the plan of its Triples Map,
+     * and passes them directly to the output.
+     * The predicate-object-graphs of constant predicate-object maps are not generated again, but shared by all records.
+     */
+    private void generatePredicateObjectGraphs(TriplesMapPlan plan, Record record, int index, ProvenancedTerm subject, List<ProvenancedTerm> subjectGraphs, RecordOutput output) throws Exception {
+        for (PredicateObjectGraphPlan pogPlan : plan.getPredicateObjectGraphPlans()) {
+            List<PredicateObjectGraph> constantPogs = pogPlan.getConstantPredicateObjectGraphs();
+
+            if (constantPogs != null) {
+                for (int i = 0; i < constantPogs.size(); i++) {
+                    output.addPredicateObjectGraph(subject, constantPogs.get(i));
                 }
 
+                continue;
+            }
+
+            PredicateObjectGraphMapping pogMapping = pogPlan.getPredicateObjectGraphMapping();
+            List<ProvenancedTerm> predicates = pogPlan.getPredicates(record);
+            List<ProvenancedTerm> graphs = pogPlan.getGraphs(record, subjectGraphs);
+            List<ProvenancedTerm> objects;
+
+            if (!pogPlan.isReferencing()) {
+                objects = pogPlan.getObjects(record);
+
                 //check if we are dealing with a parentTriplesMap (RefObjMap)
+            } else if (pogPlan.isSelfJoin()) {
+                // The parent record that matches is the record itself.
+                objects = this.getSelfJoinIRIs(record, index, pogMapping.getParentTriplesMap(), pogPlan.getSelfJoinConditions());
             } else if (pogMapping.getParentTriplesMap() != null) {
-                List<ProvenancedTerm> objects;
+                //check if the join is done afterwards via a sort-merge join
+                if (this.isSortMergeJoin(pogMapping)) {
+                    output.addJoinChild(this.sortMergeJoins.get(pogMapping), record, subject, predicates, graphs);
+                    continue;
+                }
 
                 //check if need to apply a join condition
                 if (!pogMapping.getJoinConditions().isEmpty()) {
                     objects = this.getIRIsWithConditions(record, pogMapping.getParentTriplesMap(), pogMapping.getJoinConditions());
-                    //this.generateTriples(subject, po.getPredicateGenerator(), objects, record, combinedGraphs);
                 } else {
                     objects = this.getAllIRIs(pogMapping.getParentTriplesMap());
                 }
-
-                results.addAll(combineMultiplePOGs(predicates, objects, poGraphs));
+            } else {
+                continue;
             }
-        }
 
-        return results;
+            output.addPredicateObjectGraphs(subject, predicates, objects, graphs);
+        }
     }
 
     private void generateQuad(ProvenancedTerm subject, ProvenancedTerm predicate, ProvenancedTerm object, ProvenancedTerm graph) {
@@ -331,144 +809,388 @@ public class Executor implements Mapper {
                     }
                 }
             }
-            this.resultingQuads.addQuad(subject.getTerm(), predicate.getTerm(), object.getTerm(), g);
+            this.quadSink.addQuad(subject.getTerm(), predicate.getTerm(), object.getTerm(), g);
+
+            if (this.recordKey != null) {
+                this.recordState.addQuad(this.recordKey, subject.getTerm(), predicate.getTerm(), object.getTerm(), g);
+            }
         }
     }
 
-    private List<ProvenancedTerm> getIRIsWithConditions(Record record, Term triplesMap, List<MultipleRecordsFunctionExecutor> conditions) throws Exception {
-        ArrayList<ProvenancedTerm> goodIRIs = new ArrayList<ProvenancedTerm>();
-        ArrayList<List<ProvenancedTerm>> allIRIs = new ArrayList<List<ProvenancedTerm>>();
-
-        for (MultipleRecordsFunctionExecutor condition : conditions) {
-            allIRIs.add(this.getIRIsWithTrueCondition(record, triplesMap, condition));
+    /**
+     * This method returns the subject of the parent of a self-join, which is generated from the child record.
+     * @param child the child record.
+     * @param index the position of the child record, which is also the position of the parent record.
+     * @param triplesMap the parent Triples Map.
+     * @param conditions the join conditions.
+     * @return the parent subject or no subjects if the child record has no value for a join reference.
+     */
+    private List<ProvenancedTerm> getSelfJoinIRIs(Record child, int index, Term triplesMap, List<EqualityJoinCondition> conditions) throws Exception {
+        if (SelfJoin.hasJoinValues(conditions, child)) {
+            ProvenancedTerm subject = this.generateSubject(triplesMap, this.mappings.get(triplesMap), child, index);
+
+            if (subject != null) {
+                return Collections.singletonList(subject);
+            }
         }
 
-        if (!allIRIs.isEmpty()) {
-            goodIRIs.addAll(allIRIs.get(0));
+        return Collections.emptyList();
+    }
 
-            for(int i = 1; i < allIRIs.size(); i ++) {
-                List<ProvenancedTerm> list = allIRIs.get(i);
+    /**
+     * This method returns the IRIs of the parent records that satisfy all join conditions with the child record.
+     * The equality conditions are evaluated together via a single probe in a hash index on the tuple of parent references.
+     * The other conditions are only evaluated for the parent records that are returned by the index.
+     * The IRIs are returned in the order of the parent records.
+     */
+    private List<ProvenancedTerm> getIRIsWithConditions(Record child, Term triplesMap, List<MultipleRecordsFunctionExecutor> conditions) throws Exception {
+        Mapping mapping = this.mappings.get(triplesMap);
+        List<Record> records = this.getRecords(triplesMap);
+        List<EqualityJoinCondition> equalities = JoinIndex.getEqualityConditions(conditions);
+        ArrayList<ProvenancedTerm> iris = new ArrayList<ProvenancedTerm>();
 
-                for (int j = 0; j < goodIRIs.size(); j ++) {
-                    if (!list.contains(goodIRIs.get(j))) {
-                        goodIRIs.remove(j);
-                        j --;
-                    }
+        if (equalities.isEmpty()) {
+            for (int i = 0; i < records.size(); i++) {
+                if (this.areTrueConditions(child, records.get(i), conditions)) {
+                    iris.add(this.getSubject(triplesMap, mapping, records.get(i), i));
+                }
+            }
+        } else {
+            boolean allEqualities = equalities.size() == conditions.size();
+
+            for (int i : this.getJoinIndex(triplesMap, records, equalities).get(equalities, child)) {
+                if (allEqualities || this.areTrueConditions(child, records.get(i), conditions)) {
+                    iris.add(this.getSubject(triplesMap, mapping, records.get(i), i));
                 }
             }
         }
 
-        return goodIRIs;
+        return iris;
     }
 
-    private List<ProvenancedTerm> getIRIsWithTrueCondition(Record child, Term triplesMap, MultipleRecordsFunctionExecutor condition) throws Exception {
-        Mapping mapping = this.mappings.get(triplesMap);
-
-        //iterator over all the records corresponding with @triplesMap
-        List<Record> records = this.getRecords(triplesMap);
-        //this array contains all the IRIs that are valid regarding @path and @values
-        ArrayList<ProvenancedTerm> iris = new ArrayList<ProvenancedTerm>();
-
-        for (int i = 0; i < records.size(); i++) {
-            Record parent = records.get(i);
+    private boolean areTrueConditions(Record child, Record parent, List<MultipleRecordsFunctionExecutor> conditions) throws Exception {
+        HashMap<String, Record> recordsMap = new HashMap<>();
+        recordsMap.put("child", child);
+        recordsMap.put("parent", parent);
 
-            HashMap<String, Record> recordsMap = new HashMap<>();
-            recordsMap.put("child", child);
-            recordsMap.put("parent", parent);
+        for (MultipleRecordsFunctionExecutor condition : conditions) {
+            // Equality conditions are already satisfied via the index.
+            if (condition instanceof EqualityJoinCondition) {
+                continue;
+            }
 
             Object expectedBoolean = condition.execute(recordsMap);
 
-            if (expectedBoolean instanceof Boolean) {
-                if ((boolean) expectedBoolean) {
-                    ProvenancedTerm subject = this.getSubject(triplesMap, mapping, parent, i);
-                    iris.add(subject);
-                }
-            } else {
+            if (!(expectedBoolean instanceof Boolean)) {
                 logger.warn("The used condition with the Parent Triples Map does not return a boolean.");
+                return false;
+            } else if (!(boolean) expectedBoolean) {
+                return false;
             }
         }
 
-        return iris;
+        return true;
+    }
+
+    private JoinIndex getJoinIndex(Term triplesMap, List<Record> records, List<EqualityJoinCondition> conditions) {
+        if (noCache) {
+            return JoinIndex.build(records, conditions);
+        }
+
+        ConcurrentHashMap<List<String>, JoinIndex> indexes = this.joinIndexes.computeIfAbsent(triplesMap, key -> new ConcurrentHashMap<>());
+
+        // The index is built only once, also when several workers need it at the same time.
+        return indexes.computeIfAbsent(JoinIndex.getParentReferences(conditions), key -> JoinIndex.build(records, conditions));
     }
 
     private ProvenancedTerm getSubject(Term triplesMap, Mapping mapping, Record record, int i) throws Exception {
         if (noCache) {
-            List<Term> nodes = mapping.getSubjectMappingInfo().getTermGenerator().generate(record);
-            if (!nodes.isEmpty())
-                return new ProvenancedTerm(nodes.get(0), new Metadata(triplesMap, mapping.getSubjectMappingInfo().getTerm()));
-            return null;
+            return generateSubject(triplesMap, mapping, record, i);
+        }
+
+        SubjectCache subjects = this.subjectCache.get(triplesMap);
+
+        if (subjects == null) {
+            // The records of a Triples Map of which the subjects are cached are kept in memory, so their number is known.
+            int size = this.getRecords(triplesMap).size();
+            subjects = this.subjectCache.computeIfAbsent(triplesMap, key -> SubjectCache.create(mapping, size, this.subjectCacheCapacity));
         }
 
-        if (!this.subjectCache.containsKey(triplesMap)) {
-            this.subjectCache.put(triplesMap, new HashMap<Integer, ProvenancedTerm>());
+        ProvenancedTerm subject = subjects.get(i);
+
+        if (subject == null) {
+            //todo: only create metadata when it's required
+            subject = generateSubject(triplesMap, mapping, record, i);
+
+            // If another worker generated the subject in the meantime, its subject is used,
+            // so that every record has a single subject, also when it is a blank node.
+            if (subject != null) {
+                subject = subjects.putIfAbsent(i, subject);
+            }
         }
 
-        if (!this.subjectCache.get(triplesMap).containsKey(i)) {
+        return subject;
+    }
+
+    /**
+     * This method generates the subject of a record.
+     * A blank node without template is derived from the Triples Map and the position of the record,
+     * so the subject is the same when it is generated again, e.g., for a join.
+     */
+    private ProvenancedTerm generateSubject(Term triplesMap, Mapping mapping, Record record, int index) throws Exception {
+        try (BlankNodeScope scope = BlankNodeScope.open(this.getBlankNodeKey(triplesMap), index, true)) {
             List<Term> nodes = mapping.getSubjectMappingInfo().getTermGenerator().generate(record);
 
             if (!nodes.isEmpty()) {
-                //todo: only create metadata when it's required
-                this.subjectCache.get(triplesMap).put(i, new ProvenancedTerm(nodes.get(0), new Metadata(triplesMap, mapping.getSubjectMappingInfo().getTerm())));
+                return new ProvenancedTerm(nodes.get(0), new Metadata(triplesMap, mapping.getSubjectMappingInfo().getTerm()));
             }
         }
 
-        return this.subjectCache.get(triplesMap).get(i);
+        return null;
     }
 
+    /**
+     * This method returns the subjects of all records of a parent Triples Map, which are all joined with every child record.
+     * The list is created once per parent Triples Map and shared, read-only, by all child records and workers.
+     * @param triplesMap the parent Triples Map.
+     * @return the subjects, without the records for which no subject is generated.
+     * @throws Exception
+     */
     private List<ProvenancedTerm> getAllIRIs(Term triplesMap) throws Exception {
-        Mapping mapping = this.mappings.get(triplesMap);
+        List<ProvenancedTerm> iris = this.allSubjects.get(triplesMap);
+
+        if (iris != null) {
+            return iris;
+        }
 
+        Mapping mapping = this.mappings.get(triplesMap);
         List<Record> records = getRecords(triplesMap);
-        ArrayList<ProvenancedTerm> iris = new ArrayList<ProvenancedTerm>();
+        ArrayList<ProvenancedTerm> subjects = new ArrayList<ProvenancedTerm>(records.size());
 
         for (int i = 0; i < records.size(); i++) {
-            Record record = records.get(i);
-            ProvenancedTerm subject = getSubject(triplesMap, mapping, record, i);
+            this.checkCancelled();
+            ProvenancedTerm subject = getSubject(triplesMap, mapping, records.get(i), i);
 
-            iris.add(subject);
+            if (subject != null) {
+                subjects.add(subject);
+            }
         }
 
-        return iris;
+        iris = Collections.unmodifiableList(subjects);
+
+        if (noCache) {
+            return iris;
+        }
+
+        // If another worker created the list in the meantime, its list is used.
+        List<ProvenancedTerm> previous = this.allSubjects.putIfAbsent(triplesMap, iris);
+
+        return previous != null ? previous : iris;
     }
 
     private List<Record> getRecords(Term triplesMap) throws IOException {
+        this.checkCancelled();
+
         if (noCache)
             return this.recordsFactory.createRecords(triplesMap, this.rmlStore);
 
-        if (!this.recordsHolders.containsKey(triplesMap)) {
-            this.recordsHolders.put(triplesMap, this.recordsFactory.createRecords(triplesMap, this.rmlStore));
+        List<Record> records = this.recordsHolders.get(triplesMap);
+
+        if (records == null) {
+            synchronized (this.recordsHolders) {
+                records = this.recordsHolders.get(triplesMap);
+
+                if (records == null) {
+                    records = this.recordsFactory.createRecords(triplesMap, this.rmlStore);
+                    this.recordsHolders.put(triplesMap, records);
+                }
+            }
         }
-        
-        return this.recordsHolders.get(triplesMap);
+
+        return records;
     }
 
-    public FunctionLoader getFunctionLoader() {
-        return this.initializer.getFunctionLoader();
+    /**
+     * This method returns the records of a Triples Map one by one.
+     * The records of a parent Triples Map are kept in memory, because they are needed again for joins.
+     * The records of other Triples Maps are read while they are processed, unless they are already in memory.
+     * The iterator stops the execution when it is cancelled (see setCancellation).
+     * @param triplesMap the Triples Map.
+     * @param isParent true if the Triples Map is used as parent in a join.
+     * @return an iterator over the records.
+     * @throws IOException
+     */
+    private Iterator<Record> getRecordIterator(Term triplesMap, boolean isParent) throws IOException {
+        if (isParent || this.recordsHolders.containsKey(triplesMap)) {
+            return new CancellableIterator(this.getRecords(triplesMap).iterator(), this.cancellation);
+        }
+
+        return new CancellableIterator(this.recordsFactory.createRecordIterator(triplesMap, this.rmlStore), this.cancellation);
     }
 
-    private List<PredicateObjectGraph> combineMultiplePOGs(List<ProvenancedTerm> predicates, List<ProvenancedTerm> objects, List<ProvenancedTerm> graphs) {
-        ArrayList<PredicateObjectGraph> results = new ArrayList<>();
+    /**
+     * This method returns what determines the quads of the records of a Triples Map,
+     * if they depend on nothing but the values of the records and the mapping (see setRecordState).
+     * This is not the case if the Triples Map has referencing object maps or functions,
+     * or generates blank nodes, of which the identifiers depend on the positions of the records.
+     * @param triplesMap the Triples Map.
+     * @return the description of the Triples Map and the references that are used, or null if the quads depend on more.
+     */
+    private RecordInputs getRecordInputs(Term triplesMap) {
+        Set<String> references = new TreeSet<>();
+        List<String> description = new ArrayList<>();
+        Set<Term> visited = new HashSet<>();
+        ArrayDeque<Term> nodes = new ArrayDeque<>();
+        nodes.add(triplesMap);
+        visited.add(triplesMap);
+
+        // The Triples Map and the nodes it refers to, e.g., its term maps, also if they are not blank nodes.
+        while (!nodes.isEmpty()) {
+            Term node = nodes.poll();
+
+            for (Quad quad : this.rmlStore.getQuads(node, null, null)) {
+                String predicate = quad.getPredicate().getValue();
+                Term object = quad.getObject();
+
+                if (predicate.equals(NAMESPACES.RR + "parentTriplesMap") || predicate.equals(NAMESPACES.FNML + "functionValue")
+                        || (predicate.equals(NAMESPACES.RR + "termType") && object.getValue().equals(NAMESPACES.RR + "BlankNode"))) {
+                    return null;
+                }
+
+                if (predicate.equals(NAMESPACES.RML + "reference") || predicate.equals(NAMESPACES.RR + "column")) {
+                    references.add(object.getValue());
+                } else if (predicate.equals(NAMESPACES.RR + "template")) {
+                    for (Extractor extractor : Utils.parseTemplate(object.getValue())) {
+                        if (extractor instanceof ReferenceExtractor) {
+                            references.add(((ReferenceExtractor) extractor).reference);
+                        }
+                    }
+                }
+
+                if (!(object instanceof Literal) && !this.rmlStore.getQuads(object, null, null).isEmpty() && visited.add(object)) {
+                    nodes.add(object);
+                }
+            }
 
-        if (graphs.isEmpty()) {
-            graphs.add(null);
+            // The blank nodes are part of the description of the node that refers to them.
+            if (!(node instanceof BlankNode)) {
+                description.add(node + " " + Utils.getDescription(this.rmlStore, node));
+            }
         }
 
-        predicates.forEach(p -> {
-            objects.forEach(o -> {
-                graphs.forEach(g -> {
-                    results.add(new PredicateObjectGraph(p, o, g));
-                });
-            });
-        });
+        Collections.sort(description);
+        description.add(0, this.getTriplesMapKey(triplesMap) + " " + this.baseIRI);
+
+        return new RecordInputs(Long.toHexString(this.recordState.getKey(String.join("\n", description))), new ArrayList<>(references));
+    }
+
+    /**
+     * @param inputs what determines the quads of the records of the Triples Map, null if they depend on more.
+     * @param record the record.
+     * @return the key of the record in the record state, null if the record is always mapped.
+     */
+    private Long getRecordKey(RecordInputs inputs, Record record) {
+        if (inputs == null) {
+            return null;
+        }
+
+        StringBuilder description = new StringBuilder(inputs.description);
+
+        for (String reference : inputs.references) {
+            description.append('\n').append(reference).append('=').append(record.get(reference)).append(' ').append(record.getDataType(reference));
+        }
 
-        return results;
+        return this.recordState.getKey(description.toString());
     }
 
+    /**
+     * This method stops the execution if it is cancelled (see setCancellation).
+     */
+    private void checkCancelled() {
+        if (this.cancellation.getAsBoolean()) {
+            throw new CancellationException("The execution is cancelled.");
+        }
+    }
+
+    /**
+     * This method returns the Triples Maps of which the records are needed to evaluate referencing object maps.
+     * The parents of sort-merge joins are not included, because their records are read again when the join is executed.
+     * The parents of self-joins are not included either, because their subjects are generated from the child records.
+     * @return the parent Triples Maps.
+     */
+    private Set<Term> getParentTriplesMaps() {
+        Set<Term> parents = new HashSet<>();
+
+        for (TriplesMapPlan plan : this.plans.values()) {
+            for (PredicateObjectGraphPlan pogPlan : plan.getPredicateObjectGraphPlans()) {
+                PredicateObjectGraphMapping pogMapping = pogPlan.getPredicateObjectGraphMapping();
+
+                if (pogMapping.getParentTriplesMap() != null && !pogPlan.isSelfJoin() && !this.isSortMergeJoin(pogMapping)) {
+                    parents.add(pogMapping.getParentTriplesMap());
+                }
+            }
+        }
+
+        return parents;
+    }
+
+    public FunctionLoader getFunctionLoader() {
+        return this.initializer.getFunctionLoader();
+    }
+
+    /**
+     * @return the identifier of a new blank node: derived from the Triples Map and position of the record
+     * of which the current thread generates the terms (see BlankNodeScope).
+     */
     public static String getNewBlankNodeID() {
-        String temp = "" + Executor.blankNodeCounter;
-        Executor.blankNodeCounter++;
+        return BlankNodeScope.nextID();
+    }
 
-        return temp;
+    /**
+     * @param prefix the prefix of the blank node identifiers that are generated by this executor from now on.
+     */
+    public void setBlankNodePrefix(String prefix) {
+        setBlankNodePrefix(prefix, null);
+    }
+
+    /**
+     * @param prefix the prefix of the blank node identifiers that are generated by this executor from now on.
+     * @param source the source (value of rml:source) of the Triples Maps of which the blank node identifiers get the prefix,
+     * e.g., the partition of a worker, all Triples Maps if it is null.
+     */
+    public void setBlankNodePrefix(String prefix, String source) {
+        this.blankNodePrefix = prefix;
+        this.blankNodePrefixSource = source;
+        this.blankNodeKeys.clear();
+    }
+
+    /**
+     * @return the key of a Triples Map in the identifiers of its blank nodes, without prefix, which is the same for every execution.
+     */
+    private String getTriplesMapKey(Term triplesMap) {
+        String key = this.triplesMapKeys.get(triplesMap);
+
+        return key != null ? key : BlankNodeScope.getKey(triplesMap);
+    }
+
+    /**
+     * @return a description of all Triples Maps of the mapping that does not depend on the identifiers of blank nodes.
+     */
+    private String getMappingDescription() {
+        return this.initializer.getTriplesMaps().stream()
+                .map(triplesMap -> this.getTriplesMapKey(triplesMap) + " " + Utils.getDescription(this.rmlStore, triplesMap))
+                .sorted()
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * @return the key of a Triples Map in the identifiers of its blank nodes, with the prefix if it applies to its source.
+     */
+    private String getBlankNodeKey(Term triplesMap) {
+        return this.blankNodeKeys.computeIfAbsent(triplesMap, key -> {
+            boolean prefixed = blankNodePrefixSource == null || blankNodePrefixSource.equals(this.getSource(triplesMap));
+            return (prefixed ? blankNodePrefix : "") + this.getTriplesMapKey(triplesMap);
+        });
     }
 
     @Override
@@ -480,4 +1202,190 @@ public class Executor implements Mapper {
     public QuadStore getResultingQuads() {
         return resultingQuads;
     }
-}
\ No newline at end of file
+
+    /**
+     * What determines the quads of the records of a Triples Map: the hash of its description and the references that are used.
+     */
+    private static class RecordInputs {
+
+        private final String description;
+        private final List<String> references;
+
+        RecordInputs(String description, List<String> references) {
+            this.description = description;
+            this.references = references;
+        }
+    }
+
+    /**
+     * This class stops the execution when the next record is requested after the execution is cancelled.
+     * The source is closed via this iterator, if it can be closed.
+     */
+    private static class CancellableIterator implements Iterator<Record>, Closeable {
+
+        private final Iterator<Record> records;
+        private final BooleanSupplier cancellation;
+
+        CancellableIterator(Iterator<Record> records, BooleanSupplier cancellation) {
+            this.records = records;
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (cancellation.getAsBoolean()) {
+                throw new CancellationException("The execution is cancelled.");
+            }
+
+            return records.hasNext();
+        }
+
+        @Override
+        public Record next() {
+            return records.next();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (records instanceof Closeable) {
+                ((Closeable) records).close();
+            }
+        }
+    }
+
+    /**
+     * The output to which the results of a record are passed.
+     */
+    private interface RecordOutput {
+
+        void addPredicateObjectGraph(ProvenancedTerm subject, PredicateObjectGraph pog);
+
+        /**
+         * This method passes every combination of a predicate, an object and a graph to the output, without intermediate lists.
+         * If there are no graphs, the graph is null, which is the default graph.
+         */
+        default void addPredicateObjectGraphs(ProvenancedTerm subject, List<ProvenancedTerm> predicates, List<ProvenancedTerm> objects, List<ProvenancedTerm> graphs) {
+            for (int p = 0; p < predicates.size(); p++) {
+                for (int o = 0; o < objects.size(); o++) {
+                    if (graphs.isEmpty()) {
+                        this.addPredicateObjectGraph(subject, new PredicateObjectGraph(predicates.get(p), objects.get(o), null));
+                    }
+
+                    for (int g = 0; g < graphs.size(); g++) {
+                        this.addPredicateObjectGraph(subject, new PredicateObjectGraph(predicates.get(p), objects.get(o), graphs.get(g)));
+                    }
+                }
+            }
+        }
+
+        void addJoinChild(SortMergeJoin join, Record record, ProvenancedTerm subject, List<ProvenancedTerm> predicates, List<ProvenancedTerm> graphs) throws IOException;
+
+        /**
+         * This method signals that the results of the next record follow.
+         * @param key the key of the record in the record state, null if its results are not added to the record state.
+         */
+        default void startRecord(Long key) {
+        }
+    }
+
+    /**
+     * This class buffers the results of the records of a chunk, until they are written to the actual output.
+     */
+    private static class ChunkBuffer implements RecordOutput {
+
+        private ArrayList<ProvenancedTerm> subjects = new ArrayList<>();
+        // null for a combination, of which the lists are stored in combinations.
+        private ArrayList<PredicateObjectGraph> pogs = new ArrayList<>();
+        private ArrayList<Combination> combinations = new ArrayList<>();
+        private ArrayList<JoinChild> joinChildren = new ArrayList<>();
+        // the keys of the records (see startRecord) and the positions in pogs where their results start.
+        private ArrayList<Long> recordKeys = new ArrayList<>();
+        private ArrayList<Integer> recordStarts = new ArrayList<>();
+        // the number of records of the chunk.
+        private final int records;
+
+        ChunkBuffer(int records) {
+            this.records = records;
+        }
+
+        @Override
+        public void addPredicateObjectGraph(ProvenancedTerm subject, PredicateObjectGraph pog) {
+            subjects.add(subject);
+            pogs.add(pog);
+        }
+
+        /**
+         * The combinations are only created when the chunk is written,
+         * so that the chunk does not hold a predicate-object-graph for every child record and every parent subject.
+         */
+        @Override
+        public void addPredicateObjectGraphs(ProvenancedTerm subject, List<ProvenancedTerm> predicates, List<ProvenancedTerm> objects, List<ProvenancedTerm> graphs) {
+            subjects.add(subject);
+            pogs.add(null);
+            combinations.add(new Combination(predicates, objects, graphs));
+        }
+
+        @Override
+        public void addJoinChild(SortMergeJoin join, Record record, ProvenancedTerm subject, List<ProvenancedTerm> predicates, List<ProvenancedTerm> graphs) {
+            joinChildren.add(new JoinChild(join, record, subject, predicates, graphs));
+        }
+
+        @Override
+        public void startRecord(Long key) {
+            recordKeys.add(key);
+            recordStarts.add(pogs.size());
+        }
+
+        void writeTo(RecordOutput output) throws IOException {
+            int c = 0;
+            int r = 0;
+
+            for (int i = 0; i < pogs.size(); i++) {
+                while (r < recordStarts.size() && recordStarts.get(r) == i) {
+                    output.startRecord(recordKeys.get(r++));
+                }
+
+                if (pogs.get(i) != null) {
+                    output.addPredicateObjectGraph(subjects.get(i), pogs.get(i));
+                } else {
+                    Combination combination = combinations.get(c++);
+                    output.addPredicateObjectGraphs(subjects.get(i), combination.predicates, combination.objects, combination.graphs);
+                }
+            }
+
+            for (JoinChild child : joinChildren) {
+                output.addJoinChild(child.join, child.record, child.subject, child.predicates, child.graphs);
+            }
+        }
+    }
+
+    private static class Combination {
+
+        private List<ProvenancedTerm> predicates;
+        private List<ProvenancedTerm> objects;
+        private List<ProvenancedTerm> graphs;
+
+        Combination(List<ProvenancedTerm> predicates, List<ProvenancedTerm> objects, List<ProvenancedTerm> graphs) {
+            this.predicates = predicates;
+            this.objects = objects;
+            this.graphs = graphs;
+        }
+    }
+
+    private static class JoinChild {
+
+        private SortMergeJoin join;
+        private Record record;
+        private ProvenancedTerm subject;
+        private List<ProvenancedTerm> predicates;
+        private List<ProvenancedTerm> graphs;
+
+        JoinChild(SortMergeJoin join, Record record, ProvenancedTerm subject, List<ProvenancedTerm> predicates, List<ProvenancedTerm> graphs) {
+            this.join = join;
+            this.record = record;
+            this.subject = subject;
+            this.predicates = predicates;
+            this.graphs = graphs;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package be.ugent.rml;
+
+/**
+ * The interfaces of reactive streams, with the same methods as java.util.concurrent.Flow (Java 9)
+ * and org.reactivestreams, so that the quads of a mapping can be streamed with demand on Java 8
+ * and adapted to these interfaces with a method reference per method.
+ */
+public final class Flow {
+
+    private Flow() {
+    }
+
+    /**
+     * A producer of items that are received by a subscriber, as many as the subscriber requests.
+     * @param <T> the type of the items.
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+
+        /**
+         * Add a subscriber, which first receives onSubscribe with its subscription,
+         * followed by onNext for every requested item and onComplete or onError at the end.
+         * @param subscriber the subscriber.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. The methods are never called concurrently.
+     * @param <T> the type of the items.
+     */
+    public interface Subscriber<T> {
+
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * The link between a publisher and a subscriber, via which the subscriber requests items or cancels the stream.
+     */
+    public interface Subscription {
+
+        /**
+         * Request the given number of items, in addition to the ones requested before.
+         * @param n the number of items, which must be positive.
+         */
+        void request(long n);
+
+        /**
+         * Stop receiving items. Items that are already being sent can still be received.
+         */
+        void cancel();
+    }
+}
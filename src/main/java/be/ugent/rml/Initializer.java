@@ -17,12 +17,14 @@ public class Initializer {
     private FunctionLoader functionLoader;
     private List<Term> triplesMaps;
     private Map<Term, Mapping> mappings;
+    private Map<Term, TriplesMapPlan> plans;
 
     public Initializer(QuadStore rmlStore, FunctionLoader functionLoader) throws Exception {
         this.rmlStore = rmlStore;
         //we get all the TriplesMaps from the mapping
         this.triplesMaps = this.getAllTriplesMaps();
         this.mappings = new ConcurrentHashMap<Term, Mapping>();
+        this.plans = new ConcurrentHashMap<Term, TriplesMapPlan>();
 
         if (functionLoader == null) {
             this.functionLoader = new FunctionLoader();
@@ -36,7 +38,14 @@ public class Initializer {
 
     private void extractMappings() throws Exception {
         for (Term triplesMap : triplesMaps) {
-            this.mappings.put(triplesMap, factory.createMapping(triplesMap, rmlStore));
+            Mapping mapping = factory.createMapping(triplesMap, rmlStore);
+            this.mappings.put(triplesMap, mapping);
+        }
+
+        // The mappings are compiled in plans that are used to process the records,
+        // once the mappings of the parents are known.
+        for (Term triplesMap : triplesMaps) {
+            this.plans.put(triplesMap, new TriplesMapPlan(triplesMap, this.mappings, rmlStore));
         }
     }
 
@@ -65,6 +74,10 @@ public class Initializer {
         return this.mappings;
     }
 
+    public Map<Term, TriplesMapPlan> getPlans() {
+        return this.plans;
+    }
+
     public List<Term> getTriplesMaps() {
         return this.triplesMaps;
     }
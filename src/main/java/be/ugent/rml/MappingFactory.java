@@ -1,13 +1,14 @@
 package be.ugent.rml;
 
 import be.ugent.rml.extractor.ConstantExtractor;
-import be.ugent.rml.extractor.ReferenceExtractor;
 import be.ugent.rml.functions.*;
+import be.ugent.rml.join.EqualityJoinCondition;
 import be.ugent.rml.store.QuadStore;
 import be.ugent.rml.term.Literal;
 import be.ugent.rml.term.NamedNode;
 import be.ugent.rml.term.Term;
 import be.ugent.rml.termgenerator.BlankNodeGenerator;
+import be.ugent.rml.termgenerator.ConstantTermGenerator;
 import be.ugent.rml.termgenerator.LiteralGenerator;
 import be.ugent.rml.termgenerator.NamedNodeGenerator;
 import be.ugent.rml.termgenerator.TermGenerator;
@@ -16,9 +17,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.function.BiConsumer;
 
 import static be.ugent.rml.Utils.isValidrrLanguage;
@@ -87,7 +86,7 @@ public class MappingFactory {
                     generator = new NamedNodeGenerator(functionExecutor);
                 }
 
-                this.subjectMappingInfo = new MappingInfo(subjectmap, generator);
+                this.subjectMappingInfo = new MappingInfo(subjectmap, foldConstant(generator));
 
                 //get classes
                 List<Term> classes = Utils.getObjectsFromQuads(store.getQuads(subjectmap, new NamedNode(NAMESPACES.RR + "class"), null));
@@ -95,8 +94,8 @@ public class MappingFactory {
                 //we create predicateobjects for the classes
                 for (Term c : classes) {
                     // Don't put in graph for rr:class, subject is already put in graph, otherwise double export
-                    NamedNodeGenerator predicateGenerator = new NamedNodeGenerator(new ConstantExtractor(NAMESPACES.RDF + "type"));
-                    NamedNodeGenerator objectGenerator = new NamedNodeGenerator(new ConstantExtractor(c.getValue()));
+                    TermGenerator predicateGenerator = foldConstant(new NamedNodeGenerator(new ConstantExtractor(NAMESPACES.RDF + "type")));
+                    TermGenerator objectGenerator = foldConstant(new NamedNodeGenerator(new ConstantExtractor(c.getValue())));
                     predicateObjectGraphMappings.add(new PredicateObjectGraphMapping(
                             new MappingInfo(subjectmap, predicateGenerator),
                             new MappingInfo(subjectmap, objectGenerator),
@@ -169,7 +168,7 @@ public class MappingFactory {
                 gen = new NamedNodeGenerator(fn);
             }
 
-            objectMapCallback.accept(new MappingInfo(termMap, gen), "child");
+            objectMapCallback.accept(new MappingInfo(termMap, foldConstant(gen)), "child");
         }
     }
 
@@ -206,7 +205,7 @@ public class MappingFactory {
                     oGen = new BlankNodeGenerator(executor);
                 }
 
-                objectMapCallback.accept(new MappingInfo(objectmap, oGen), "child");
+                objectMapCallback.accept(new MappingInfo(objectmap, foldConstant(oGen)), "child");
             } else if (!parentTriplesMaps.isEmpty()) {
                 if (parentTriplesMaps.size() > 1) {
                     logger.warn(triplesMap + " has " + parentTriplesMaps.size() + " Parent Triples Maps. You can only have one. A random one is taken.");
@@ -228,18 +227,7 @@ public class MappingFactory {
                     } else if (childs.isEmpty()) {
                         throw new Error("One of the join conditions of " + triplesMap + " is missing rr:child.");
                     } else {
-                        FunctionModel equal = functionLoader.getFunction(new NamedNode("http://example.com/idlab/function/equal"));
-                        Map<String, Object[]> parameters = new HashMap<>();
-
-                        SingleRecordFunctionExecutor parent = new ReferenceExtractor(parents.get(0));
-                        Object[] detailsParent = {"parent", parent};
-                        parameters.put("http://users.ugent.be/~bjdmeest/function/grel.ttl#valueParameter", detailsParent);
-
-                        SingleRecordFunctionExecutor child = new ReferenceExtractor(childs.get(0));
-                        Object[] detailsChild = {"child", child};
-                        parameters.put("http://users.ugent.be/~bjdmeest/function/grel.ttl#valueParameter2", detailsChild);
-
-                        joinConditionFunctionExecutors.add(new StaticMultipleRecordsFunctionExecutor(equal, parameters));
+                        joinConditionFunctionExecutors.add(new EqualityJoinCondition(parents.get(0), childs.get(0)));
                     }
                 }
 
@@ -275,7 +263,7 @@ public class MappingFactory {
                 gen = new NamedNodeGenerator(functionExecutor);
             }
 
-            objectMapCallback.accept(new MappingInfo(objectmap, gen), "child");
+            objectMapCallback.accept(new MappingInfo(objectmap, foldConstant(gen)), "child");
         }
     }
 
@@ -317,7 +305,7 @@ public class MappingFactory {
                 }
             }
 
-            graphMappingInfos.add(new MappingInfo(termMap, generator));
+            graphMappingInfos.add(new MappingInfo(termMap, foldConstant(generator)));
         }
 
         List<Term> graphShortcuts = Utils.getObjectsFromQuads(store.getQuads(termMap, new NamedNode(NAMESPACES.RR + "graph"), null));
@@ -325,7 +313,7 @@ public class MappingFactory {
         for (Term graph : graphShortcuts) {
             String gStr = graph.getValue();
             graphMappingInfos.add(new MappingInfo(termMap,
-                    new NamedNodeGenerator(new ConstantExtractor(gStr))));
+                    foldConstant(new NamedNodeGenerator(new ConstantExtractor(gStr)))));
         }
 
         return graphMappingInfos;
@@ -341,7 +329,7 @@ public class MappingFactory {
 
             if (functionValues.isEmpty()) {
                 predicateMappingInfos.add(new MappingInfo(predicateMap,
-                        new NamedNodeGenerator(RecordFunctionExecutorFactory.generate(store, predicateMap, false))));
+                        foldConstant(new NamedNodeGenerator(RecordFunctionExecutorFactory.generate(store, predicateMap, false)))));
             } else {
                 SingleRecordFunctionExecutor functionExecutor = parseFunctionTermMap(functionValues.get(0));
 
@@ -353,12 +341,31 @@ public class MappingFactory {
 
         for (Term predicate : predicateShortcuts) {
             String pStr = predicate.getValue();
-            predicateMappingInfos.add(new MappingInfo(termMap, new NamedNodeGenerator(new ConstantExtractor(pStr))));
+            predicateMappingInfos.add(new MappingInfo(termMap, foldConstant(new NamedNodeGenerator(new ConstantExtractor(pStr)))));
         }
 
         return predicateMappingInfos;
     }
 
+    /**
+     * This method folds a generator of a constant term map into a generator that emits preallocated terms,
+     * so no work is done per record.
+     * @param generator the generator of a term map.
+     * @return the folded generator if the term map is constant, the generator itself otherwise.
+     */
+    private TermGenerator foldConstant(TermGenerator generator) {
+        if (generator == null || !generator.isConstant()) {
+            return generator;
+        }
+
+        try {
+            return new ConstantTermGenerator(generator);
+        } catch (Exception e) {
+            logger.warn("Constant term map " + generator + " could not be folded: " + e.getMessage());
+            return generator;
+        }
+    }
+
     private SingleRecordFunctionExecutor parseFunctionTermMap(Term functionValue) throws IOException {
         List<Term> functionPOMs = Utils.getObjectsFromQuads(store.getQuads(functionValue, new NamedNode(NAMESPACES.RR + "predicateObjectMap"), null));
         ArrayList<ParameterValuePair> params = new ArrayList<>();
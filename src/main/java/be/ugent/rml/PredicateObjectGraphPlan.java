@@ -0,0 +1,145 @@
+package be.ugent.rml;
+
+import be.ugent.rml.join.EqualityJoinCondition;
+import be.ugent.rml.join.JoinIndex;
+import be.ugent.rml.records.Record;
+import be.ugent.rml.term.ProvenancedTerm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class is the compiled form of a predicate-object map of a Triples Map.
+ * If the predicates, the objects and all graphs are constant,
+ * the predicate-object-graphs are created once and emitted for every subject.
+ */
+public class PredicateObjectGraphPlan {
+
+    private final PredicateObjectGraphMapping pogMapping;
+    private final TermPlan predicatePlan;
+    // null for a referencing object map.
+    private final TermPlan objectPlan;
+    // null if the predicate-object map has no graph map.
+    private final TermPlan graphPlan;
+    // the predicate-object-graphs of a constant predicate-object map, null otherwise.
+    private final List<PredicateObjectGraph> constantPredicateObjectGraphs;
+    // the join conditions of a referencing object map of which the parent subject is generated from the child record, null otherwise.
+    private final List<EqualityJoinCondition> selfJoinConditions;
+
+    PredicateObjectGraphPlan(PredicateObjectGraphMapping pogMapping, List<TermPlan> subjectGraphPlans, boolean selfJoin) throws Exception {
+        this.pogMapping = pogMapping;
+        this.selfJoinConditions = selfJoin ? JoinIndex.getEqualityConditions(pogMapping.getJoinConditions()) : null;
+        this.predicatePlan = new TermPlan(pogMapping.getPredicateMappingInfo(), false);
+
+        if (pogMapping.getObjectMappingInfo() != null && pogMapping.getObjectMappingInfo().getTermGenerator() != null) {
+            this.objectPlan = new TermPlan(pogMapping.getObjectMappingInfo(), false);
+        } else {
+            this.objectPlan = null;
+        }
+
+        if (pogMapping.getGraphMappingInfo() != null && pogMapping.getGraphMappingInfo().getTermGenerator() != null) {
+            this.graphPlan = new TermPlan(pogMapping.getGraphMappingInfo(), true);
+        } else {
+            this.graphPlan = null;
+        }
+
+        boolean constant = this.predicatePlan.isConstant() && this.objectPlan != null && this.objectPlan.isConstant()
+                && (this.graphPlan == null || this.graphPlan.isConstant());
+
+        for (TermPlan subjectGraphPlan : subjectGraphPlans) {
+            constant &= subjectGraphPlan.isConstant();
+        }
+
+        if (constant) {
+            List<PredicateObjectGraph> pogs = new ArrayList<>();
+            List<ProvenancedTerm> graphs = new ArrayList<>();
+
+            for (TermPlan subjectGraphPlan : subjectGraphPlans) {
+                graphs.addAll(subjectGraphPlan.generate(null));
+            }
+
+            List<ProvenancedTerm> allGraphs = this.getGraphs(null, graphs);
+
+            for (ProvenancedTerm predicate : this.predicatePlan.generate(null)) {
+                for (ProvenancedTerm object : this.objectPlan.generate(null)) {
+                    if (allGraphs.isEmpty()) {
+                        pogs.add(new PredicateObjectGraph(predicate, object, null));
+                    }
+
+                    for (ProvenancedTerm graph : allGraphs) {
+                        pogs.add(new PredicateObjectGraph(predicate, object, graph));
+                    }
+                }
+            }
+
+            this.constantPredicateObjectGraphs = Collections.unmodifiableList(pogs);
+        } else {
+            this.constantPredicateObjectGraphs = null;
+        }
+    }
+
+    public PredicateObjectGraphMapping getPredicateObjectGraphMapping() {
+        return pogMapping;
+    }
+
+    /**
+     * @return the predicate-object-graphs of a constant predicate-object map, or null if they depend on the record.
+     */
+    public List<PredicateObjectGraph> getConstantPredicateObjectGraphs() {
+        return constantPredicateObjectGraphs;
+    }
+
+    /**
+     * @return true if the objects are generated by a referencing object map.
+     */
+    public boolean isReferencing() {
+        return objectPlan == null;
+    }
+
+    /**
+     * @return true if the referencing object map joins with a parent on the same Logical Source and the same references,
+     * so the parent subject is generated from the child record instead of via a join (see SelfJoin).
+     */
+    public boolean isSelfJoin() {
+        return selfJoinConditions != null;
+    }
+
+    public List<EqualityJoinCondition> getSelfJoinConditions() {
+        return selfJoinConditions;
+    }
+
+    public List<ProvenancedTerm> getPredicates(Record record) throws Exception {
+        return predicatePlan.generate(record);
+    }
+
+    public List<ProvenancedTerm> getObjects(Record record) throws Exception {
+        return objectPlan.generate(record);
+    }
+
+    /**
+     * This method returns the graphs of the predicate-object-graphs of a record:
+     * the graphs of the subject followed by the graphs of the predicate-object map.
+     * @param record the record.
+     * @param subjectGraphs the graphs of the subject.
+     * @return the graphs, which is the list of the subject graphs itself if the predicate-object map has no graphs.
+     * @throws Exception
+     */
+    public List<ProvenancedTerm> getGraphs(Record record, List<ProvenancedTerm> subjectGraphs) throws Exception {
+        if (graphPlan == null) {
+            return subjectGraphs;
+        }
+
+        List<ProvenancedTerm> graphs = graphPlan.generate(record);
+
+        if (subjectGraphs.isEmpty()) {
+            return graphs;
+        }
+
+        List<ProvenancedTerm> allGraphs = new ArrayList<>(subjectGraphs.size() + graphs.size());
+        allGraphs.addAll(subjectGraphs);
+        allGraphs.addAll(graphs);
+
+        return allGraphs;
+    }
+}
@@ -0,0 +1,158 @@
+package be.ugent.rml;
+
+import be.ugent.rml.store.Quad;
+import be.ugent.rml.store.QuadSink;
+import be.ugent.rml.term.Term;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publisher of the quads of a mapping, which are passed to the subscriber while they are generated.
+ * The mapping is executed by a separate thread once a subscriber subscribes, with the subscription as QuadSink of the Executor
+ * and as its cancellation condition.
+ * When all requested quads are passed, the thread waits until more quads are requested,
+ * so the quads that are generated but not received are not kept in memory.
+ * When the subscription is cancelled, the execution stops with the next record that is read, also while no quads are generated
+ * (e.g., while the records of parent Triples Maps are loaded and indexed or while sort-merge joins read their parents),
+ * so the sources are not read further.
+ * The mapping is executed once, so only one subscriber is accepted.
+ */
+public class QuadPublisher implements Flow.Publisher<Quad> {
+
+    private final Executor executor;
+    private final List<Term> triplesMaps;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * @param executor the executor of the mapping, of which the QuadSink and the cancellation condition are replaced.
+     * @param triplesMaps the Triples Maps that are executed, all Triples Maps if it is null or empty.
+     */
+    public QuadPublisher(Executor executor, List<Term> triplesMaps) {
+        this.executor = executor;
+        this.triplesMaps = triplesMaps;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Quad> subscriber) {
+        Objects.requireNonNull(subscriber);
+
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The quads of a mapping can only be published to one subscriber."));
+
+            return;
+        }
+
+        QuadSubscription subscription = new QuadSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+
+        Thread thread = new Thread(subscription::run, "quad-publisher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * The subscription, which is also the sink of the executor: adding a quad waits until it is requested.
+     */
+    private class QuadSubscription implements Flow.Subscription, QuadSink {
+
+        private final Flow.Subscriber<? super Quad> subscriber;
+        // the number of quads that are requested but not passed yet.
+        private long demand;
+        private boolean cancelled;
+        private Throwable invalidRequest;
+
+        QuadSubscription(Flow.Subscriber<? super Quad> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The number of requested quads must be positive, but it is " + n + ".");
+            } else {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+
+            this.notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            this.notifyAll();
+        }
+
+        @Override
+        public void addQuad(Term subject, Term predicate, Term object, Term graph) {
+            synchronized (this) {
+                while (demand == 0 && !cancelled && invalidRequest == null) {
+                    try {
+                        this.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        cancelled = true;
+                    }
+                }
+
+                if (cancelled || invalidRequest != null) {
+                    // The execution stops.
+                    throw new CancellationException();
+                }
+
+                demand--;
+            }
+
+            subscriber.onNext(new Quad(subject, predicate, object, graph));
+        }
+
+        /**
+         * @return true if the execution has to stop, because the subscription is cancelled or a request is invalid.
+         */
+        synchronized boolean isCancelled() {
+            return cancelled || invalidRequest != null;
+        }
+
+        /**
+         * This method executes the mapping and signals its end to the subscriber, unless the subscription is cancelled.
+         */
+        void run() {
+            Throwable error = null;
+
+            try {
+                executor.setQuadSink(this);
+                executor.setCancellation(this::isCancelled);
+                executor.execute(triplesMaps);
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                executor.setCancellation(null);
+            }
+
+            synchronized (this) {
+                if (invalidRequest != null) {
+                    error = invalidRequest;
+                } else if (cancelled) {
+                    return;
+                }
+            }
+
+            if (error == null) {
+                subscriber.onComplete();
+            } else {
+                subscriber.onError(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package be.ugent.rml;
+
+import be.ugent.rml.term.Term;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * This class tracks which data is still needed while Triples Maps are executed one after another,
+ * so that the records and caches of a Logical Source are released as soon as the last Triples Map that needs them is done.
+ * The consumers of a source are the Triples Maps of which the records come from it
+ * and the Triples Maps with a referencing object map to a parent Triples Map of which the records come from it.
+ * The consumers of a parent Triples Map (its records, subjects and join indexes) are the parent itself and its children.
+ * The Triples Maps are executed per source, in an order that keeps as few sources in memory at the same time as possible.
+ */
+public class SourceLifecycle {
+
+    private Map<Term, String> sourceOfTriplesMap = new HashMap<>();
+    private Set<Term> parentTriplesMaps;
+    // the parent Triples Maps of every scheduled Triples Map.
+    private Map<Term, Set<Term>> parentsOfTriplesMap = new HashMap<>();
+    // the number of scheduled Triples Maps that still need the records of a source.
+    private Map<String, Integer> sourceConsumers = new HashMap<>();
+    // the number of scheduled Triples Maps that still need the records and subjects of a parent Triples Map.
+    private Map<Term, Integer> parentConsumers = new HashMap<>();
+    // a Triples Map of every source, used to release the source.
+    private Map<String, Term> triplesMapOfSource = new HashMap<>();
+    private List<Term> order = new ArrayList<>();
+
+    /**
+     * @param triplesMaps the Triples Maps that need to be executed.
+     * @param mappings the mappings of the Triples Maps.
+     * @param sourceFunction returns a key for the source of a Triples Map, equal for Triples Maps that share their source.
+     * @param parentTriplesMaps the Triples Maps of which the records and subjects are kept for referencing object maps.
+     */
+    public SourceLifecycle(List<Term> triplesMaps, Map<Term, Mapping> mappings, Function<Term, String> sourceFunction, Set<Term> parentTriplesMaps) {
+        this.parentTriplesMaps = parentTriplesMaps;
+
+        // the scheduled Triples Maps per source, in the order in which the sources are first used.
+        Map<String, List<Term>> groups = new LinkedHashMap<>();
+
+        for (Term triplesMap : triplesMaps) {
+            String source = sourceOfTriplesMap.computeIfAbsent(triplesMap, sourceFunction);
+            groups.computeIfAbsent(source, key -> new ArrayList<>()).add(triplesMap);
+            triplesMapOfSource.putIfAbsent(source, triplesMap);
+
+            Set<Term> parents = new LinkedHashSet<>();
+
+            for (PredicateObjectGraphMapping pogMapping : mappings.get(triplesMap).getPredicateObjectGraphMappings()) {
+                Term parent = pogMapping.getParentTriplesMap();
+
+                if (parent != null && parentTriplesMaps.contains(parent)) {
+                    parents.add(parent);
+                    triplesMapOfSource.putIfAbsent(sourceOfTriplesMap.computeIfAbsent(parent, sourceFunction), parent);
+                }
+            }
+
+            parentsOfTriplesMap.put(triplesMap, parents);
+        }
+
+        for (Term triplesMap : triplesMaps) {
+            for (String source : getSources(triplesMap)) {
+                sourceConsumers.merge(source, 1, Integer::sum);
+            }
+
+            for (Term parent : getParents(triplesMap)) {
+                parentConsumers.merge(parent, 1, Integer::sum);
+            }
+        }
+
+        this.orderGroups(groups);
+    }
+
+    /**
+     * @return the Triples Maps in the order in which they are executed.
+     */
+    public List<Term> getOrder() {
+        return order;
+    }
+
+    /**
+     * @return the key of the source of a Triples Map.
+     */
+    public String getSource(Term triplesMap) {
+        return sourceOfTriplesMap.get(triplesMap);
+    }
+
+    /**
+     * This method marks a Triples Map as done and releases the data that is not needed anymore.
+     * @param triplesMap the Triples Map that is done.
+     * @param parentReleased called for every parent Triples Map of which the records and subjects are not needed anymore.
+     * @param sourceReleased called with a Triples Map of every source of which the records are not needed anymore.
+     */
+    public void triplesMapDone(Term triplesMap, Consumer<Term> parentReleased, Consumer<Term> sourceReleased) {
+        for (Term parent : getParents(triplesMap)) {
+            if (parentConsumers.merge(parent, -1, Integer::sum) == 0) {
+                parentReleased.accept(parent);
+            }
+        }
+
+        for (String source : getSources(triplesMap)) {
+            if (sourceConsumers.merge(source, -1, Integer::sum) == 0) {
+                sourceReleased.accept(triplesMapOfSource.get(source));
+            }
+        }
+    }
+
+    /**
+     * This method orders the groups of Triples Maps that share a source.
+     * Every time, the group is taken that loads the fewest sources that are not in memory yet,
+     * minus the sources that are released after it. Ties are broken by the order in which the sources are first used.
+     * @param groups the scheduled Triples Maps per source.
+     */
+    private void orderGroups(Map<String, List<Term>> groups) {
+        Set<String> resident = new HashSet<>();
+        Map<String, Integer> remaining = new HashMap<>(sourceConsumers);
+        List<List<Term>> pending = new ArrayList<>(groups.values());
+
+        while (!pending.isEmpty()) {
+            List<Term> best = null;
+            int bestScore = Integer.MAX_VALUE;
+
+            for (List<Term> group : pending) {
+                Set<String> sources = new HashSet<>();
+                Map<String, Integer> uses = new HashMap<>();
+
+                for (Term triplesMap : group) {
+                    for (String source : getSources(triplesMap)) {
+                        sources.add(source);
+                        uses.merge(source, 1, Integer::sum);
+                    }
+                }
+
+                int score = 0;
+
+                for (String source : sources) {
+                    if (!resident.contains(source)) {
+                        score++;
+                    }
+
+                    if (remaining.get(source).equals(uses.get(source))) {
+                        score--;
+                    }
+                }
+
+                if (score < bestScore) {
+                    best = group;
+                    bestScore = score;
+                }
+            }
+
+            pending.remove(best);
+            order.addAll(best);
+
+            for (Term triplesMap : best) {
+                for (String source : getSources(triplesMap)) {
+                    resident.add(source);
+
+                    if (remaining.merge(source, -1, Integer::sum) == 0) {
+                        resident.remove(source);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the parent Triples Maps of which the records and subjects are needed by a Triples Map,
+     * including the Triples Map itself if it is a parent.
+     */
+    private Set<Term> getParents(Term triplesMap) {
+        Set<Term> parents = new LinkedHashSet<>(parentsOfTriplesMap.get(triplesMap));
+
+        if (parentTriplesMaps.contains(triplesMap)) {
+            parents.add(triplesMap);
+        }
+
+        return parents;
+    }
+
+    /**
+     * @return the sources of which the records are needed by a Triples Map.
+     */
+    private Set<String> getSources(Term triplesMap) {
+        Set<String> sources = new LinkedHashSet<>();
+        sources.add(sourceOfTriplesMap.get(triplesMap));
+
+        for (Term parent : parentsOfTriplesMap.get(triplesMap)) {
+            sources.add(sourceOfTriplesMap.get(parent));
+        }
+
+        return sources;
+    }
+}
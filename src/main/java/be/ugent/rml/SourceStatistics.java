@@ -0,0 +1,67 @@
+package be.ugent.rml;
+
+/**
+ * Statistics of the source of one or more Triples Maps, gathered before the mapping is executed to choose its execution plan.
+ * The number of records is exact if the whole source is read, otherwise it is estimated from a sample of the source.
+ */
+public class SourceStatistics {
+
+    private final String source;
+    private final String referenceFormulation;
+    private final long size;
+    private final long records;
+    private final boolean exact;
+
+    /**
+     * @param source the key of the source, i.e., the value of rml:source.
+     * @param referenceFormulation the IRI of the reference formulation.
+     * @param size the size in bytes of the source, or -1 if it is unknown.
+     * @param records the (estimated) number of records, or -1 if it is unknown.
+     * @param exact true if the number of records is counted, false if it is estimated.
+     */
+    public SourceStatistics(String source, String referenceFormulation, long size, long records, boolean exact) {
+        this.source = source;
+        this.referenceFormulation = referenceFormulation;
+        this.size = size;
+        this.records = records;
+        this.exact = exact;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getReferenceFormulation() {
+        return referenceFormulation;
+    }
+
+    /**
+     * @return the size in bytes of the source, or -1 if it is unknown, e.g., for remote sources and databases.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the (estimated) number of records, or -1 if it is unknown.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return true if the number of records is counted, false if it is estimated.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    @Override
+    public String toString() {
+        String formulation = referenceFormulation.substring(Math.max(referenceFormulation.lastIndexOf('#'), referenceFormulation.lastIndexOf('/')) + 1);
+
+        return source + " (" + formulation + ", "
+                + (size < 0 ? "size unknown" : size + " bytes") + ", "
+                + (records < 0 ? "records unknown" : (exact ? "" : "~") + records + " records") + ")";
+    }
+}
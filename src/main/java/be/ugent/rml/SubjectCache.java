@@ -0,0 +1,77 @@
+package be.ugent.rml;
+
+import be.ugent.rml.term.ProvenancedTerm;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class caches the subjects of the records of a Triples Map, indexed by the position of the record.
+ * The subjects are kept in an array that is sized from the number of records,
+ * so no boxed indexes or hash entries are created per record.
+ * The cache can be used by several threads at the same time.
+ */
+public class SubjectCache {
+
+    private final AtomicReferenceArray<ProvenancedTerm> subjects;
+
+    /**
+     * @param size the number of records of the Triples Map.
+     */
+    public SubjectCache(int size) {
+        this.subjects = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * This method creates the subject cache of a Triples Map.
+     * @param mapping the mapping of the Triples Map.
+     * @param size the number of records of the Triples Map.
+     * @param capacity the maximum number of cached subjects, 0 to cache the subjects of all records.
+     * @return a BoundedSubjectCache if the capacity is smaller than the number of records
+     * and evicted subjects can be generated again, a cache for all records otherwise.
+     */
+    public static SubjectCache create(Mapping mapping, int size, int capacity) {
+        if (capacity > 0 && capacity < size && mapping.getSubjectMappingInfo().getTermGenerator().isRepeatable()) {
+            return new BoundedSubjectCache(capacity);
+        }
+
+        return new SubjectCache(size);
+    }
+
+    /**
+     * @param index the position of the record.
+     * @return the cached subject of the record, or null if it is not cached.
+     */
+    public ProvenancedTerm get(int index) {
+        if (index < 0 || index >= subjects.length()) {
+            return null;
+        }
+
+        return subjects.get(index);
+    }
+
+    /**
+     * This method caches the subject of a record, unless a subject was cached for it in the meantime.
+     * A record outside of the size of the cache is not cached.
+     * @param index the position of the record.
+     * @param subject the subject of the record.
+     * @return the cached subject of the record, which is the given subject if no subject was cached before.
+     */
+    public ProvenancedTerm putIfAbsent(int index, ProvenancedTerm subject) {
+        if (index < 0 || index >= subjects.length()) {
+            return subject;
+        }
+
+        if (subjects.compareAndSet(index, null, subject)) {
+            return subject;
+        }
+
+        return subjects.get(index);
+    }
+
+    /**
+     * @return the number of records the cache can hold.
+     */
+    public int size() {
+        return subjects.length();
+    }
+}
@@ -0,0 +1,72 @@
+package be.ugent.rml;
+
+import be.ugent.rml.records.Record;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.ProvenancedTerm;
+import be.ugent.rml.term.Term;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class is the compiled form of a term map.
+ * The terms of a constant term map are generated once, when the plan is compiled, and are shared by all records.
+ */
+public class TermPlan {
+
+    public static final Term DEFAULT_GRAPH = new NamedNode(NAMESPACES.RR + "defaultGraph");
+
+    private final MappingInfo mappingInfo;
+    // graph terms have no provenance and rr:defaultGraph is left out.
+    private final boolean graph;
+    // the terms of a constant term map, null if the terms depend on the record.
+    private final List<ProvenancedTerm> constantTerms;
+
+    TermPlan(MappingInfo mappingInfo, boolean graph) throws Exception {
+        this.mappingInfo = mappingInfo;
+        this.graph = graph;
+
+        if (mappingInfo.getTermGenerator().isConstant()) {
+            this.constantTerms = Collections.unmodifiableList(this.toProvenancedTerms(mappingInfo.getTermGenerator().generate(null)));
+        } else {
+            this.constantTerms = null;
+        }
+    }
+
+    /**
+     * @return true if the terms are the same for every record.
+     */
+    public boolean isConstant() {
+        return this.constantTerms != null;
+    }
+
+    /**
+     * This method returns the terms of a record.
+     * The returned list of a constant term map is shared and cannot be modified.
+     * @param record the record.
+     * @return the terms.
+     * @throws Exception
+     */
+    public List<ProvenancedTerm> generate(Record record) throws Exception {
+        if (this.constantTerms != null) {
+            return this.constantTerms;
+        }
+
+        return this.toProvenancedTerms(this.mappingInfo.getTermGenerator().generate(record));
+    }
+
+    private List<ProvenancedTerm> toProvenancedTerms(List<Term> terms) {
+        ArrayList<ProvenancedTerm> provenancedTerms = new ArrayList<>(terms.size());
+
+        for (Term term : terms) {
+            if (!this.graph) {
+                provenancedTerms.add(new ProvenancedTerm(term, this.mappingInfo));
+            } else if (!term.equals(DEFAULT_GRAPH)) {
+                provenancedTerms.add(new ProvenancedTerm(term));
+            }
+        }
+
+        return provenancedTerms;
+    }
+}
@@ -0,0 +1,86 @@
+package be.ugent.rml;
+
+import be.ugent.rml.join.SelfJoin;
+import be.ugent.rml.records.Record;
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.term.ProvenancedTerm;
+import be.ugent.rml.term.Term;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is the compiled form of the Mapping of a Triples Map, which is used to process its records.
+ * The constant parts of the term maps (e.g., constant predicates, graphs and rr:class) are generated once,
+ * when the plan is compiled, instead of for every record.
+ * Joins with a parent on the same Logical Source and the same references are replaced by generating the parent subject
+ * from the record itself.
+ */
+public class TriplesMapPlan {
+
+    private final Mapping mapping;
+    private final List<TermPlan> subjectGraphPlans = new ArrayList<>();
+    // the graphs of the subject if they are constant, null otherwise.
+    private final List<ProvenancedTerm> constantSubjectGraphs;
+    private final List<PredicateObjectGraphPlan> predicateObjectGraphPlans = new ArrayList<>();
+
+    /**
+     * @param triplesMap the Triples Map.
+     * @param mappings the mappings of all Triples Maps, which contain the mapping of the Triples Map and of its parents.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @throws Exception
+     */
+    public TriplesMapPlan(Term triplesMap, Map<Term, Mapping> mappings, QuadStore rmlStore) throws Exception {
+        this.mapping = mappings.get(triplesMap);
+
+        boolean constantSubjectGraphs = true;
+
+        for (MappingInfo graphMappingInfo : mapping.getGraphMappingInfos()) {
+            TermPlan plan = new TermPlan(graphMappingInfo, true);
+            this.subjectGraphPlans.add(plan);
+            constantSubjectGraphs &= plan.isConstant();
+        }
+
+        this.constantSubjectGraphs = constantSubjectGraphs ? Collections.unmodifiableList(this.generateSubjectGraphs(null)) : null;
+
+        for (PredicateObjectGraphMapping pogMapping : mapping.getPredicateObjectGraphMappings()) {
+            boolean selfJoin = SelfJoin.isApplicable(triplesMap, pogMapping, mappings, rmlStore);
+            this.predicateObjectGraphPlans.add(new PredicateObjectGraphPlan(pogMapping, this.subjectGraphPlans, selfJoin));
+        }
+    }
+
+    public Mapping getMapping() {
+        return mapping;
+    }
+
+    public List<PredicateObjectGraphPlan> getPredicateObjectGraphPlans() {
+        return predicateObjectGraphPlans;
+    }
+
+    /**
+     * This method returns the graphs of the subject of a record.
+     * The returned list of constant graphs is shared and cannot be modified.
+     * @param record the record.
+     * @return the graphs.
+     * @throws Exception
+     */
+    public List<ProvenancedTerm> getSubjectGraphs(Record record) throws Exception {
+        if (this.constantSubjectGraphs != null) {
+            return this.constantSubjectGraphs;
+        }
+
+        return this.generateSubjectGraphs(record);
+    }
+
+    private List<ProvenancedTerm> generateSubjectGraphs(Record record) throws Exception {
+        List<ProvenancedTerm> graphs = new ArrayList<>();
+
+        for (TermPlan plan : this.subjectGraphPlans) {
+            graphs.addAll(plan.generate(record));
+        }
+
+        return graphs;
+    }
+}
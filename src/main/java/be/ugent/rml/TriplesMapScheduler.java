@@ -0,0 +1,134 @@
+package be.ugent.rml;
+
+import be.ugent.rml.term.Term;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * This class schedules Triples Maps for concurrent execution, based on a DAG of their dependencies.
+ * The DAG has a node for every Logical Source and for every Triples Map.
+ * A Triples Map depends on the Logical Source of its records and on the Logical Sources of its parent Triples Maps,
+ * because their records and join indexes are needed to evaluate its referencing object maps.
+ * Triples Maps that share a Logical Source depend on the same node, so their records are loaded only once.
+ * The Logical Sources are loaded in order of the total estimated cost of the Triples Maps that depend on them,
+ * so the sources of parents are loaded before the sources of only their children.
+ * Triples Maps that become ready at the same time are ordered on their estimated cost, largest first.
+ */
+public class TriplesMapScheduler {
+
+    private Map<Term, Long> costs = new HashMap<>();
+    // the Logical Sources, ordered on the total cost of their dependent Triples Maps.
+    private List<String> sources = new ArrayList<>();
+    private Map<String, List<Term>> triplesMapsBySource = new HashMap<>();
+    // the Triples Maps of a Logical Source that are used as parent by one of the scheduled Triples Maps.
+    private Map<String, List<Term>> parentsBySource = new HashMap<>();
+    // the Triples Maps that depend on a Logical Source.
+    private Map<String, List<Term>> dependents = new HashMap<>();
+    // the number of Logical Sources every Triples Map still waits for.
+    private Map<Term, Integer> remainingSources = new HashMap<>();
+
+    /**
+     * @param triplesMaps the Triples Maps that need to be executed.
+     * @param mappings the mappings of the Triples Maps.
+     * @param sourceFunction returns a key for the Logical Source of a Triples Map, equal for Triples Maps that share their records.
+     * @param sizeFunction returns the estimated size of the source of a Triples Map.
+     */
+    public TriplesMapScheduler(List<Term> triplesMaps, Map<Term, Mapping> mappings, Function<Term, String> sourceFunction, Function<Term, Long> sizeFunction) {
+        Map<Term, String> sourceOfTriplesMap = new HashMap<>();
+
+        for (Term triplesMap : triplesMaps) {
+            String source = sourceFunction.apply(triplesMap);
+            sourceOfTriplesMap.put(triplesMap, source);
+            triplesMapsBySource.computeIfAbsent(source, key -> new ArrayList<>()).add(triplesMap);
+            // Every predicate-object-graph mapping is evaluated for every record.
+            costs.put(triplesMap, sizeFunction.apply(triplesMap) * (1 + mappings.get(triplesMap).getPredicateObjectGraphMappings().size()));
+        }
+
+        for (Term triplesMap : triplesMaps) {
+            Set<String> sourcesOfTriplesMap = new LinkedHashSet<>();
+            sourcesOfTriplesMap.add(sourceOfTriplesMap.get(triplesMap));
+
+            for (PredicateObjectGraphMapping pogMapping : mappings.get(triplesMap).getPredicateObjectGraphMappings()) {
+                Term parent = pogMapping.getParentTriplesMap();
+
+                if (parent != null) {
+                    String parentSource = sourceOfTriplesMap.computeIfAbsent(parent, sourceFunction);
+                    sourcesOfTriplesMap.add(parentSource);
+
+                    List<Term> parents = parentsBySource.computeIfAbsent(parentSource, key -> new ArrayList<>());
+
+                    if (!parents.contains(parent)) {
+                        parents.add(parent);
+                    }
+                }
+            }
+
+            for (String source : sourcesOfTriplesMap) {
+                dependents.computeIfAbsent(source, key -> new ArrayList<>()).add(triplesMap);
+            }
+
+            remainingSources.put(triplesMap, sourcesOfTriplesMap.size());
+        }
+
+        sources.addAll(dependents.keySet());
+        sources.sort(Comparator.comparing(this::getCost).reversed());
+    }
+
+    /**
+     * @return the keys of the Logical Sources that need to be loaded, the most costly first.
+     */
+    public List<String> getSources() {
+        return sources;
+    }
+
+    /**
+     * @return the scheduled Triples Maps of which the records come from a Logical Source.
+     */
+    public List<Term> getTriplesMaps(String source) {
+        return triplesMapsBySource.getOrDefault(source, Collections.emptyList());
+    }
+
+    /**
+     * @return the parent Triples Maps of which the records come from a Logical Source,
+     * which might not be scheduled themselves.
+     */
+    public List<Term> getParentTriplesMaps(String source) {
+        return parentsBySource.getOrDefault(source, Collections.emptyList());
+    }
+
+    /**
+     * This method marks a Logical Source as loaded.
+     * @param source the key of the Logical Source.
+     * @return the Triples Maps that do not wait for other Logical Sources anymore, the most costly first.
+     */
+    public List<Term> sourceLoaded(String source) {
+        List<Term> ready = new ArrayList<>();
+
+        for (Term triplesMap : dependents.getOrDefault(source, Collections.emptyList())) {
+            int remaining = remainingSources.get(triplesMap) - 1;
+            remainingSources.put(triplesMap, remaining);
+
+            if (remaining == 0) {
+                ready.add(triplesMap);
+            }
+        }
+
+        ready.sort(Comparator.comparing((Term triplesMap) -> costs.get(triplesMap)).reversed());
+
+        return ready;
+    }
+
+    /**
+     * @return the total estimated cost of the Triples Maps that depend on a Logical Source.
+     */
+    private long getCost(String source) {
+        long cost = 0;
+
+        for (Term triplesMap : dependents.get(source)) {
+            cost += costs.get(triplesMap);
+        }
+
+        return cost;
+    }
+}
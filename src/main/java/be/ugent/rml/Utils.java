@@ -5,6 +5,7 @@ import be.ugent.rml.extractor.Extractor;
 import be.ugent.rml.extractor.ReferenceExtractor;
 import be.ugent.rml.store.Quad;
 import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.term.BlankNode;
 import be.ugent.rml.term.Literal;
 import be.ugent.rml.term.NamedNode;
 import be.ugent.rml.term.Term;
@@ -33,6 +34,8 @@ import java.security.SecureRandom;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -241,6 +244,44 @@ public class Utils {
         return list;
     }
 
+    /**
+     * This method returns a description of a node that does not depend on the identifiers of blank nodes,
+     * which change every time a document is parsed: the sorted properties of the node,
+     * where objects that are blank nodes are replaced by their description.
+     * @param store the QuadStore with the node.
+     * @param node the node.
+     * @return the description.
+     */
+    public static String getDescription(QuadStore store, Term node) {
+        return getDescription(store, node, new HashSet<>());
+    }
+
+    private static String getDescription(QuadStore store, Term node, Set<Term> path) {
+        List<String> properties = new ArrayList<>();
+        path.add(node);
+
+        for (Quad quad : store.getQuads(node, null, null)) {
+            Term object = quad.getObject();
+            String value;
+
+            if (!(object instanceof BlankNode)) {
+                value = object.toString();
+            } else if (path.contains(object)) {
+                // A cycle of blank nodes.
+                value = "[...]";
+            } else {
+                value = "[" + getDescription(store, object, path) + "]";
+            }
+
+            properties.add(quad.getPredicate() + " " + value);
+        }
+
+        path.remove(node);
+        Collections.sort(properties);
+
+        return String.join("; ", properties);
+    }
+
     /**
      * Check if conforming to https://tools.ietf.org/html/bcp47#section-2.2.9
      *
@@ -553,6 +594,21 @@ public class Utils {
         return hash;
     }
 
+    /**
+     * This method returns an ExecutorService that starts a new virtual thread for every task.
+     * Virtual threads are available from Java 21, so the ExecutorService is created via reflection.
+     * @return the ExecutorService, or null if virtual threads are not available in the running JVM.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // Java 19 and 20 throw an UnsupportedOperationException (wrapped by invoke) if preview features are not enabled.
+            logger.debug("Virtual threads are not available in Java " + System.getProperty("java.version") + ".");
+            return null;
+        }
+    }
+
     private static String formatToScientific(Double d) {
         BigDecimal input = BigDecimal.valueOf(d).stripTrailingZeros();
         int precision = input.scale() < 0
@@ -34,13 +34,25 @@ public class LocalFileAccess implements Access {
      */
     @Override
     public InputStream getInputStream() throws IOException {
+        return getInputStreamFromFile(getLocalFile());
+    }
+
+    /**
+     * This method returns the size of the local file.
+     * @return the size in bytes, or 0 if the file does not exist.
+     */
+    public long getSize() {
+        return getLocalFile().length();
+    }
+
+    private File getLocalFile() {
         File file = new File(this.path);
 
         if (!file.isAbsolute()) {
             file = getFile(this.basePath, this.path);
         }
 
-        return getInputStreamFromFile(file);
+        return file;
     }
 
     /**
@@ -0,0 +1,81 @@
+package be.ugent.rml.cli;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class splits a CSV file into partitions of about the same size, on record boundaries.
+ * Every partition is written to its own file and starts with the header of the CSV file.
+ * A line break only ends a record if it is not between double quotes, so quoted values with line breaks are not split.
+ */
+public class CSVPartitioner {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * This method splits a CSV file.
+     * @param file the CSV file.
+     * @param partitions the number of partitions.
+     * @param directory the directory in which the partitions are written.
+     * @return the files of the partitions, in the order of the records; a partition can have no records.
+     * @throws IOException
+     */
+    public static List<File> split(File file, int partitions, File directory) throws IOException {
+        List<File> files = new ArrayList<>();
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            boolean quoted = false;
+            int b;
+
+            // The header is the first record.
+            while ((b = in.read()) != -1) {
+                header.write(b);
+
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    break;
+                }
+            }
+
+            long partitionSize = (file.length() - header.size()) / partitions + 1;
+            long written = 0;
+            OutputStream out = null;
+
+            try {
+                for (int i = 0; i < partitions; i++) {
+                    File partition = new File(directory, "partition-" + i + ".csv");
+                    files.add(partition);
+                    out = new BufferedOutputStream(new FileOutputStream(partition), BUFFER_SIZE);
+                    header.writeTo(out);
+
+                    // The last partition takes the remaining records.
+                    long end = i == partitions - 1 ? Long.MAX_VALUE : partitionSize * (i + 1);
+
+                    // The partition ends with the record that reaches its size.
+                    while ((b = in.read()) != -1) {
+                        out.write(b);
+                        written++;
+
+                        if (b == '"') {
+                            quoted = !quoted;
+                        } else if (b == '\n' && !quoted && written >= end) {
+                            break;
+                        }
+                    }
+
+                    out.close();
+                    out = null;
+                }
+            } finally {
+                if (out != null) {
+                    out.close();
+                }
+            }
+        }
+
+        return files;
+    }
+}
@@ -0,0 +1,267 @@
+package be.ugent.rml.cli;
+
+import be.ugent.rml.NAMESPACES;
+import be.ugent.rml.Utils;
+import be.ugent.rml.store.Quad;
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.term.Literal;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * This class executes a mapping with several worker processes on the same machine.
+ * The largest local CSV source of which the records are not used by a parent Triples Map is split into partitions
+ * on record boundaries (see CSVPartitioner) and every worker, a JVM running Main, executes the mapping on one partition.
+ * The parent Triples Maps are not partitioned: every worker reads their sources completely (broadcast),
+ * so joins give the same results as in a single process.
+ * The Triples Maps on other sources are only executed by the first worker.
+ * The outputs of the workers are concatenated in the order of the partitions.
+ */
+public class Coordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(Coordinator.class);
+
+    private final QuadStore rmlStore;
+    private final String basePath;
+    private final int workers;
+
+    /**
+     * @param rmlStore the QuadStore with the RML rules.
+     * @param basePath the base path of the sources, which is also the working directory of the workers.
+     * @param workers the number of worker processes.
+     */
+    public Coordinator(QuadStore rmlStore, String basePath, int workers) {
+        this.rmlStore = rmlStore;
+        this.basePath = basePath;
+        this.workers = workers;
+    }
+
+    /**
+     * This method returns the source that is partitioned:
+     * the largest local CSV file of which the records are only used by Triples Maps that are not a parent.
+     * @param triplesMaps the Triples Maps that are executed, all Triples Maps if it is empty.
+     * @return the value of rml:source, or null if no source can be partitioned.
+     */
+    public String getPartitionedSource(List<Term> triplesMaps) {
+        Set<String> parentSources = new HashSet<>();
+
+        for (Term parent : Utils.getObjectsFromQuads(rmlStore.getQuads(null, new NamedNode(NAMESPACES.RR + "parentTriplesMap"), null))) {
+            parentSources.add(this.getSource(parent));
+        }
+
+        String partitionedSource = null;
+        long partitionedSize = 0;
+
+        for (Term triplesMap : triplesMaps.isEmpty() ? this.getTriplesMaps() : triplesMaps) {
+            String source = this.getSource(triplesMap);
+
+            if (source == null || parentSources.contains(source) || !this.isCSV(triplesMap)) {
+                continue;
+            }
+
+            try {
+                long size = Utils.getFile(source, new File(basePath)).length();
+
+                if (size > partitionedSize) {
+                    partitionedSource = source;
+                    partitionedSize = size;
+                }
+            } catch (IOException e) {
+                // Remote and missing sources are not partitioned.
+            }
+        }
+
+        return partitionedSource;
+    }
+
+    /**
+     * This method splits the source, executes the workers and writes their outputs.
+     * @param triplesMaps the Triples Maps that are executed, all Triples Maps if it is empty.
+     * @param workerArguments the arguments of the workers, without the output file and the Triples Maps.
+     * @param source the source that is partitioned.
+     * @param output the output file, null for stdout.
+     * @param removeDuplicates true if the duplicates of the different workers are removed.
+     * @throws IOException if a worker fails; the output is then not written, because it would miss a partition.
+     * @throws InterruptedException
+     */
+    public void execute(List<Term> triplesMaps, List<String> workerArguments, String source, File output, boolean removeDuplicates) throws IOException, InterruptedException {
+        File directory = Files.createTempDirectory("rmlmapper-workers").toFile();
+
+        try {
+            List<File> partitions = CSVPartitioner.split(Utils.getFile(source, new File(basePath)), workers, directory);
+            List<Process> processes = new ArrayList<>();
+            List<File> outputs = new ArrayList<>();
+
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            String partitionedTriplesMaps = (triplesMaps.isEmpty() ? this.getTriplesMaps() : triplesMaps).stream()
+                    .filter(triplesMap -> source.equals(this.getSource(triplesMap)))
+                    .map(Term::getValue)
+                    .collect(Collectors.joining(","));
+
+            for (int i = 0; i < workers; i++) {
+                File workerOutput = new File(directory, "output-" + i + ".nq");
+                outputs.add(workerOutput);
+
+                List<String> command = new ArrayList<>(Arrays.asList(java, "-cp", System.getProperty("java.class.path"), Main.class.getName()));
+                command.addAll(workerArguments);
+                command.addAll(Arrays.asList("-o", workerOutput.getAbsolutePath(), "-wp", "" + i, source, partitions.get(i).getAbsolutePath()));
+
+                // The Triples Maps on other sources are executed by the first worker.
+                if (i > 0) {
+                    command.addAll(Arrays.asList("-t", partitionedTriplesMaps));
+                } else if (!triplesMaps.isEmpty()) {
+                    command.addAll(Arrays.asList("-t", triplesMaps.stream().map(Term::getValue).collect(Collectors.joining(","))));
+                }
+
+                processes.add(new ProcessBuilder(command).directory(new File(basePath)).inheritIO().start());
+            }
+
+            logger.info("Partitioned " + source + " for " + workers + " workers");
+            List<String> failed = new ArrayList<>();
+
+            for (int i = 0; i < workers; i++) {
+                int exitCode = processes.get(i).waitFor();
+
+                if (exitCode != 0) {
+                    logger.error("Worker " + i + " failed with exit code " + exitCode + ".");
+                    failed.add("" + i);
+                }
+            }
+
+            if (!failed.isEmpty()) {
+                throw new IOException("Worker(s) " + String.join(", ", failed) + " failed. No output is written.");
+            }
+
+            this.merge(outputs, output, removeDuplicates);
+        } finally {
+            for (File file : Objects.requireNonNull(directory.listFiles())) {
+                file.delete();
+            }
+
+            directory.delete();
+        }
+    }
+
+    /**
+     * This method replaces the source that is partitioned by the file of the partition of a worker in the RML rules.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @param source the source that is partitioned.
+     * @param partition the file of the partition.
+     */
+    public static void usePartition(QuadStore rmlStore, String source, String partition) {
+        NamedNode sourcePredicate = new NamedNode(NAMESPACES.RML + "source");
+
+        for (Quad quad : rmlStore.getQuads(null, sourcePredicate, null)) {
+            if (quad.getObject() instanceof Literal && quad.getObject().getValue().equals(source)) {
+                rmlStore.removeQuads(quad.getSubject(), sourcePredicate, quad.getObject(), null);
+                rmlStore.addQuad(quad.getSubject(), sourcePredicate, new Literal(partition), null);
+            }
+        }
+    }
+
+    /**
+     * This method returns the arguments of the command line, without the given options.
+     * @param lineArgs the parsed command line.
+     * @param excluded the options that are not returned.
+     * @return the arguments.
+     */
+    public static List<String> getArguments(CommandLine lineArgs, Option... excluded) {
+        Set<String> excludedOptions = Arrays.stream(excluded).map(Option::getOpt).collect(Collectors.toSet());
+        List<String> arguments = new ArrayList<>();
+
+        for (Option option : lineArgs.getOptions()) {
+            if (!excludedOptions.contains(option.getOpt())) {
+                arguments.add("-" + option.getOpt());
+
+                if (option.getValues() != null) {
+                    arguments.addAll(Arrays.asList(option.getValues()));
+                }
+            }
+        }
+
+        return arguments;
+    }
+
+    /**
+     * This method concatenates the outputs of the workers.
+     * @param outputs the outputs of the workers.
+     * @param output the output file, null for stdout.
+     * @param removeDuplicates true if lines that are written before are skipped.
+     * @throws IOException
+     */
+    private void merge(List<File> outputs, File output, boolean removeDuplicates) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(output == null ? System.out : new FileOutputStream(output), StandardCharsets.UTF_8));
+        Set<String> lines = new HashSet<>();
+
+        try {
+            for (File workerOutput : outputs) {
+                // A worker without quads might not have written its output.
+                if (!workerOutput.exists()) {
+                    continue;
+                }
+
+                try (BufferedReader in = Files.newBufferedReader(workerOutput.toPath(), StandardCharsets.UTF_8)) {
+                    String line;
+
+                    while ((line = in.readLine()) != null) {
+                        if (!removeDuplicates || lines.add(line)) {
+                            out.write(line);
+                            out.write('\n');
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (output == null) {
+                out.flush();
+            } else {
+                out.close();
+            }
+        }
+    }
+
+    private List<Term> getTriplesMaps() {
+        return Utils.getSubjectsFromQuads(rmlStore.getQuads(null, new NamedNode(NAMESPACES.RML + "logicalSource"), null));
+    }
+
+    /**
+     * @return the value of rml:source of the Logical Source of a Triples Map or null if it is not a string.
+     */
+    private String getSource(Term triplesMap) {
+        Term logicalSource = this.getLogicalSource(triplesMap);
+
+        if (logicalSource == null) {
+            return null;
+        }
+
+        List<Term> sources = Utils.getObjectsFromQuads(rmlStore.getQuads(logicalSource, new NamedNode(NAMESPACES.RML + "source"), null));
+
+        if (sources.isEmpty() || !(sources.get(0) instanceof Literal)) {
+            return null;
+        }
+
+        return sources.get(0).getValue();
+    }
+
+    private boolean isCSV(Term triplesMap) {
+        Term logicalSource = this.getLogicalSource(triplesMap);
+
+        return logicalSource != null && !rmlStore.getQuads(logicalSource, new NamedNode(NAMESPACES.RML + "referenceFormulation"), new NamedNode(NAMESPACES.QL + "CSV")).isEmpty();
+    }
+
+    private Term getLogicalSource(Term triplesMap) {
+        List<Term> logicalSources = Utils.getObjectsFromQuads(rmlStore.getQuads(triplesMap, new NamedNode(NAMESPACES.RML + "logicalSource"), null));
+
+        return logicalSources.isEmpty() ? null : logicalSources.get(0);
+    }
+}
@@ -1,6 +1,10 @@
 package be.ugent.rml.cli;
 
+import be.ugent.rml.Checkpoint;
+import be.ugent.rml.ExecutionPlan;
+import be.ugent.rml.ExecutionPlanner;
 import be.ugent.rml.Executor;
+import be.ugent.rml.Initializer;
 import be.ugent.rml.NAMESPACES;
 import be.ugent.rml.Utils;
 import be.ugent.rml.conformer.MappingConformer;
@@ -11,10 +15,18 @@ import be.ugent.rml.records.JSONOptRecordFactory;
 import be.ugent.rml.records.RecordsFactory;
 import be.ugent.rml.records.ReferenceFormulationRecordFactory;
 import be.ugent.rml.records.XMLSAXRecordFactory;
+import be.ugent.rml.store.DeduplicatingSink;
+import be.ugent.rml.store.IncrementalSink;
+import be.ugent.rml.store.NQuadsSink;
+import be.ugent.rml.store.NTriplesSink;
+import be.ugent.rml.store.QuadSink;
 import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.store.QuadStoreSink;
+import be.ugent.rml.store.QueuedQuadSink;
 import be.ugent.rml.store.RDF4JRepository;
 import be.ugent.rml.store.QuadStoreFactory;
 import be.ugent.rml.store.RDF4JStore;
+import be.ugent.rml.store.RecordState;
 import be.ugent.rml.store.SimpleQuadStore;
 import be.ugent.rml.term.NamedNode;
 import be.ugent.rml.term.Term;
@@ -32,6 +44,7 @@ import org.slf4j.MarkerFactory;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -42,7 +55,10 @@ public class Main {
     private static final Marker fatal = MarkerFactory.getMarker("FATAL");
 
     public static void main(String[] args) {
-        main(args, System.getProperty("user.dir"));
+        // A non-zero exit code tells scripts and the Coordinator (for worker processes) that the mapping failed.
+        if (!run(args, System.getProperty("user.dir"))) {
+            System.exit(1);
+        }
     }
 
     /**
@@ -51,6 +67,16 @@ public class Main {
      * @param basePath the basePath used during the execution.
      */
     public static void main(String[] args, String basePath) {
+        run(args, basePath);
+    }
+
+    /**
+     * This method executes the CLI.
+     * @param args     the CLI arguments
+     * @param basePath the basePath used during the execution.
+     * @return false if the mapping failed.
+     */
+    private static boolean run(String[] args, String basePath) {
         Options options = new Options();
         Option mappingdocOption = Option.builder("m")
                 .longOpt("mappingfile")
@@ -104,7 +130,7 @@ public class Main {
                 .build();
         Option serializationFormatOption = Option.builder("s")
                 .longOpt("serialization")
-                .desc("serialization format (nquads (default), turtle, trig, trix, jsonld, hdt)")
+                .desc("serialization format (nquads (default), ntriples, turtle, trig, trix, jsonld, hdt)")
                 .hasArg()
                 .build();
         Option jdbcDSNOption = Option.builder("dsn")
@@ -160,6 +186,113 @@ public class Main {
                 .desc("Mapping execution is ordered by logical source and caches are cleaned after each logical source." +
                         "This option improves memory consumption and it is advisable if no join condition exist among mappings.")
                 .build();
+        Option sortMergeJoinOption = Option.builder("smj")
+                .longOpt("sortMergeJoin")
+                .desc("Join conditions are evaluated via an external sort-merge join: child and parent records are sorted " +
+                        "on the join key in temporary files, instead of keeping parent records and subjects in memory.")
+                .build();
+        Option joinMemoryOption = Option.builder("jm")
+                .longOpt("joinMemory")
+                .desc("If -smj is set it is used as memory budget (in MB) for each side of a join before it is written " +
+                        "to a temporary file (default 256), otherwise it is ignored.")
+                .hasArg()
+                .build();
+        Option sortedSourcesOption = Option.builder("ss")
+                .longOpt("sortedSources")
+                .desc("If -smj is set, comma-separated list of sources (as in rml:source) whose records are already " +
+                        "ordered on the join key in lexicographic string order (e.g., 10 before 2), so they are not sorted, " +
+                        "otherwise it is ignored. If they turn out not to be ordered, they are sorted on disk.")
+                .hasArg()
+                .build();
+        Option parallelOption = Option.builder("par")
+                .longOpt("parallel")
+                .desc("Number of threads used to process the records of each Triples Map in parallel (default 1).")
+                .hasArg()
+                .build();
+        Option subjectCacheOption = Option.builder("sc")
+                .longOpt("subjectCache")
+                .desc("Maximum number of subjects cached per parent Triples Map (default 0, i.e., all subjects are cached). " +
+                        "Evicted subjects are generated again when they are needed.")
+                .hasArg()
+                .build();
+        Option deterministicOption = Option.builder("det")
+                .longOpt("deterministic")
+                .desc("If -par is set, the quads are generated in the same order as with a single thread, " +
+                        "otherwise it is ignored.")
+                .build();
+        Option planOption = Option.builder("pln")
+                .longOpt("plan")
+                .desc("Choose the execution order, join strategies, subject cache and parallelism from statistics of the sources. " +
+                        "The options -ord, -smj, -jm, -ss, -sc, -par and -det that are set override the plan.")
+                .build();
+        Option explainOption = Option.builder("exp")
+                .longOpt("explain")
+                .desc("Print the plan that is chosen by -pln and the statistics of the sources, without executing the mapping.")
+                .build();
+        Option pipelineOption = Option.builder("pl")
+                .longOpt("pipeline")
+                .desc("Execute the mapping as a pipeline of stages connected by bounded queues: the records of CSV sources " +
+                        "are read in a separate thread and the quads are written to the output in a separate thread. " +
+                        "The records are processed by the threads set with -par.")
+                .build();
+        Option pipelineQueueOption = Option.builder("plq")
+                .longOpt("pipelineQueue")
+                .desc("If -pl is set it is used as capacity of the queues between the stages, in chunks of records " +
+                        "and batches of quads (default 16), otherwise it is ignored.")
+                .hasArg()
+                .build();
+        Option duplicatesFilterOption = Option.builder("df")
+                .longOpt("duplicatesFilter")
+                .desc("Remove duplicates while the quads are generated, with a Bloom filter with the given false positive rate " +
+                        "(e.g., 0.001), i.e., the probability that a quad that is not a duplicate is removed.")
+                .hasArg()
+                .build();
+        Option duplicatesFilterMemoryOption = Option.builder("dfm")
+                .longOpt("duplicatesFilterMemory")
+                .desc("If -df is set it is used as maximum memory (in MB) of the Bloom filter (default 256), otherwise it is ignored.")
+                .hasArg()
+                .build();
+        Option stateOption = Option.builder("st")
+                .longOpt("state")
+                .desc("Path to the state file of incremental re-mapping: only the quads that are added since the execution " +
+                        "with the same state file are output, and the state file is replaced.")
+                .hasArg()
+                .build();
+        Option removalsOption = Option.builder("rs")
+                .longOpt("removals")
+                .desc("If -st is set it is used as path to the file (N-Quads) with the quads that are removed since " +
+                        "the previous execution, otherwise it is ignored.")
+                .hasArg()
+                .build();
+        Option checkpointOption = Option.builder("chk")
+                .longOpt("checkpoint")
+                .desc("Path to a checkpoint file to which the progress of the mapping is written periodically, " +
+                        "if the quads are written directly to the output file (nquads or ntriples).")
+                .hasArg()
+                .build();
+        Option checkpointIntervalOption = Option.builder("chki")
+                .longOpt("checkpointInterval")
+                .desc("If -chk is set it is used as minimum time (in seconds) between two checkpoints (default 60), otherwise it is ignored.")
+                .hasArg()
+                .build();
+        Option resumeOption = Option.builder("res")
+                .longOpt("resume")
+                .desc("If -chk is set and the checkpoint file exists, the mapping continues after the checkpoint " +
+                        "and the output file is continued, otherwise it is ignored. The mapping fails if the mapping " +
+                        "or the options -t, -ord and -pln differ from the execution that wrote the checkpoint.")
+                .build();
+        Option workersOption = Option.builder("w")
+                .longOpt("workers")
+                .desc("Number of worker processes (default 1). The largest local CSV source that is not used by a parent " +
+                        "Triples Map is split into a partition per worker and the outputs of the workers are concatenated. " +
+                        "Only for nquads and ntriples output to a file or stdout.")
+                .hasArg()
+                .build();
+        Option workerPartitionOption = Option.builder("wp")
+                .longOpt("workerPartition")
+                .desc("Set by -w for the workers: the index of the worker, the partitioned source and the file of its partition.")
+                .numberOfArgs(3)
+                .build();
         Option baseIRIOption = Option.builder("iri")
                 .longOpt("baseIRI")
                 .desc("Specify a base IRI for relative IRIs.")
@@ -203,6 +336,25 @@ public class Main {
         options.addOption(incrementalUpdateOption);
         options.addOption(noCacheOption);
         options.addOption(orderedOption);
+        options.addOption(sortMergeJoinOption);
+        options.addOption(joinMemoryOption);
+        options.addOption(sortedSourcesOption);
+        options.addOption(parallelOption);
+        options.addOption(subjectCacheOption);
+        options.addOption(deterministicOption);
+        options.addOption(planOption);
+        options.addOption(explainOption);
+        options.addOption(pipelineOption);
+        options.addOption(pipelineQueueOption);
+        options.addOption(duplicatesFilterOption);
+        options.addOption(duplicatesFilterMemoryOption);
+        options.addOption(stateOption);
+        options.addOption(removalsOption);
+        options.addOption(checkpointOption);
+        options.addOption(checkpointIntervalOption);
+        options.addOption(resumeOption);
+        options.addOption(workersOption);
+        options.addOption(workerPartitionOption);
         options.addOption(baseIRIOption);
         options.addOption(baseIRIPrefixOption);
         options.addOption(emptyStringsOption);
@@ -223,7 +375,7 @@ public class Main {
 
             if (checkOptionPresence(helpOption, lineArgs, configFile)) {
                 printHelp(options);
-                return;
+                return true;
             }
 
             if (checkOptionPresence(verboseOption, lineArgs, configFile)) {
@@ -270,6 +422,11 @@ public class Main {
                     logger.error(fatal, "Failed to make mapping file conformant to RML spec.", e);
                 }
 
+                // A worker executes the mapping on its partition of the partitioned source.
+                String[] workerPartition = lineArgs.getOptionValues(workerPartitionOption.getOpt());
+                if (workerPartition != null)
+                    Coordinator.usePartition(rmlStore, workerPartition[1], workerPartition[2]);
+
                 Map<String, ReferenceFormulationRecordFactory> map = new HashMap<>();
                 if (checkOptionPresence(saxOption, lineArgs, configFile))
                     map.put(NAMESPACES.QL + "XPath", new XMLSAXRecordFactory());
@@ -284,8 +441,8 @@ public class Main {
                 boolean tripleStore = checkOptionPresence(triplesStoreOption, lineArgs, configFile)
                         && checkOptionPresence(repositoryIdOption, lineArgs, configFile);
 
-                if (outputFormat == null || outputFormat.equals("nquads") || outputFormat.equals("hdt")) {
-                    outputStore = new SimpleQuadStore();
+                if (outputFormat == null || outputFormat.equals("nquads") || outputFormat.equals("ntriples") || outputFormat.equals("hdt")) {
+                    outputStore = new SimpleQuadStore(checkOptionPresence(removeduplicatesOption, lineArgs, configFile));
                 } else {
                     outputStore = new RDF4JStore();
                 }
@@ -328,7 +485,7 @@ public class Main {
                                 break;
                             default:
                                 logger.error("Unknown metadata detail level option. Use the -h flag for more info.");
-                                return;
+                                return false;
                         }
                         metadataGenerator = new MetadataGenerator(
                                 detailLevel,
@@ -377,12 +534,6 @@ public class Main {
                 else
                     baseIRI = Utils.getBaseDirectiveTurtle(is);
 
-                executor = new Executor(rmlStore, factory, functionLoader, outputStore, baseIRI);
-                if (checkOptionPresence(noCacheOption, lineArgs, configFile))
-                    executor.setNoCache(true);
-                if (checkOptionPresence(orderedOption, lineArgs, configFile))
-                    executor.setOrdered(true);
-
                 List<Term> triplesMaps = new ArrayList<>();
 
                 String tOptionValue = getPriorityOptionValue(triplesmapsOption, lineArgs, configFile);
@@ -393,6 +544,137 @@ public class Main {
                     });
                 }
 
+                // The execution plan is chosen from statistics of the sources, before the mapping is executed.
+                Initializer initializer = new Initializer(rmlStore, functionLoader);
+                ExecutionPlan plan = null;
+                if (checkOptionPresence(planOption, lineArgs, configFile) || checkOptionPresence(explainOption, lineArgs, configFile)) {
+                    plan = new ExecutionPlanner(initializer, factory).plan(triplesMaps);
+                    if (checkOptionPresence(explainOption, lineArgs, configFile)) {
+                        System.out.print(plan);
+                        return true;
+                    }
+                    logger.info("Execution plan:\n" + plan);
+                }
+
+                // The mapping is executed by worker processes, every worker on a partition of a source.
+                String outputFile = getPriorityOptionValue(outputfileOption, lineArgs, configFile);
+                int workers = 1;
+                if (checkOptionPresence(workersOption, lineArgs, configFile) && workerPartition == null)
+                    workers = Integer.parseInt(getPriorityOptionValue(workersOption, lineArgs, configFile));
+                if (workers > 1) {
+                    List<Term> selectedTriplesMaps = new ArrayList<>();
+                    String triplesMapsValue = getPriorityOptionValue(triplesmapsOption, lineArgs, configFile);
+                    if (triplesMapsValue != null) {
+                        for (String iri : triplesMapsValue.split(","))
+                            selectedTriplesMaps.add(new NamedNode(iri));
+                    }
+                    Coordinator coordinator = new Coordinator(rmlStore, basePath, workers);
+                    String source = coordinator.getPartitionedSource(selectedTriplesMaps);
+
+                    if (outputFile == null || tripleStore || metadataGenerator != null
+                            || !(outputFormat == null || outputFormat.equals("nquads") || outputFormat.equals("ntriples"))) {
+                        logger.warn("Workers are only used for nquads and ntriples output to a file or stdout. The mapping is executed in a single process.");
+                    } else if (checkOptionPresence(stateOption, lineArgs, configFile) || checkOptionPresence(checkpointOption, lineArgs, configFile)) {
+                        logger.warn("Workers are not used for incremental re-mapping and checkpoints. The mapping is executed in a single process.");
+                    } else if (source == null) {
+                        logger.warn("No local CSV source can be partitioned. The mapping is executed in a single process.");
+                    } else {
+                        List<String> workerArgs = Coordinator.getArguments(lineArgs, workersOption, outputfileOption, triplesmapsOption);
+                        // If a worker fails, an exception is thrown and no output is written.
+                        coordinator.execute(selectedTriplesMaps, workerArgs, source,
+                                outputFile.equals("stdout") ? null : getOutputFile(outputFile),
+                                checkOptionPresence(removeduplicatesOption, lineArgs, configFile));
+                        return true;
+                    }
+                }
+
+                executor = new Executor(initializer, factory, outputStore, baseIRI);
+                // Only the positions of the records of the partition differ from the other workers.
+                if (workerPartition != null)
+                    executor.setBlankNodePrefix("w" + workerPartition[0] + "_", workerPartition[2]);
+                if (plan != null)
+                    plan.apply(executor);
+                if (checkOptionPresence(noCacheOption, lineArgs, configFile))
+                    executor.setNoCache(true);
+                if (checkOptionPresence(orderedOption, lineArgs, configFile))
+                    executor.setOrdered(true);
+                // Quads are written while they are generated if they do not need to be kept:
+                // no duplicates removal, no metadata, no triples store and a line-based output format.
+                NQuadsSink outputSink = null;
+                // The progress is written to a checkpoint, from which the mapping and its output file can be continued.
+                Checkpoint checkpoint = null;
+                if (checkOptionPresence(checkpointOption, lineArgs, configFile)
+                        && (checkOptionPresence(stateOption, lineArgs, configFile) || checkOptionPresence(duplicatesFilterOption, lineArgs, configFile)
+                        || checkOptionPresence(sortMergeJoinOption, lineArgs, configFile) || checkOptionPresence(pipelineOption, lineArgs, configFile)
+                        || (plan != null && !plan.getSortMergeJoinParents().isEmpty()))) {
+                    logger.warn("Checkpoints are not written with -st, -df, -smj (also when chosen by -pln) or -pl, as their state is only complete at the end of the mapping.");
+                } else if (checkOptionPresence(checkpointOption, lineArgs, configFile)) {
+                    long interval = Checkpoint.DEFAULT_INTERVAL;
+                    if (checkOptionPresence(checkpointIntervalOption, lineArgs, configFile))
+                        interval = Long.parseLong(getPriorityOptionValue(checkpointIntervalOption, lineArgs, configFile)) * 1000;
+                    checkpoint = new Checkpoint(getOutputFile(getPriorityOptionValue(checkpointOption, lineArgs, configFile)), interval);
+                    if (checkOptionPresence(resumeOption, lineArgs, configFile) && !checkpoint.load())
+                        logger.info("No checkpoint found. The mapping is started from the beginning.");
+                    executor.setCheckpoint(checkpoint);
+                }
+                if (outputFile != null && !tripleStore && metadataGenerator == null
+                        && !checkOptionPresence(removeduplicatesOption, lineArgs, configFile)
+                        && (outputFormat == null || outputFormat.equals("nquads") || outputFormat.equals("ntriples"))) {
+                    outputSink = createOutputSink(outputFile, outputFormat, checkpoint);
+                    executor.setQuadSink(outputSink);
+                }
+                // The sinks in front of the output sink or store, of which the first one is closed after the execution.
+                QuadSink chainedSink = null;
+                // Only the changes since the previous execution reach the output sink or store.
+                RecordState recordState = null;
+                if (checkOptionPresence(stateOption, lineArgs, configFile)) {
+                    String removalsFile = getPriorityOptionValue(removalsOption, lineArgs, configFile);
+                    Path state = getOutputFile(getPriorityOptionValue(stateOption, lineArgs, configFile)).toPath();
+                    chainedSink = new IncrementalSink(outputSink != null ? outputSink : new QuadStoreSink(outputStore),
+                            removalsFile == null ? null : new NQuadsSink(getOutputFile(removalsFile).toPath()), state);
+                    // Records that did not change are not mapped again, unless the metadata needs all their quads.
+                    if (metadataGenerator == null) {
+                        recordState = new RecordState(state.resolveSibling(state.getFileName() + ".records"));
+                        executor.setRecordState(recordState);
+                    }
+                }
+                // Duplicates are removed with bounded memory before the quads reach the output sink or store.
+                if (checkOptionPresence(duplicatesFilterOption, lineArgs, configFile)) {
+                    long memory = DeduplicatingSink.DEFAULT_MEMORY;
+                    if (checkOptionPresence(duplicatesFilterMemoryOption, lineArgs, configFile))
+                        memory = Long.parseLong(getPriorityOptionValue(duplicatesFilterMemoryOption, lineArgs, configFile)) * 1024 * 1024;
+                    if (chainedSink == null)
+                        chainedSink = outputSink != null ? outputSink : new QuadStoreSink(outputStore);
+                    chainedSink = new DeduplicatingSink(chainedSink,
+                            Double.parseDouble(getPriorityOptionValue(duplicatesFilterOption, lineArgs, configFile)), memory);
+                }
+                // The quads are written by a separate thread, which makes the other stages wait if the output is slow.
+                if (checkOptionPresence(pipelineOption, lineArgs, configFile)) {
+                    int capacity = QueuedQuadSink.DEFAULT_CAPACITY;
+                    if (checkOptionPresence(pipelineQueueOption, lineArgs, configFile))
+                        capacity = Integer.parseInt(getPriorityOptionValue(pipelineQueueOption, lineArgs, configFile));
+                    if (chainedSink == null)
+                        chainedSink = outputSink != null ? outputSink : new QuadStoreSink(outputStore);
+                    chainedSink = new QueuedQuadSink(chainedSink, capacity);
+                    executor.setReadAhead(capacity);
+                }
+                if (chainedSink != null)
+                    executor.setQuadSink(chainedSink);
+                if (checkOptionPresence(sortMergeJoinOption, lineArgs, configFile)) {
+                    executor.setSortMergeJoin(true);
+                    if (checkOptionPresence(joinMemoryOption, lineArgs, configFile))
+                        executor.setJoinMemoryBudget(Long.parseLong(getPriorityOptionValue(joinMemoryOption, lineArgs, configFile)) * 1024 * 1024);
+                    if (checkOptionPresence(sortedSourcesOption, lineArgs, configFile))
+                        executor.setSortedSources(new HashSet<>(Arrays.asList(getPriorityOptionValue(sortedSourcesOption, lineArgs, configFile).split(","))));
+                }
+                if (checkOptionPresence(subjectCacheOption, lineArgs, configFile))
+                    executor.setSubjectCacheCapacity(Integer.parseInt(getPriorityOptionValue(subjectCacheOption, lineArgs, configFile)));
+                if (checkOptionPresence(parallelOption, lineArgs, configFile)) {
+                    executor.setParallelism(Integer.parseInt(getPriorityOptionValue(parallelOption, lineArgs, configFile)));
+                    if (checkOptionPresence(deterministicOption, lineArgs, configFile))
+                        executor.setDeterministic(true);
+                }
+
                 if (metadataGenerator != null) {
                     metadataGenerator.preMappingGeneration(triplesMaps.isEmpty() ?
                             executor.getTriplesMaps() : triplesMaps, rmlStore);
@@ -416,9 +698,22 @@ public class Main {
                         writeOutput(metadataGenerator.getResult(), metadataFile, outputFormat);
                     }
 
-                    String outputFile = getPriorityOptionValue(outputfileOption, lineArgs, configFile);
+                    if (chainedSink != null) {
+                        // The output sink is closed as well.
+                        chainedSink.close();
+                    }
 
-                    if (result.isEmpty()) {
+                    if (recordState != null)
+                        recordState.close();
+
+                    if (outputSink != null) {
+                        if (chainedSink == null)
+                            outputSink.close();
+                        logger.info(outputSink.getNumberOfQuads() + " quads were generated");
+                        // The mapping is done, so there is nothing to resume.
+                        if (checkpoint != null)
+                            checkpoint.delete();
+                    } else if (result.isEmpty()) {
                         logger.info("No results!");
                         // Write even if no results
                     }
@@ -431,7 +726,7 @@ public class Main {
                             result.addNamespace("base", baseIRI);
 
                     //If --inc option is set, triples are discarded once written to the db
-                    if (checkOptionPresence(outputfileOption, lineArgs, configFile) &&
+                    if (checkOptionPresence(outputfileOption, lineArgs, configFile) && outputSink == null &&
                             !checkOptionPresence(incrementalUpdateOption, lineArgs, configFile))
                         //Write quads
                         writeOutput(result, outputFile, outputFormat);
@@ -442,16 +737,21 @@ public class Main {
                 } catch (Exception e) {
                     logger.error(e.getMessage());
                     e.printStackTrace();
+                    return false;
                 }
             }
         } catch (ParseException exp) {
             // oops, something went wrong
             logger.error("Parsing failed. Reason: " + exp.getMessage());
             printHelp(options);
+            return false;
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
             e.printStackTrace();
+            return false;
         }
+
+        return true;
     }
 
     private static boolean checkOptionPresence(Option option, CommandLine lineArgs, Properties properties) {
@@ -491,6 +791,48 @@ public class Main {
         ((ch.qos.logback.classic.Logger) root).setLevel(level);
     }
 
+    /**
+     * @return the output file, relative to the working directory if the path is relative.
+     */
+    private static File getOutputFile(String outputFile) {
+        File targetFile = new File(outputFile);
+
+        if (!targetFile.isAbsolute()) {
+            targetFile = new File(System.getProperty("user.dir") + "/" + outputFile);
+        }
+
+        return targetFile;
+    }
+
+    /**
+     * This method creates a sink that writes the quads to the output file while they are generated.
+     * @param outputFile the path of the output file or stdout.
+     * @param format nquads (default) or ntriples.
+     * @param checkpoint the checkpoint of which the output file is continued if it is resumed, can be null.
+     * @return the sink.
+     * @throws IOException
+     */
+    private static NQuadsSink createOutputSink(String outputFile, String format, Checkpoint checkpoint) throws IOException {
+        boolean ntriples = format != null && format.equals("ntriples");
+
+        if (outputFile.equals("stdout")) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), NQuadsSink.BUFFER_SIZE);
+
+            return ntriples ? new NTriplesSink(out) : new NQuadsSink(out);
+        }
+
+        File targetFile = getOutputFile(outputFile);
+
+        logger.info("Writing quads to " + targetFile.getPath() + " while they are generated...");
+
+        if (checkpoint != null && checkpoint.isResumed()) {
+            return ntriples ? new NTriplesSink(targetFile.toPath(), checkpoint.getLength(), checkpoint.getNumberOfQuads())
+                    : new NQuadsSink(targetFile.toPath(), checkpoint.getLength(), checkpoint.getNumberOfQuads());
+        }
+
+        return ntriples ? new NTriplesSink(targetFile.toPath()) : new NQuadsSink(targetFile.toPath());
+    }
+
     private static void writeOutput(QuadStore store, String outputFile, String format) {
         boolean hdt = format != null && format.equals("hdt");
 
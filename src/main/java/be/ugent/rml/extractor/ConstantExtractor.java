@@ -4,22 +4,27 @@ import be.ugent.rml.functions.SingleRecordFunctionExecutor;
 import be.ugent.rml.records.Record;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class ConstantExtractor implements Extractor, SingleRecordFunctionExecutor {
 
     private String constant;
+    // the result is the same for every record, so it is allocated once.
+    private List<Object> result;
 
     public ConstantExtractor(String constant) {
         this.constant = constant;
+        this.result = Collections.singletonList(constant);
     }
 
+    /**
+     * This method returns the constant, which is shared by all records and cannot be modified.
+     * @param record the record, which is not used.
+     * @return a list with the constant.
+     */
     @Override
     public List<Object> extract(Record record) {
-        ArrayList<Object> result = new ArrayList<>();
-        result.add(constant);
-
         return result;
     }
 
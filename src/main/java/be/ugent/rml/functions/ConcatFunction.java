@@ -26,6 +26,10 @@ public class ConcatFunction implements SingleRecordFunctionExecutor {
         this(extractors, false);
     }
 
+    public List<Extractor> getExtractors() {
+        return extractors;
+    }
+
     @Override
     public List<?> execute(Record record) {
        return concat(record);
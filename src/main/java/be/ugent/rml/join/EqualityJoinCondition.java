@@ -0,0 +1,72 @@
+package be.ugent.rml.join;
+
+import be.ugent.rml.extractor.ReferenceExtractor;
+import be.ugent.rml.functions.MultipleRecordsFunctionExecutor;
+import be.ugent.rml.records.Record;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents a join condition that is a plain equality between a reference of the child record
+ * and a reference of the parent record (rr:joinCondition with rr:child and rr:parent).
+ * It behaves as the idlab-fn:equal function: only the first value of each reference is compared
+ * and a missing value never matches.
+ * Because the references are known, the parent records can be indexed on the value of the parent reference.
+ */
+public class EqualityJoinCondition implements MultipleRecordsFunctionExecutor {
+
+    private final ReferenceExtractor parent;
+    private final ReferenceExtractor child;
+
+    public EqualityJoinCondition(String parentReference, String childReference) {
+        this.parent = new ReferenceExtractor(parentReference);
+        this.child = new ReferenceExtractor(childReference);
+    }
+
+    @Override
+    public Object execute(Map<String, Record> records) {
+        String parentValue = getParentValue(records.get("parent"));
+
+        return parentValue != null && parentValue.equals(getChildValue(records.get("child")));
+    }
+
+    /**
+     * This method returns the value used to join for a parent record.
+     * @param record the parent record.
+     * @return the value of the parent reference or null if there is no value.
+     */
+    public String getParentValue(Record record) {
+        return getJoinValue(parent.extract(record));
+    }
+
+    /**
+     * This method returns the value used to join for a child record.
+     * @param record the child record.
+     * @return the value of the child reference or null if there is no value.
+     */
+    public String getChildValue(Record record) {
+        return getJoinValue(child.extract(record));
+    }
+
+    public String getParentReference() {
+        return parent.reference;
+    }
+
+    public String getChildReference() {
+        return child.reference;
+    }
+
+    private static String getJoinValue(List<Object> values) {
+        if (values == null || values.isEmpty() || values.get(0) == null) {
+            return null;
+        } else {
+            return values.get(0).toString();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "child(" + child.reference + ") = parent(" + parent.reference + ")";
+    }
+}
@@ -0,0 +1,315 @@
+package be.ugent.rml.join;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * This class sorts join entries on their key without keeping all of them in memory.
+ * Entries are buffered until the memory budget is reached; the buffer is then sorted and written to a temporary run file.
+ * When all entries are added, the runs are merged while they are read.
+ * If the entries are declared to be added in sorted order, they are written directly to a single run
+ * and it is checked that they are indeed ordered. If they are not, that run is kept as the first sorted run
+ * and the remaining entries are sorted as if they were not declared as sorted.
+ */
+public class ExternalSorter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalSorter.class);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final long memoryBudget;
+    private boolean presorted;
+    private final ArrayList<JoinEntry> buffer;
+    private final List<File> runs;
+    private final List<RunReader> readers;
+    private long bufferSize;
+    private DataOutputStream presortedRun;
+    private JoinEntry last;
+    private long size;
+
+    /**
+     * @param memoryBudget the number of bytes that can be used to buffer entries before they are written to disk.
+     * @param presorted true if the entries are added in sorted order.
+     */
+    public ExternalSorter(long memoryBudget, boolean presorted) {
+        this.memoryBudget = memoryBudget;
+        this.presorted = presorted;
+        this.buffer = new ArrayList<>();
+        this.runs = new ArrayList<>();
+        this.readers = new ArrayList<>();
+    }
+
+    public void add(JoinEntry entry) throws IOException {
+        size++;
+
+        if (presorted && last != null && last.compareTo(entry) > 0) {
+            logger.warn("The entries are declared as sorted, but they are not ordered on the join key (in string order). "
+                    + "The remaining entries are sorted on disk.");
+            endRun(presortedRun);
+            presortedRun = null;
+            presorted = false;
+        }
+
+        if (presorted) {
+            if (presortedRun == null) {
+                presortedRun = createRun();
+            }
+
+            writeEntry(presortedRun, entry);
+            last = entry;
+        } else {
+            buffer.add(entry);
+            bufferSize += entry.getEstimatedSize();
+
+            if (bufferSize >= memoryBudget) {
+                spill();
+            }
+        }
+    }
+
+    /**
+     * @return the number of added entries.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return true if the entries are declared as sorted and they were added in sorted order so far.
+     */
+    public boolean isPresorted() {
+        return presorted;
+    }
+
+    /**
+     * @return the number of run files that were written.
+     */
+    public int getNumberOfRuns() {
+        return runs.size();
+    }
+
+    /**
+     * This method returns the entries ordered on their key.
+     * No entries can be added afterwards.
+     * @return an iterator over the sorted entries.
+     * @throws IOException
+     */
+    public Iterator<JoinEntry> iterator() throws IOException {
+        if (presorted) {
+            if (presortedRun == null) {
+                return Collections.emptyIterator();
+            }
+
+            endRun(presortedRun);
+            presortedRun = null;
+
+            return openRun(runs.get(0));
+        }
+
+        if (runs.isEmpty()) {
+            Collections.sort(buffer);
+
+            return buffer.iterator();
+        }
+
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+
+        logger.debug("Merging " + runs.size() + " sorted runs of " + size + " join entries.");
+
+        List<RunReader> runReaders = new ArrayList<>();
+
+        for (File run : runs) {
+            runReaders.add(openRun(run));
+        }
+
+        return new MergeIterator(runReaders);
+    }
+
+    /**
+     * This method closes and removes all temporary files.
+     */
+    @Override
+    public void close() {
+        for (RunReader reader : readers) {
+            reader.close();
+        }
+
+        if (presortedRun != null) {
+            try {
+                presortedRun.close();
+            } catch (IOException e) {
+                logger.warn("Run file could not be closed.", e);
+            }
+        }
+
+        for (File run : runs) {
+            if (!run.delete()) {
+                logger.warn("Run file " + run + " could not be removed.");
+            }
+        }
+
+        buffer.clear();
+        readers.clear();
+        runs.clear();
+    }
+
+    private void spill() throws IOException {
+        Collections.sort(buffer);
+
+        DataOutputStream out = createRun();
+
+        for (JoinEntry entry : buffer) {
+            writeEntry(out, entry);
+        }
+
+        endRun(out);
+        logger.debug("Wrote sorted run " + runs.size() + " with " + buffer.size() + " join entries.");
+
+        buffer.clear();
+        bufferSize = 0;
+    }
+
+    private DataOutputStream createRun() throws IOException {
+        File run = File.createTempFile("rmlmapper-join-", ".run");
+        run.deleteOnExit();
+        runs.add(run);
+
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE));
+    }
+
+    private static void writeEntry(DataOutputStream out, JoinEntry entry) throws IOException {
+        out.writeBoolean(true);
+        entry.write(out);
+    }
+
+    private static void endRun(DataOutputStream out) throws IOException {
+        // Every entry is preceded by true, so false marks the end of the run.
+        out.writeBoolean(false);
+        out.close();
+    }
+
+    private RunReader openRun(File run) throws IOException {
+        RunReader reader = new RunReader(run);
+        readers.add(reader);
+
+        return reader;
+    }
+
+    /**
+     * Reads the entries of a single run file.
+     */
+    private static class RunReader implements Iterator<JoinEntry> {
+        private final DataInputStream in;
+        private JoinEntry next;
+        private boolean closed;
+
+        RunReader(File run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), BUFFER_SIZE));
+            advance();
+        }
+
+        private void advance() throws IOException {
+            if (in.readBoolean()) {
+                next = JoinEntry.read(in);
+            } else {
+                next = null;
+                close();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public JoinEntry next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+
+            JoinEntry current = next;
+
+            try {
+                advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return current;
+        }
+
+        JoinEntry peek() {
+            return next;
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    logger.warn("Run file could not be closed.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges sorted runs into a single sorted sequence.
+     */
+    private static class MergeIterator implements Iterator<JoinEntry> {
+        private final PriorityQueue<RunReader> queue;
+
+        MergeIterator(List<RunReader> runReaders) {
+            this.queue = new PriorityQueue<>(Math.max(1, runReaders.size()), (a, b) -> a.peek().compareTo(b.peek()));
+
+            for (RunReader reader : runReaders) {
+                if (reader.hasNext()) {
+                    queue.add(reader);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public JoinEntry next() {
+            RunReader reader = queue.poll();
+
+            if (reader == null) {
+                throw new NoSuchElementException();
+            }
+
+            JoinEntry entry = reader.next();
+
+            if (reader.hasNext()) {
+                queue.add(reader);
+            }
+
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package be.ugent.rml.join;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class represents a record of one side of a sort-merge join:
+ * the values of the join references (the key) and the serialized terms that are needed to generate the triples (the payload).
+ * Entries are ordered on their key, value by value.
+ */
+public class JoinEntry implements Comparable<JoinEntry> {
+
+    private final String[] key;
+    private final byte[] payload;
+
+    public JoinEntry(String[] key, byte[] payload) {
+        this.key = key;
+        this.payload = payload;
+    }
+
+    public String[] getKey() {
+        return key;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return an estimation of the number of bytes this entry uses on the heap.
+     */
+    long getEstimatedSize() {
+        long size = 64 + payload.length;
+
+        for (String value : key) {
+            size += 48 + 2L * value.length();
+        }
+
+        return size;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(key.length);
+
+        for (String value : key) {
+            TermSerializer.writeString(out, value);
+        }
+
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    static JoinEntry read(DataInput in) throws IOException {
+        String[] key = new String[in.readInt()];
+
+        for (int i = 0; i < key.length; i++) {
+            key[i] = TermSerializer.readString(in);
+        }
+
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+
+        return new JoinEntry(key, payload);
+    }
+
+    @Override
+    public int compareTo(JoinEntry o) {
+        return compareKeys(key, o.key);
+    }
+
+    static int compareKeys(String[] a, String[] b) {
+        for (int i = 0; i < a.length && i < b.length; i++) {
+            int result = a[i].compareTo(b[i]);
+
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        return Integer.compare(a.length, b.length);
+    }
+}
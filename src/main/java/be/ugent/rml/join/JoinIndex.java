@@ -0,0 +1,207 @@
+package be.ugent.rml.join;
+
+import be.ugent.rml.functions.MultipleRecordsFunctionExecutor;
+import be.ugent.rml.records.Record;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is a hash index over the records of a parent Triples Map.
+ * The records are indexed on the values of the parent references of one or more equality join conditions.
+ * When there are multiple conditions, the key is the tuple of the values, so that a single probe
+ * returns the records that satisfy all conditions, without intersecting the matches of every condition.
+ * For every key the index keeps the positions of the records with that key,
+ * in the order in which the records appear in the data source.
+ * The index only depends on the parent references, so it is shared by all referencing object maps that join
+ * the parent on the same references, also when their child references differ: the child references are given when it is probed.
+ */
+public class JoinIndex {
+
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final Map<Object, int[]> index;
+
+    private JoinIndex(Map<Object, int[]> index) {
+        this.index = index;
+    }
+
+    /**
+     * This method builds an index for the parent records of a join condition.
+     * @param records the records of the parent Triples Map.
+     * @param condition the join condition of which the parent reference is indexed.
+     * @return the index.
+     */
+    public static JoinIndex build(List<Record> records, EqualityJoinCondition condition) {
+        return build(records, Collections.singletonList(condition));
+    }
+
+    /**
+     * This method builds an index for the parent records of multiple join conditions.
+     * @param records the records of the parent Triples Map.
+     * @param conditions the join conditions of which the parent references are indexed together.
+     * @return the index.
+     */
+    public static JoinIndex build(List<Record> records, List<EqualityJoinCondition> conditions) {
+        HashMap<Object, Positions> positionsPerKey = new HashMap<>();
+
+        for (int i = 0; i < records.size(); i++) {
+            Object key = getKey(conditions, records.get(i), true);
+
+            // Records without a value for one of the references never match, so they are not indexed.
+            if (key != null) {
+                positionsPerKey.computeIfAbsent(key, k -> new Positions()).add(i);
+            }
+        }
+
+        HashMap<Object, int[]> index = new HashMap<>(positionsPerKey.size() * 4 / 3 + 1);
+        positionsPerKey.forEach((key, positions) -> index.put(key, positions.toArray()));
+
+        return new JoinIndex(index);
+    }
+
+    /**
+     * This method returns the positions of the parent records that satisfy all indexed conditions with a child record.
+     * @param conditions the join conditions of the child, with the same parent references, in the same order, as the indexed conditions.
+     * @param child the child record.
+     * @return the positions of the matching parent records, in ascending order.
+     */
+    public int[] get(List<EqualityJoinCondition> conditions, Record child) {
+        Object key = getKey(conditions, child, false);
+
+        if (key == null) {
+            return NO_MATCHES;
+        }
+
+        int[] positions = index.get(key);
+
+        if (positions == null) {
+            return NO_MATCHES;
+        } else {
+            return positions;
+        }
+    }
+
+    /**
+     * @return the number of distinct keys in the index.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * This method returns the equality conditions of a list of join conditions.
+     * These are the conditions that can be evaluated via an index.
+     * @param conditions the join conditions.
+     * @return the equality conditions, in the same order.
+     */
+    public static List<EqualityJoinCondition> getEqualityConditions(List<MultipleRecordsFunctionExecutor> conditions) {
+        ArrayList<EqualityJoinCondition> equalities = new ArrayList<>();
+
+        for (MultipleRecordsFunctionExecutor condition : conditions) {
+            if (condition instanceof EqualityJoinCondition) {
+                equalities.add((EqualityJoinCondition) condition);
+            }
+        }
+
+        return equalities;
+    }
+
+    /**
+     * This method returns the parent references of equality conditions.
+     * Two lists of conditions with the same parent references can share the same index.
+     * @param conditions the equality conditions.
+     * @return the parent references, in the same order.
+     */
+    public static List<String> getParentReferences(List<EqualityJoinCondition> conditions) {
+        ArrayList<String> references = new ArrayList<>(conditions.size());
+
+        for (EqualityJoinCondition condition : conditions) {
+            references.add(condition.getParentReference());
+        }
+
+        return references;
+    }
+
+    /**
+     * This method returns the key of a record: the value of the reference if there is a single condition,
+     * or the list of values if there are multiple conditions.
+     * @return the key or null if one of the values is missing.
+     */
+    private static Object getKey(List<EqualityJoinCondition> conditions, Record record, boolean parent) {
+        if (conditions.size() == 1) {
+            return getValue(conditions.get(0), record, parent);
+        }
+
+        String[] values = getValues(conditions, record, parent);
+
+        if (values == null) {
+            return null;
+        } else {
+            return Arrays.asList(values);
+        }
+    }
+
+    /**
+     * This method returns the values of the references of a record, one per condition.
+     * @param conditions the equality conditions.
+     * @param record the record.
+     * @param parent true if the record is a parent record, false if it is a child record.
+     * @return the values or null if one of the values is missing.
+     */
+    static String[] getValues(List<EqualityJoinCondition> conditions, Record record, boolean parent) {
+        String[] values = new String[conditions.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getValue(conditions.get(i), record, parent);
+
+            if (values[i] == null) {
+                return null;
+            }
+        }
+
+        return values;
+    }
+
+    private static String getValue(EqualityJoinCondition condition, Record record, boolean parent) {
+        if (parent) {
+            return condition.getParentValue(record);
+        } else {
+            return condition.getChildValue(record);
+        }
+    }
+
+    /**
+     * Growable array of record positions, to avoid boxing every position into an Integer.
+     */
+    private static class Positions {
+        private int[] values = new int[1];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                int[] temp = new int[size * 2];
+                System.arraycopy(values, 0, temp, 0, size);
+                values = temp;
+            }
+
+            values[size] = value;
+            size++;
+        }
+
+        int[] toArray() {
+            if (size == values.length) {
+                return values;
+            }
+
+            int[] temp = new int[size];
+            System.arraycopy(values, 0, temp, 0, size);
+
+            return temp;
+        }
+    }
+}
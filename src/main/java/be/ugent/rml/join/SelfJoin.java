@@ -0,0 +1,114 @@
+package be.ugent.rml.join;
+
+import be.ugent.rml.Mapping;
+import be.ugent.rml.NAMESPACES;
+import be.ugent.rml.PredicateObjectGraphMapping;
+import be.ugent.rml.Utils;
+import be.ugent.rml.functions.MultipleRecordsFunctionExecutor;
+import be.ugent.rml.records.Record;
+import be.ugent.rml.store.Quad;
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.term.BlankNode;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+import be.ugent.rml.termgenerator.TermGenerator;
+
+import java.util.*;
+
+/**
+ * This class detects referencing object maps that join a Triples Map with a parent that has the same Logical Source,
+ * on the same references (rr:child and rr:parent are equal in every join condition).
+ * Every parent record that matches a child record has the same values for the join references as the child record.
+ * If the subject map of the parent only depends on the join references, all these parents have the same subject,
+ * which is the subject that the parent subject map generates for the child record itself.
+ * So the join can be replaced by generating the parent subject from the child record, without reading or indexing the parent records.
+ */
+public class SelfJoin {
+
+    /**
+     * @param triplesMap the Triples Map of the referencing object map.
+     * @param pogMapping the predicate-object-graph mapping of the referencing object map.
+     * @param mappings the mappings of all Triples Maps.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @return true if the join can be replaced by generating the parent subject from the child record.
+     */
+    public static boolean isApplicable(Term triplesMap, PredicateObjectGraphMapping pogMapping, Map<Term, Mapping> mappings, QuadStore rmlStore) {
+        Term parentTriplesMap = pogMapping.getParentTriplesMap();
+        List<MultipleRecordsFunctionExecutor> conditions = pogMapping.getJoinConditions();
+
+        if (parentTriplesMap == null || !mappings.containsKey(parentTriplesMap) || conditions.isEmpty()) {
+            return false;
+        }
+
+        List<EqualityJoinCondition> equalities = JoinIndex.getEqualityConditions(conditions);
+
+        if (equalities.size() != conditions.size()) {
+            return false;
+        }
+
+        Set<String> references = new HashSet<>();
+
+        for (EqualityJoinCondition condition : equalities) {
+            if (!condition.getChildReference().equals(condition.getParentReference())) {
+                return false;
+            }
+
+            references.add(condition.getParentReference());
+        }
+
+        TermGenerator subjectGenerator = mappings.get(parentTriplesMap).getSubjectMappingInfo().getTermGenerator();
+        Set<String> subjectReferences = subjectGenerator.getReferences();
+
+        return subjectGenerator.isRepeatable() && subjectReferences != null && references.containsAll(subjectReferences)
+                && haveSameLogicalSource(triplesMap, parentTriplesMap, rmlStore);
+    }
+
+    /**
+     * This method returns whether a record has a value for every join reference, so it matches itself.
+     * A record without a value for a join reference does not match any parent record.
+     * @param conditions the join conditions of a self-join.
+     * @param record the record.
+     * @return true if every join reference has a value.
+     */
+    public static boolean hasJoinValues(List<EqualityJoinCondition> conditions, Record record) {
+        return JoinIndex.getValues(conditions, record, false) != null;
+    }
+
+    /**
+     * @return true if the Logical Sources of two Triples Maps are the same resource or have the same description.
+     */
+    private static boolean haveSameLogicalSource(Term triplesMap, Term parentTriplesMap, QuadStore rmlStore) {
+        List<Term> logicalSources = Utils.getObjectsFromQuads(rmlStore.getQuads(triplesMap, new NamedNode(NAMESPACES.RML + "logicalSource"), null));
+        List<Term> parentLogicalSources = Utils.getObjectsFromQuads(rmlStore.getQuads(parentTriplesMap, new NamedNode(NAMESPACES.RML + "logicalSource"), null));
+
+        if (logicalSources.isEmpty() || parentLogicalSources.isEmpty()) {
+            return false;
+        }
+
+        if (logicalSources.get(0).equals(parentLogicalSources.get(0))) {
+            return true;
+        }
+
+        Map<String, Set<String>> description = describe(logicalSources.get(0), rmlStore);
+
+        return description != null && description.equals(describe(parentLogicalSources.get(0), rmlStore));
+    }
+
+    /**
+     * @return the values of the properties of a Logical Source, or null if it refers to a blank node,
+     * which cannot be compared with the blank nodes of another Logical Source.
+     */
+    private static Map<String, Set<String>> describe(Term logicalSource, QuadStore rmlStore) {
+        Map<String, Set<String>> description = new HashMap<>();
+
+        for (Quad quad : rmlStore.getQuads(logicalSource, null, null)) {
+            if (quad.getObject() instanceof BlankNode) {
+                return null;
+            }
+
+            description.computeIfAbsent(quad.getPredicate().getValue(), key -> new HashSet<>()).add(quad.getObject().getValue());
+        }
+
+        return description;
+    }
+}
@@ -0,0 +1,288 @@
+package be.ugent.rml.join;
+
+import be.ugent.rml.BlankNodeScope;
+import be.ugent.rml.Mapping;
+import be.ugent.rml.MappingInfo;
+import be.ugent.rml.PredicateObjectGraph;
+import be.ugent.rml.PredicateObjectGraphMapping;
+import be.ugent.rml.functions.MultipleRecordsFunctionExecutor;
+import be.ugent.rml.metadata.Metadata;
+import be.ugent.rml.records.Record;
+import be.ugent.rml.term.ProvenancedTerm;
+import be.ugent.rml.term.Term;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * This class evaluates a referencing object map with equality join conditions via an external sort-merge join.
+ * While the child Triples Map is executed, for every child record the join key, the subject, the predicates and the graphs
+ * are added to an external sorter instead of looking up the parent records.
+ * Afterwards the parent records are read once, sorted on the join key in the same way, and both sorted sides are merged.
+ * As a result, neither the parent records nor their subjects need to be kept in memory:
+ * only the parent subjects of a single join key are.
+ */
+public class SortMergeJoin implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SortMergeJoin.class);
+
+    private final Term triplesMap;
+    private final Metadata subjectMetadata;
+    private final PredicateObjectGraphMapping pogMapping;
+    private final List<EqualityJoinCondition> conditions;
+    private final long memoryBudget;
+    private final ExternalSorter children;
+
+    /**
+     * @param triplesMap the child Triples Map.
+     * @param mapping the mapping of the child Triples Map.
+     * @param pogMapping the referencing object map of the child Triples Map.
+     * @param memoryBudget the number of bytes each side of the join can use before it is written to disk.
+     * @param sortedChildren true if the child records are ordered on the join key.
+     */
+    public SortMergeJoin(Term triplesMap, Mapping mapping, PredicateObjectGraphMapping pogMapping, long memoryBudget, boolean sortedChildren) {
+        this.triplesMap = triplesMap;
+        this.subjectMetadata = new Metadata(triplesMap, mapping.getSubjectMappingInfo().getTerm());
+        this.pogMapping = pogMapping;
+        this.conditions = JoinIndex.getEqualityConditions(pogMapping.getJoinConditions());
+        this.memoryBudget = memoryBudget;
+        this.children = new ExternalSorter(memoryBudget, sortedChildren);
+    }
+
+    /**
+     * This method returns whether a referencing object map can be evaluated via a sort-merge join,
+     * i.e., whether it has join conditions and all of them are equality conditions.
+     * @param pogMapping the referencing object map.
+     * @return true if a sort-merge join can be used.
+     */
+    public static boolean isApplicable(PredicateObjectGraphMapping pogMapping) {
+        List<MultipleRecordsFunctionExecutor> conditions = pogMapping.getJoinConditions();
+
+        return pogMapping.getParentTriplesMap() != null && !conditions.isEmpty()
+                && JoinIndex.getEqualityConditions(conditions).size() == conditions.size();
+    }
+
+    public Term getTriplesMap() {
+        return triplesMap;
+    }
+
+    public Term getParentTriplesMap() {
+        return pogMapping.getParentTriplesMap();
+    }
+
+    /**
+     * This method adds a child record to the join.
+     * @param child the child record.
+     * @param subject the subject generated for the child record.
+     * @param predicates the predicates generated for the referencing object map.
+     * @param graphs the graphs of the generated triples.
+     * @throws IOException
+     */
+    public void addChild(Record child, ProvenancedTerm subject, List<ProvenancedTerm> predicates, List<ProvenancedTerm> graphs) throws IOException {
+        String[] key = JoinIndex.getValues(conditions, child, false);
+
+        // Children without a value for one of the references never match.
+        if (key == null || predicates.isEmpty()) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        TermSerializer.write(out, subject.getTerm());
+        out.writeInt(predicates.size());
+
+        for (ProvenancedTerm predicate : predicates) {
+            TermSerializer.write(out, predicate.getTerm());
+        }
+
+        out.writeInt(graphs.size());
+
+        for (ProvenancedTerm graph : graphs) {
+            TermSerializer.write(out, graph.getTerm());
+        }
+
+        out.close();
+        children.add(new JoinEntry(key, bytes.toByteArray()));
+    }
+
+    /**
+     * This method reads the parent records, merges them with the child records
+     * and passes the generated predicate-object-graphs to the given function.
+     * @param parents the records of the parent Triples Map.
+     * @param parentMapping the mapping of the parent Triples Map.
+     * @param blankNodeKey the key of the parent Triples Map in the identifiers of its blank nodes (see BlankNodeScope),
+     * so parent subjects that are blank nodes are the same as when the parent records are processed.
+     * @param sortedParents true if the parent records are ordered on the join key (in string order);
+     * if they turn out not to be ordered, they are sorted on disk before any predicate-object-graph is generated.
+     * @param pogFunction the function that is called for every generated subject and predicate-object-graph.
+     * @throws Exception
+     */
+    public void join(Iterator<Record> parents, Mapping parentMapping, String blankNodeKey, boolean sortedParents, BiConsumer<ProvenancedTerm, PredicateObjectGraph> pogFunction) throws Exception {
+        MappingInfo parentSubjectMappingInfo = parentMapping.getSubjectMappingInfo();
+        Metadata parentMetadata = new Metadata(getParentTriplesMap(), parentSubjectMappingInfo.getTerm());
+
+        // All parent records are read before the merge, also when they are declared as sorted,
+        // so an unordered source falls back to sorting before anything is generated, as for the children.
+        try (ExternalSorter parentSorter = new ExternalSorter(memoryBudget, sortedParents)) {
+            ParentEntries parentRecords = new ParentEntries(parents, parentSubjectMappingInfo, blankNodeKey);
+            JoinEntry entry;
+
+            while ((entry = parentRecords.next()) != null) {
+                parentSorter.add(entry);
+            }
+
+            Iterator<JoinEntry> sorted = parentSorter.iterator();
+            Entries parentEntries = () -> sorted.hasNext() ? sorted.next() : null;
+
+            Iterator<JoinEntry> sortedChildren = children.iterator();
+            Entries childEntries = () -> sortedChildren.hasNext() ? sortedChildren.next() : null;
+
+            long matches = merge(childEntries, parentEntries, parentMetadata, pogFunction);
+
+            logger.info("Sort-merge join of " + triplesMap + " with " + getParentTriplesMap() + " [children: " + children.size()
+                    + ", child runs: " + children.getNumberOfRuns() + ", parent runs: " + parentSorter.getNumberOfRuns()
+                    + ", matches: " + matches + "]");
+        } finally {
+            close();
+        }
+    }
+
+    private long merge(Entries childEntries, Entries parentEntries, Metadata parentMetadata,
+                       BiConsumer<ProvenancedTerm, PredicateObjectGraph> pogFunction) throws Exception {
+        long matches = 0;
+        ArrayList<ProvenancedTerm> parentSubjects = new ArrayList<>();
+        JoinEntry child = childEntries.next();
+        JoinEntry parent = parentEntries.next();
+
+        while (child != null && parent != null) {
+            int comparison = child.compareTo(parent);
+
+            if (comparison < 0) {
+                child = childEntries.next();
+            } else if (comparison > 0) {
+                parent = parentEntries.next();
+            } else {
+                String[] key = parent.getKey();
+                parentSubjects.clear();
+
+                // Only the parents of the current key are kept in memory.
+                while (parent != null && JoinEntry.compareKeys(parent.getKey(), key) == 0) {
+                    parentSubjects.add(new ProvenancedTerm(readSubject(parent), parentMetadata));
+                    parent = parentEntries.next();
+                }
+
+                while (child != null && JoinEntry.compareKeys(child.getKey(), key) == 0) {
+                    generate(child, parentSubjects, pogFunction);
+                    matches += parentSubjects.size();
+                    child = childEntries.next();
+                }
+            }
+        }
+
+        return matches;
+    }
+
+    private void generate(JoinEntry child, List<ProvenancedTerm> objects, BiConsumer<ProvenancedTerm, PredicateObjectGraph> pogFunction) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(child.getPayload()));
+        ProvenancedTerm subject = new ProvenancedTerm(TermSerializer.read(in), subjectMetadata);
+        List<ProvenancedTerm> predicates = new ArrayList<>();
+        List<ProvenancedTerm> graphs = new ArrayList<>();
+
+        for (int i = in.readInt(); i > 0; i--) {
+            predicates.add(new ProvenancedTerm(TermSerializer.read(in), pogMapping.getPredicateMappingInfo()));
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            graphs.add(new ProvenancedTerm(TermSerializer.read(in)));
+        }
+
+        if (graphs.isEmpty()) {
+            graphs.add(null);
+        }
+
+        for (ProvenancedTerm predicate : predicates) {
+            for (ProvenancedTerm object : objects) {
+                for (ProvenancedTerm graph : graphs) {
+                    pogFunction.accept(subject, new PredicateObjectGraph(predicate, object, graph));
+                }
+            }
+        }
+    }
+
+    private static Term readSubject(JoinEntry parent) throws IOException {
+        return TermSerializer.read(new DataInputStream(new ByteArrayInputStream(parent.getPayload())));
+    }
+
+    @Override
+    public void close() {
+        children.close();
+    }
+
+    /**
+     * A sequence of join entries; next() returns null at the end.
+     */
+    private interface Entries {
+        JoinEntry next() throws Exception;
+    }
+
+    /**
+     * Turns parent records into join entries, with the subject of the record as payload.
+     * Records without a value for one of the references or without a subject are skipped.
+     */
+    private class ParentEntries implements Entries {
+        private final Iterator<Record> records;
+        private final MappingInfo subjectMappingInfo;
+        private final String blankNodeKey;
+        // the position of the next record.
+        private int position;
+
+        ParentEntries(Iterator<Record> records, MappingInfo subjectMappingInfo, String blankNodeKey) {
+            this.records = records;
+            this.subjectMappingInfo = subjectMappingInfo;
+            this.blankNodeKey = blankNodeKey;
+        }
+
+        @Override
+        public JoinEntry next() throws Exception {
+            while (records.hasNext()) {
+                Record record = records.next();
+                int index = position++;
+                String[] key = JoinIndex.getValues(conditions, record, true);
+
+                if (key == null) {
+                    continue;
+                }
+
+                List<Term> subjects;
+
+                try (BlankNodeScope scope = BlankNodeScope.open(blankNodeKey, index, true)) {
+                    subjects = subjectMappingInfo.getTermGenerator().generate(record);
+                }
+
+                if (subjects.isEmpty()) {
+                    continue;
+                }
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                TermSerializer.write(out, subjects.get(0));
+                out.close();
+
+                return new JoinEntry(key, bytes.toByteArray());
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package be.ugent.rml.join;
+
+import be.ugent.rml.term.BlankNode;
+import be.ugent.rml.term.Literal;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class writes terms to and reads terms from a binary stream.
+ * It is used to store the terms of a join in temporary files.
+ */
+public class TermSerializer {
+
+    private static final byte NULL = 0;
+    private static final byte NAMED_NODE = 1;
+    private static final byte BLANK_NODE = 2;
+    private static final byte LITERAL = 3;
+
+    private TermSerializer() {
+    }
+
+    /**
+     * This method writes a term.
+     * @param out the output to write to.
+     * @param term the term, which can be null.
+     * @throws IOException
+     */
+    public static void write(DataOutput out, Term term) throws IOException {
+        if (term == null) {
+            out.writeByte(NULL);
+        } else if (term instanceof NamedNode) {
+            out.writeByte(NAMED_NODE);
+            writeString(out, term.getValue());
+        } else if (term instanceof BlankNode) {
+            out.writeByte(BLANK_NODE);
+            writeString(out, term.getValue());
+        } else if (term instanceof Literal) {
+            Literal literal = (Literal) term;
+
+            out.writeByte(LITERAL);
+            writeString(out, literal.getValue());
+            writeString(out, literal.getLanguage());
+            write(out, literal.getDatatype());
+        } else {
+            throw new IOException("Term " + term + " of type " + term.getClass().getName() + " cannot be serialized.");
+        }
+    }
+
+    /**
+     * This method reads a term that was written with write().
+     * @param in the input to read from.
+     * @return the term, which can be null.
+     * @throws IOException
+     */
+    public static Term read(DataInput in) throws IOException {
+        byte type = in.readByte();
+
+        switch (type) {
+            case NULL:
+                return null;
+            case NAMED_NODE:
+                return new NamedNode(readString(in));
+            case BLANK_NODE:
+                return new BlankNode(readString(in));
+            case LITERAL:
+                String value = readString(in);
+                String language = readString(in);
+                Term datatype = read(in);
+
+                if (language != null) {
+                    return new Literal(value, language);
+                } else if (datatype != null) {
+                    return new Literal(value, datatype);
+                } else {
+                    return new Literal(value);
+                }
+            default:
+                throw new IOException("Unknown term type " + type + ".");
+        }
+    }
+
+    /**
+     * This method writes a string, which can be null.
+     * Unlike DataOutput.writeUTF(), the length of the string is not limited to 64 KB.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * This method reads a string that was written with writeString().
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+
+        if (length == -1) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -10,11 +10,16 @@ import be.ugent.rml.term.Term;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -34,38 +39,108 @@ public class CSVRecordFactory implements ReferenceFormulationRecordFactory {
      */
     @Override
     public List<Record> getRecords(Access access, Term logicalSource, QuadStore rmlStore) throws IOException {
+        CSVParser parser = getParser(access, logicalSource, rmlStore);
+
+        if (parser != null) {
+            List<org.apache.commons.csv.CSVRecord> myEntries = parser.getRecords();
+
+            return myEntries.stream()
+                    .map(record -> new CSVRecord(record, access.getDataTypes(), emptyStrings))
+                    .collect(Collectors.toList());
+        } else {
+            // We still return an empty list of records when a parser is not found.
+            // This is to support certain use cases with RDBs where queries might not be valid,
+            // but you don't want the RMLMapper to crash.
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * This method returns the CSV records for a data source while the rows are parsed.
+     * The data source is closed when all records are returned, or when the iterator is closed before.
+     * @param access the access from which records need to be fetched.
+     * @param logicalSource the used Logical Source.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @return an iterator over the records.
+     * @throws IOException
+     */
+    @Override
+    public Iterator<Record> getRecordIterator(Access access, Term logicalSource, QuadStore rmlStore) throws IOException {
+        CSVParser parser = getParser(access, logicalSource, rmlStore);
+
+        if (parser == null) {
+            return Collections.emptyIterator();
+        }
+
+        return new CSVRecordIterator(parser, access.getDataTypes(), emptyStrings);
+    }
+
+    /**
+     * Iterator over the records of a CSVParser, which closes the parser at the end or when it is closed.
+     */
+    private static class CSVRecordIterator implements Iterator<Record>, Closeable {
+        private final CSVParser parser;
+        private final Iterator<org.apache.commons.csv.CSVRecord> rows;
+        private final Map<String, String> datatypes;
+        private final boolean emptyStrings;
+
+        CSVRecordIterator(CSVParser parser, Map<String, String> datatypes, boolean emptyStrings) {
+            this.parser = parser;
+            this.rows = parser.iterator();
+            this.datatypes = datatypes;
+            this.emptyStrings = emptyStrings;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = !parser.isClosed() && rows.hasNext();
+
+            if (!hasNext) {
+                try {
+                    close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            return hasNext;
+        }
+
+        @Override
+        public Record next() {
+            return new CSVRecord(rows.next(), datatypes, emptyStrings);
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    /**
+     * This method returns a CSVParser for a data source.
+     * @return a CSVParser or null if no parser can be created.
+     * @throws IOException
+     */
+    private CSVParser getParser(Access access, Term logicalSource, QuadStore rmlStore) throws IOException {
         List<Term> sources = Utils.getObjectsFromQuads(rmlStore.getQuads(logicalSource, new NamedNode(NAMESPACES.RML + "source"), null));
         Term source = sources.get(0);
-        CSVParser parser;
 
         if (source instanceof Literal) {
             // We are not dealing with something like CSVW.
-            parser = getParserForNormalCSV(access);
+            return getParserForNormalCSV(access);
         } else {
             List<Term> sourceType = Utils.getObjectsFromQuads(rmlStore.getQuads(source, new NamedNode(NAMESPACES.RDF + "type"), null));
 
             // Check if we are dealing with CSVW.
             if (sourceType.get(0).getValue().equals(NAMESPACES.CSVW + "Table")) {
                 CSVW csvw = new CSVW(access.getInputStream(), rmlStore, logicalSource);
-                parser = csvw.getCSVParser();
+                return csvw.getCSVParser();
             } else {
                 // RDBs fall under this.
-                parser = getParserForNormalCSV(access);
+                return getParserForNormalCSV(access);
             }
         }
-
-        if (parser != null) {
-            List<org.apache.commons.csv.CSVRecord> myEntries = parser.getRecords();
-
-            return myEntries.stream()
-                    .map(record -> new CSVRecord(record, access.getDataTypes(), emptyStrings))
-                    .collect(Collectors.toList());
-        } else {
-            // We still return an empty list of records when a parser is not found.
-            // This is to support certain use cases with RDBs where queries might not be valid,
-            // but you don't want the RMLMapper to crash.
-            return new ArrayList<>();
-        }
     }
 
     @Override
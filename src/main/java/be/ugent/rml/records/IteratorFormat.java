@@ -11,8 +11,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This an abstract class for reference formulation-specific record factories that use iterators.
@@ -22,7 +22,9 @@ public abstract class IteratorFormat<DocumentClass> implements ReferenceFormulat
 
     protected Logger logger = LoggerFactory.getLogger(this.getClass());
     protected boolean emptyStrings;
-    private HashMap<Access, DocumentClass> documentMap = new HashMap<>();
+    private ConcurrentHashMap<Access, DocumentClass> documentMap = new ConcurrentHashMap<>();
+    // the locks that make sure every document is only created once, while different documents can be created at the same time.
+    private ConcurrentHashMap<Access, Object> documentLocks = new ConcurrentHashMap<>();
 
     /**
      * This method returns a list of records for a data source.
@@ -33,26 +35,64 @@ public abstract class IteratorFormat<DocumentClass> implements ReferenceFormulat
      * @throws IOException
      */
     @Override
-    synchronized public List<Record> getRecords(Access access, Term logicalSource, QuadStore rmlStore) throws IOException {
-        // Check if the needed document is already in the cache.
-        // If not, a new one is created, based on the InputStream from the access.
-        if (! documentMap.containsKey(access)) {
-            logger.debug("No document found for {}. Creating new one", access);
-            InputStream stream = access.getInputStream();
-            documentMap.put(access, getDocumentFromStream(stream));
-        }
-
+    public List<Record> getRecords(Access access, Term logicalSource, QuadStore rmlStore) throws IOException {
+        DocumentClass document = getDocument(access);
         List<Term> iterators = Utils.getObjectsFromQuads(rmlStore.getQuads(logicalSource, new NamedNode(NAMESPACES.RML + "iterator"), null));
 
         if (!iterators.isEmpty()) {
             String iterator = iterators.get(0).getValue();
-            return getRecordsFromDocument(documentMap.get(access), iterator);
+
+            // The format-specific factories are not required to evaluate iterators concurrently.
+            synchronized (this) {
+                return getRecordsFromDocument(document, iterator);
+            }
         } else {
             // TODO better message
             throw new Error("An iterator is missing.");
         }
     }
 
+    /**
+     * This method returns the document of an access.
+     * If the document is not in the cache, a new one is created, based on the InputStream from the access.
+     * Only the documents of the same access are created one after another, so documents of different sources
+     * can be fetched and parsed at the same time.
+     * @param access the access of the document.
+     * @return the document.
+     * @throws IOException
+     */
+    private DocumentClass getDocument(Access access) throws IOException {
+        DocumentClass document = documentMap.get(access);
+
+        if (document == null) {
+            synchronized (documentLocks.computeIfAbsent(access, key -> new Object())) {
+                document = documentMap.get(access);
+
+                if (document == null) {
+                    logger.debug("No document found for {}. Creating new one", access);
+                    InputStream stream = access.getInputStream();
+                    document = getDocumentFromStream(stream);
+
+                    // A document that could not be parsed is not cached.
+                    if (document != null) {
+                        documentMap.put(access, document);
+                    }
+                }
+            }
+        }
+
+        return document;
+    }
+
+    /**
+     * This method removes the document of an access from the cache.
+     * @param access the access of the document.
+     */
+    @Override
+    public void release(Access access) {
+        documentMap.remove(access);
+    }
+
     /**
      * This method returns the records from a document based on an iterator.
      * @param document the document from which records need to get.
@@ -0,0 +1,137 @@
+package be.ugent.rml.records;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Iterator that takes the elements of another iterator, e.g., the records of a source that is read while they are used,
+ * in a separate thread, so that reading and parsing the source overlaps with processing the records.
+ * The elements are passed in chunks via a bounded queue: at most the given number of chunks is read ahead,
+ * after which the thread waits until a chunk is used.
+ * A failure of the other iterator, also an Error, is thrown when the element at which it failed is reached.
+ * The other iterator is closed by the thread when it stops, if it is Closeable.
+ * @param <T> the type of the elements.
+ */
+public class ReadAheadIterator<T> implements Iterator<T>, Closeable {
+
+    private final BlockingQueue<List<T>> queue;
+    private final Thread reader;
+    private Iterator<T> chunk = Collections.emptyIterator();
+    private boolean ended;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    /**
+     * @param iterator the iterator of which the elements are read ahead.
+     * @param chunkSize the number of elements per chunk.
+     * @param capacity the maximum number of chunks that are read ahead.
+     */
+    public ReadAheadIterator(Iterator<T> iterator, int chunkSize, int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.reader = new Thread(() -> this.read(iterator, chunkSize), "record-reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!chunk.hasNext() && !ended) {
+            List<T> next;
+
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for records.", e);
+            }
+
+            // An empty chunk marks the end.
+            if (next.isEmpty()) {
+                ended = true;
+
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                } else if (failure instanceof Error) {
+                    throw (Error) failure;
+                } else if (failure != null) {
+                    throw new IllegalStateException("Records could not be read.", failure);
+                }
+            } else {
+                chunk = next.iterator();
+            }
+        }
+
+        return chunk.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return chunk.next();
+    }
+
+    /**
+     * This method stops the thread, if not all elements are used. The thread closes the other iterator.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        reader.interrupt();
+    }
+
+    /**
+     * This method is executed by the thread: it takes the elements of the other iterator and passes them in chunks.
+     * The end marker is always passed, also after a failure, so the thread that uses the elements never waits forever.
+     */
+    private void read(Iterator<T> iterator, int chunkSize) {
+        List<T> next = new ArrayList<>(chunkSize);
+
+        try {
+            while (iterator.hasNext()) {
+                next.add(iterator.next());
+
+                if (next.size() == chunkSize) {
+                    queue.put(next);
+                    next = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (InterruptedException e) {
+            // The elements are not used anymore.
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            if (iterator instanceof Closeable) {
+                try {
+                    ((Closeable) iterator).close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+
+            try {
+                // The elements before the end or the failure.
+                if (!closed && !next.isEmpty()) {
+                    queue.put(next);
+                }
+
+                if (!closed) {
+                    queue.put(Collections.emptyList());
+                }
+            } catch (InterruptedException e) {
+                // The elements are not used anymore.
+            }
+        }
+    }
+}
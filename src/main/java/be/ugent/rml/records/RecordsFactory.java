@@ -5,6 +5,7 @@ import be.ugent.rml.NAMESPACES;
 import be.ugent.rml.Utils;
 import be.ugent.rml.access.Access;
 import be.ugent.rml.access.AccessFactory;
+import be.ugent.rml.access.LocalFileAccess;
 import be.ugent.rml.store.Quad;
 import be.ugent.rml.store.QuadStore;
 import be.ugent.rml.term.NamedNode;
@@ -14,6 +15,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,6 +31,9 @@ public class RecordsFactory {
     private Map<Access, Map<String, Map<String, List<Record>>>> recordCache;
     private AccessFactory accessFactory;
     private Map<String, ReferenceFormulationRecordFactory> referenceFormulationRecordFactoryMap;
+    // the locks that make sure the records of a Logical Source are only fetched once,
+    // while different Logical Sources can be fetched at the same time.
+    private Map<List<Object>, Object> recordLocks = new ConcurrentHashMap<>();
 
     public RecordsFactory(String basePath) {
         this(basePath, null);
@@ -80,37 +86,115 @@ public class RecordsFactory {
      * @throws IOException
      */
      public List<Record> createRecords(Term triplesMap, QuadStore rmlStore) throws IOException {
-        // Get Logical Sources.
-        List<Term> logicalSources = Utils.getObjectsFromQuads(rmlStore.getQuads(triplesMap, new NamedNode(NAMESPACES.RML + "logicalSource"), null));
+        Term logicalSource = getLogicalSource(triplesMap, rmlStore);
+        Access access = accessFactory.getAccess(logicalSource, rmlStore);
+        String referenceFormulation = getReferenceFormulation(triplesMap, logicalSource, rmlStore);
 
-        // Check if there is at least one Logical Source.
-        if (!logicalSources.isEmpty()) {
-            Term logicalSource = logicalSources.get(0);
+        return getRecords(access, logicalSource, referenceFormulation, rmlStore);
+    }
 
-            Access access = accessFactory.getAccess(logicalSource, rmlStore);
+    /**
+     * This method creates and returns the records for a given Triples Map one by one.
+     * If the records are already in the cache, the cached records are returned.
+     * Otherwise, the records are not put in the cache, so they do not need to be kept in memory together
+     * if the reference formulation-specific factory can create them incrementally.
+     * @param triplesMap the Triples Map for which the record need to be created.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @return an iterator over the records.
+     * @throws IOException
+     */
+    public Iterator<Record> createRecordIterator(Term triplesMap, QuadStore rmlStore) throws IOException {
+        Term logicalSource = getLogicalSource(triplesMap, rmlStore);
+        Access access = accessFactory.getAccess(logicalSource, rmlStore);
+        String referenceFormulation = getReferenceFormulation(triplesMap, logicalSource, rmlStore);
+        List<Record> records = getRecordsFromCache(access, referenceFormulation, hashLogicalSource(logicalSource, rmlStore));
+
+        if (records != null) {
+            return records.iterator();
+        }
 
-            // Get Logical Source information
-            List<Term> referenceFormulations = Utils.getObjectsFromQuads(rmlStore.getQuads(logicalSource, new NamedNode(NAMESPACES.RML + "referenceFormulation"), null));
-            List<Term> tables = Utils.getObjectsFromQuads(rmlStore.getQuads(logicalSource, new NamedNode(NAMESPACES.RR + "tableName"), null));
+        return referenceFormulationRecordFactoryMap.get(referenceFormulation).getRecordIterator(access, logicalSource, rmlStore);
+    }
 
-            // If no rml:referenceFormulation is given, but a table is given --> CSV
-            if (referenceFormulations.isEmpty() && !tables.isEmpty()) {
-                referenceFormulations = new ArrayList<>();
-                referenceFormulations.add(0, new NamedNode(NAMESPACES.QL + "CSV"));
-            }
+    /**
+     * This method returns the size of the source of a Triples Map, which is used to estimate the cost of the Triples Map.
+     * @param triplesMap the Triples Map.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @return the size in bytes of the local file of the Logical Source, or 0 if the source is not a local file.
+     */
+    public long getSourceSize(Term triplesMap, QuadStore rmlStore) {
+        Access access = accessFactory.getAccess(getLogicalSource(triplesMap, rmlStore), rmlStore);
 
-            if (referenceFormulations.isEmpty()) {
-                throw new Error("The Logical Source of " + triplesMap + " does not have a reference formulation.");
-            } else {
-                String referenceFormulation = referenceFormulations.get(0).getValue();
+        if (access instanceof LocalFileAccess) {
+            return ((LocalFileAccess) access).getSize();
+        }
 
-                return getRecords(access, logicalSource, referenceFormulation, rmlStore);
-            }
+        return 0;
+    }
+
+    /**
+     * This method returns the access of the source of a Triples Map, e.g., to gather statistics about the source.
+     * @param triplesMap the Triples Map.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @return the access.
+     */
+    public Access getAccess(Term triplesMap, QuadStore rmlStore) {
+        return accessFactory.getAccess(getLogicalSource(triplesMap, rmlStore), rmlStore);
+    }
+
+    /**
+     * This method returns the reference formulation of the Logical Source of a Triples Map.
+     * @param triplesMap the Triples Map.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @return the IRI of the reference formulation.
+     */
+    public String getReferenceFormulation(Term triplesMap, QuadStore rmlStore) {
+        return getReferenceFormulation(triplesMap, getLogicalSource(triplesMap, rmlStore), rmlStore);
+    }
+
+    /**
+     * This method returns the Logical Source of a Triples Map.
+     * @param triplesMap the Triples Map.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @return the Logical Source.
+     */
+    private Term getLogicalSource(Term triplesMap, QuadStore rmlStore) {
+        // Get Logical Sources.
+        List<Term> logicalSources = Utils.getObjectsFromQuads(rmlStore.getQuads(triplesMap, new NamedNode(NAMESPACES.RML + "logicalSource"), null));
+
+        // Check if there is at least one Logical Source.
+        if (!logicalSources.isEmpty()) {
+            return logicalSources.get(0);
         } else {
             throw new Error("No Logical Source is found for " + triplesMap + ". Exactly one Logical Source is required per Triples Map.");
         }
     }
 
+    /**
+     * This method returns the reference formulation of a Logical Source.
+     * @param triplesMap the Triples Map of the Logical Source.
+     * @param logicalSource the Logical Source.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @return the IRI of the reference formulation.
+     */
+    private String getReferenceFormulation(Term triplesMap, Term logicalSource, QuadStore rmlStore) {
+        // Get Logical Source information
+        List<Term> referenceFormulations = Utils.getObjectsFromQuads(rmlStore.getQuads(logicalSource, new NamedNode(NAMESPACES.RML + "referenceFormulation"), null));
+        List<Term> tables = Utils.getObjectsFromQuads(rmlStore.getQuads(logicalSource, new NamedNode(NAMESPACES.RR + "tableName"), null));
+
+        // If no rml:referenceFormulation is given, but a table is given --> CSV
+        if (referenceFormulations.isEmpty() && !tables.isEmpty()) {
+            referenceFormulations = new ArrayList<>();
+            referenceFormulations.add(0, new NamedNode(NAMESPACES.QL + "CSV"));
+        }
+
+        if (referenceFormulations.isEmpty()) {
+            throw new Error("The Logical Source of " + triplesMap + " does not have a reference formulation.");
+        } else {
+            return referenceFormulations.get(0).getValue();
+        }
+    }
+
     /**
      * This method returns records if they can be found in the cache of the factory.
      * @param access the access from which records need to come.
@@ -155,6 +239,7 @@ public class RecordsFactory {
 
     /**
      * This method returns the records either from the cache or by fetching them for the data sources.
+     * The records of different Logical Sources can be fetched at the same time.
      * @param access the access from which the records needs to be fetched.
      * @param logicalSource the used Logical Source.
      * @param referenceFormulation the used reference formulation.
@@ -162,30 +247,27 @@ public class RecordsFactory {
      * @return a list of records.
      * @throws IOException
      */
-    synchronized private List<Record> getRecords(Access access, Term logicalSource, String referenceFormulation, QuadStore rmlStore) throws IOException {
+    private List<Record> getRecords(Access access, Term logicalSource, String referenceFormulation, QuadStore rmlStore) throws IOException {
         String logicalSourceHash = hashLogicalSource(logicalSource, rmlStore);
+        Object lock = recordLocks.computeIfAbsent(Arrays.asList(access, referenceFormulation, logicalSourceHash), key -> new Object());
 
-        // Try to get the records from the cache.
-        List<Record> records = getRecordsFromCache(access, referenceFormulation, logicalSourceHash);
+        synchronized (lock) {
+            // Try to get the records from the cache.
+            List<Record> records = getRecordsFromCache(access, referenceFormulation, logicalSourceHash);
 
-        // If there are no records in the cache.
-        // fetch from the data source.
-        if (records == null) {
-            try {
+            // If there are no records in the cache.
+            // fetch from the data source.
+            if (records == null) {
                 // Select the Record Factory based on the reference formulation.
                 ReferenceFormulationRecordFactory factory = referenceFormulationRecordFactoryMap.get(referenceFormulation);
                 records = factory.getRecords(access, logicalSource, rmlStore);
 
                 // Store the records in the cache for later.
                 putRecordsIntoCache(access, referenceFormulation, logicalSourceHash, records);
-
-                return records;
-            } catch (IOException e) {
-                throw e;
             }
-        }
 
-        return records;
+            return records;
+        }
     }
 
     /**
@@ -208,6 +290,25 @@ public class RecordsFactory {
         return hash[0];
     }
 
+    /**
+     * This method releases the cached records of the source of a Triples Map,
+     * including the records of other Logical Sources that use the same source (e.g., with a different iterator),
+     * and the documents that the record factories keep for it.
+     * @param triplesMap the Triples Map.
+     * @param rmlStore the QuadStore with the RML rules.
+     */
+    public void releaseRecords(Term triplesMap, QuadStore rmlStore) {
+        Access access = accessFactory.getAccess(getLogicalSource(triplesMap, rmlStore), rmlStore);
+
+        synchronized (recordCache) {
+            recordCache.remove(access);
+        }
+
+        for (ReferenceFormulationRecordFactory factory : referenceFormulationRecordFactoryMap.values()) {
+            factory.release(access);
+        }
+    }
+
     public void cleanRecordCache() {
         recordCache = new ConcurrentHashMap<>();
     }
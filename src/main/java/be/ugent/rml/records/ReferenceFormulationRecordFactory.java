@@ -5,6 +5,7 @@ import be.ugent.rml.store.QuadStore;
 import be.ugent.rml.term.Term;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -22,5 +23,29 @@ public interface ReferenceFormulationRecordFactory {
      */
     List<Record> getRecords(Access access, Term logicalSource, QuadStore rmlStore) throws IOException;
 
+    /**
+     * This method returns the records for a data source one by one.
+     * Factories that can parse a data source incrementally override this method,
+     * so that the records do not need to be kept in memory together.
+     * By default, all records are created via getRecords().
+     * @param access the access from which records need to be fetched.
+     * @param logicalSource the used Logical Source.
+     * @param rmlStore the QuadStore with the RML rules.
+     * @return an iterator over the records.
+     * @throws IOException
+     */
+    default Iterator<Record> getRecordIterator(Access access, Term logicalSource, QuadStore rmlStore) throws IOException {
+        return getRecords(access, logicalSource, rmlStore).iterator();
+    }
+
+    /**
+     * This method releases the data that the factory keeps for a data source, such as a parsed document.
+     * It is called when no records of the data source are needed anymore.
+     * By default, nothing is kept.
+     * @param access the access of the data source.
+     */
+    default void release(Access access) {
+    }
+
     void setEmptyStrings(boolean emptyStrings);
 }
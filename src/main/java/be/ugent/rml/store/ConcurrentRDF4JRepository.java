@@ -1,5 +1,6 @@
 package be.ugent.rml.store;
 
+import be.ugent.rml.Utils;
 import be.ugent.rml.term.Term;
 import org.eclipse.rdf4j.model.*;
 import org.eclipse.rdf4j.model.impl.TreeModel;
@@ -17,6 +18,8 @@ public class ConcurrentRDF4JRepository extends RDF4JRepository {
 
     public static ExecutorService executorService;
     public static int NUM_THREADS = 4;
+    // if true, every write to the repository is done by a virtual thread (Java 21+) instead of a thread of a fixed pool.
+    public static boolean VIRTUAL_THREADS = false;
 
     private AtomicInteger numBatches;
     private ExecutorCompletionService<String> completionService;
@@ -35,6 +38,15 @@ public class ConcurrentRDF4JRepository extends RDF4JRepository {
     }
 
     private void init() {
+        if (executorService == null && VIRTUAL_THREADS) {
+            executorService = Utils.newVirtualThreadPerTaskExecutor();
+
+            if (executorService != null) {
+                logger.info("ExecutorService for ConcurrentRDF4JRepository initialized [virtual threads]");
+            } else {
+                logger.warn("Virtual threads are not available in Java " + System.getProperty("java.version") + ", a fixed thread pool is used.");
+            }
+        }
         if (executorService == null) {
             executorService = Executors.newFixedThreadPool(NUM_THREADS);
             logger.info("ExecutorService for ConcurrentRDF4JRepository initialized [num_threads = " + NUM_THREADS + "]");
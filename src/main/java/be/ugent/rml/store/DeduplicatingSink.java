@@ -0,0 +1,114 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.Term;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * QuadSink that removes duplicate quads before they are passed to another sink, with bounded memory.
+ * Instead of keeping the quads, the hashes of their N-Quads serialization are added to a ScalableBloomFilter.
+ * A quad is suppressed if the filter (probably) contains it, so with the false positive rate of the filter
+ * a quad that is not a duplicate is suppressed as well.
+ */
+public class DeduplicatingSink implements QuadSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeduplicatingSink.class);
+
+    public static final long DEFAULT_MEMORY = 256L * 1024 * 1024;
+
+    private final QuadSink sink;
+    private final ScalableBloomFilter filter;
+    private long numberOfQuads;
+    private long numberOfDuplicates;
+
+    /**
+     * @param sink the sink to which the quads that are not duplicates are passed.
+     * @param falsePositiveRate the maximum probability that a quad that is not a duplicate is suppressed.
+     * @param maxBytes the maximum memory used by the filter.
+     */
+    public DeduplicatingSink(QuadSink sink, double falsePositiveRate, long maxBytes) {
+        this.sink = sink;
+        this.filter = new ScalableBloomFilter(falsePositiveRate, maxBytes);
+    }
+
+    @Override
+    public synchronized void addQuad(Term subject, Term predicate, Term object, Term graph) {
+        if (subject != null && predicate != null && object != null) {
+            numberOfQuads++;
+
+            // Two independent hashes over the serialization of the terms, which differs between the types of terms.
+            long hash1 = 0xcbf29ce484222325L;
+            long hash2 = 0;
+
+            for (Term term : new Term[]{subject, predicate, object, graph}) {
+                String value = term == null ? "" : term.toString();
+
+                for (int i = 0; i < value.length(); i++) {
+                    hash1 = (hash1 ^ value.charAt(i)) * 0x100000001b3L;
+                    hash2 = (hash2 + value.charAt(i)) * 0x9e3779b97f4a7c15L;
+                }
+
+                hash1 = (hash1 ^ ' ') * 0x100000001b3L;
+                hash2 = (hash2 + ' ') * 0x9e3779b97f4a7c15L;
+            }
+
+            if (filter.add(mix(hash1), mix(hash2))) {
+                sink.addQuad(subject, predicate, object, graph);
+            } else {
+                numberOfDuplicates++;
+            }
+        }
+    }
+
+    /**
+     * @return the number of quads added to this sink, including the duplicates.
+     */
+    public synchronized long getNumberOfQuads() {
+        return numberOfQuads;
+    }
+
+    /**
+     * @return the number of quads that are suppressed as duplicates.
+     */
+    public synchronized long getNumberOfDuplicates() {
+        return numberOfDuplicates;
+    }
+
+    /**
+     * @return the estimated probability that a quad that is not a duplicate is suppressed, given the quads added so far.
+     */
+    public synchronized double getEstimatedFalsePositiveRate() {
+        return filter.getEstimatedFalsePositiveRate();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        sink.flush();
+    }
+
+    /**
+     * This method closes the sink to which the quads are passed and logs the number of suppressed duplicates.
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        sink.close();
+        logger.info(numberOfDuplicates + " of " + numberOfQuads + " quads were suppressed as duplicates (filter of "
+                + filter.getBytes() / 1024 + " KB, estimated false positive rate " + filter.getEstimatedFalsePositiveRate() + ")");
+    }
+
+    /**
+     * This method spreads the bits of a hash (the finalizer of MurmurHash3).
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb53fe1a85ec3L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
@@ -0,0 +1,307 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.BlankNode;
+import be.ugent.rml.term.Literal;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * QuadSink that only passes the changes since the previous execution of a mapping to other sinks:
+ * the quads that are added and the quads that are removed.
+ * The quads of an execution are kept in a state file (N-Quads), which is compared with the state file of the previous execution
+ * when the sink is closed, after which it replaces it.
+ * The quads are compared per subject, the identity of a record: every subject has a fingerprint, the sum of the hashes of its quads,
+ * so only the quads of the subjects of which the fingerprint changed are read in memory.
+ * The quads of a subject of the previous execution that is not generated anymore are removed.
+ */
+public class IncrementalSink implements QuadSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalSink.class);
+
+    private final QuadSink additions;
+    private final QuadSink removals;
+    private final Path state;
+    private final Path newState;
+    private final Writer out;
+    // subject hash -> fingerprint of the quads of the subject, in the order in which the subjects are generated.
+    private final Map<Long, Long> fingerprints = new LinkedHashMap<>();
+    private long numberOfAddedQuads;
+    private long numberOfRemovedQuads;
+    private long numberOfUnchangedSubjects;
+
+    /**
+     * @param additions the sink to which the quads that are added since the previous execution are passed.
+     * @param removals the sink to which the quads that are removed since the previous execution are passed,
+     *                 null if they are only counted.
+     * @param state the state file, which does not exist before the first execution.
+     * @throws IOException
+     */
+    public IncrementalSink(QuadSink additions, QuadSink removals, Path state) throws IOException {
+        this.additions = additions;
+        this.removals = removals;
+        this.state = state;
+        this.newState = state.resolveSibling(state.getFileName() + ".new");
+        this.out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(newState), StandardCharsets.UTF_8), NQuadsSink.BUFFER_SIZE);
+    }
+
+    @Override
+    public synchronized void addQuad(Term subject, Term predicate, Term object, Term graph) {
+        if (subject != null && predicate != null && object != null) {
+            String line = toLine(subject, predicate, object, graph);
+
+            try {
+                out.write(line);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            fingerprints.merge(hash(subject.toString()), hash(line), Long::sum);
+        }
+    }
+
+    /**
+     * @return the number of quads passed to the additions sink.
+     */
+    public synchronized long getNumberOfAddedQuads() {
+        return numberOfAddedQuads;
+    }
+
+    /**
+     * @return the number of quads passed to the removals sink.
+     */
+    public synchronized long getNumberOfRemovedQuads() {
+        return numberOfRemovedQuads;
+    }
+
+    /**
+     * @return the number of subjects of which the quads did not change.
+     */
+    public synchronized long getNumberOfUnchangedSubjects() {
+        return numberOfUnchangedSubjects;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * This method compares the quads with the ones of the previous execution, passes the added and removed quads,
+     * closes the sinks and replaces the state file.
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+
+        Map<Long, Long> previousFingerprints = new LinkedHashMap<>();
+
+        if (Files.exists(state)) {
+            forEachLine(state, line -> previousFingerprints.merge(hash(getSubject(line)), hash(line), Long::sum));
+        }
+
+        Set<Long> changedSubjects = new LinkedHashSet<>();
+
+        for (Map.Entry<Long, Long> entry : fingerprints.entrySet()) {
+            if (entry.getValue().equals(previousFingerprints.remove(entry.getKey()))) {
+                numberOfUnchangedSubjects++;
+            } else {
+                changedSubjects.add(entry.getKey());
+            }
+        }
+
+        // The subjects that are not generated anymore.
+        changedSubjects.addAll(previousFingerprints.keySet());
+
+        Map<Long, Set<String>> previousLines = this.getLines(state, changedSubjects);
+        Map<Long, Set<String>> lines = this.getLines(newState, changedSubjects);
+
+        for (Long subject : changedSubjects) {
+            Set<String> previous = previousLines.getOrDefault(subject, Collections.emptySet());
+            Set<String> current = lines.getOrDefault(subject, Collections.emptySet());
+
+            for (String line : previous) {
+                if (!current.contains(line)) {
+                    numberOfRemovedQuads++;
+
+                    if (removals != null) {
+                        addLine(removals, line);
+                    }
+                }
+            }
+
+            for (String line : current) {
+                if (!previous.contains(line)) {
+                    numberOfAddedQuads++;
+                    addLine(additions, line);
+                }
+            }
+        }
+
+        additions.close();
+
+        if (removals != null) {
+            removals.close();
+        }
+
+        Files.move(newState, state, StandardCopyOption.REPLACE_EXISTING);
+        logger.info(numberOfAddedQuads + " quads were added and " + numberOfRemovedQuads + " quads were removed; "
+                + numberOfUnchangedSubjects + " of " + fingerprints.size() + " subjects did not change");
+    }
+
+    /**
+     * @return the lines of the state file of the given subjects, per subject.
+     */
+    private Map<Long, Set<String>> getLines(Path file, Set<Long> subjects) throws IOException {
+        Map<Long, Set<String>> lines = new HashMap<>();
+
+        if (!subjects.isEmpty() && Files.exists(file)) {
+            forEachLine(file, line -> {
+                long subject = hash(getSubject(line));
+
+                if (subjects.contains(subject)) {
+                    lines.computeIfAbsent(subject, key -> new LinkedHashSet<>()).add(line);
+                }
+            });
+        }
+
+        return lines;
+    }
+
+    private static void forEachLine(Path file, Consumer<String> consumer) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    consumer.accept(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the subject of a line, which is an IRI or a blank node and thus does not contain a space.
+     */
+    private static String getSubject(String line) {
+        return line.substring(0, line.indexOf(' '));
+    }
+
+    /**
+     * @return the line of a quad in the state file.
+     */
+    static String toLine(Term subject, Term predicate, Term object, Term graph) {
+        return subject + " " + predicate + " " + object + (graph == null ? "" : " " + graph) + ".";
+    }
+
+    /**
+     * This method parses a line that is written by this sink and adds its quad to a sink.
+     */
+    static void addLine(QuadSink sink, String line) {
+        int[] position = {0};
+        // Without the final dot.
+        String terms = line.substring(0, line.length() - 1);
+        Term subject = parseTerm(terms, position);
+        Term predicate = parseTerm(terms, position);
+        Term object = parseTerm(terms, position);
+        Term graph = position[0] < terms.length() ? parseTerm(terms, position) : null;
+
+        sink.addQuad(subject, predicate, object, graph);
+    }
+
+    /**
+     * This method parses the term that starts at the given position, in the serialization of the toString method of the terms,
+     * and sets the position to the start of the next term.
+     */
+    private static Term parseTerm(String terms, int[] position) {
+        int start = position[0];
+        Term term;
+        int end;
+
+        if (terms.charAt(start) == '<') {
+            end = terms.indexOf('>', start) + 1;
+            term = new NamedNode(terms.substring(start + 1, end - 1));
+        } else if (terms.charAt(start) == '"') {
+            StringBuilder value = new StringBuilder();
+            end = start + 1;
+
+            while (terms.charAt(end) != '"') {
+                char c = terms.charAt(end);
+
+                if (c == '\\') {
+                    end++;
+                    c = terms.charAt(end);
+
+                    if (c == 'n') {
+                        c = '\n';
+                    } else if (c == 'r') {
+                        c = '\r';
+                    } else if (c == 't') {
+                        c = '\t';
+                    }
+                }
+
+                value.append(c);
+                end++;
+            }
+
+            end++;
+
+            if (terms.startsWith("@", end)) {
+                int space = terms.indexOf(' ', end);
+                int languageEnd = space == -1 ? terms.length() : space;
+                term = new Literal(value.toString(), terms.substring(end + 1, languageEnd));
+                end = languageEnd;
+            } else if (terms.startsWith("^^<", end)) {
+                int datatypeEnd = terms.indexOf('>', end) + 1;
+                term = new Literal(value.toString(), new NamedNode(terms.substring(end + 3, datatypeEnd - 1)));
+                end = datatypeEnd;
+            } else {
+                term = new Literal(value.toString());
+            }
+        } else {
+            int space = terms.indexOf(' ', start);
+            end = space == -1 ? terms.length() : space;
+            term = new BlankNode(terms.substring(start + 2, end));
+        }
+
+        position[0] = end + 1;
+
+        return term;
+    }
+
+    /**
+     * This method returns a 64-bit hash of a string: FNV-1a, of which the bits are spread with the finalizer of MurmurHash3.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb53fe1a85ec3L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
@@ -0,0 +1,157 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.Term;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * QuadSink that writes every quad as N-Quads line as soon as it is added.
+ * The quads are not kept in memory: only the buffer of the writer is.
+ */
+public class NQuadsSink implements QuadSink {
+
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+    private final boolean closeWriter;
+    // the file that is written, null if the sink writes to a given writer.
+    private final FileOutputStream file;
+    private long numberOfQuads;
+
+    /**
+     * The sink does not close the writer, so it can be used to write to, for example, System.out.
+     * @param out the writer to write to.
+     */
+    public NQuadsSink(Writer out) {
+        this(out, false, null, 0);
+    }
+
+    /**
+     * The sink writes to a new file, which is closed when the sink is closed.
+     * @param path the path of the file.
+     * @throws IOException
+     */
+    public NQuadsSink(Path path) throws IOException {
+        this(path, 0, 0);
+    }
+
+    /**
+     * The sink continues a file that was written before, for example when a mapping is resumed from a checkpoint.
+     * The file is truncated to the given length, so everything that was written after it is dropped.
+     * @param path the path of the file.
+     * @param length the length of the file in bytes that is kept, as returned by sync.
+     * @param numberOfQuads the number of quads in the part of the file that is kept.
+     * @throws IOException if the file is shorter than the given length.
+     */
+    public NQuadsSink(Path path, long length, long numberOfQuads) throws IOException {
+        this(openFile(path, length), numberOfQuads);
+    }
+
+    private NQuadsSink(FileOutputStream file, long numberOfQuads) {
+        this(new BufferedWriter(new OutputStreamWriter(file, StandardCharsets.UTF_8), BUFFER_SIZE), true, file, numberOfQuads);
+    }
+
+    private NQuadsSink(Writer out, boolean closeWriter, FileOutputStream file, long numberOfQuads) {
+        this.out = out;
+        this.closeWriter = closeWriter;
+        this.file = file;
+        this.numberOfQuads = numberOfQuads;
+    }
+
+    private static FileOutputStream openFile(Path path, long length) throws IOException {
+        if (length > 0 && (!Files.exists(path) || Files.size(path) < length)) {
+            throw new IOException("The file " + path + " is shorter than " + length + " bytes.");
+        }
+
+        FileOutputStream file = new FileOutputStream(path.toFile(), length > 0);
+        file.getChannel().truncate(length);
+
+        return file;
+    }
+
+    @Override
+    public synchronized void addQuad(Term subject, Term predicate, Term object, Term graph) {
+        if (subject != null && predicate != null && object != null) {
+            try {
+                write(out, subject, predicate, object, graph);
+                numberOfQuads++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * This method writes a single line.
+     * @param out the writer to write to.
+     * @param graph the graph, null for the default graph.
+     * @throws IOException
+     */
+    protected void write(Writer out, Term subject, Term predicate, Term object, Term graph) throws IOException {
+        out.write(subject.toString());
+        out.write(' ');
+        out.write(predicate.toString());
+        out.write(' ');
+        out.write(object.toString());
+
+        if (graph != null) {
+            out.write(' ');
+            out.write(graph.toString());
+        }
+
+        out.write(".\n");
+    }
+
+    /**
+     * @return the number of quads written so far.
+     */
+    public synchronized long getNumberOfQuads() {
+        return numberOfQuads;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * @return true if the sink writes to a file, so it can be synced and continued.
+     */
+    public boolean isFileBacked() {
+        return file != null;
+    }
+
+    /**
+     * This method flushes the quads and makes sure that they are written to the storage device, so they survive a crash.
+     * @return the length of the file in bytes, or -1 if the sink writes to a given writer.
+     * @throws IOException
+     */
+    public synchronized long sync() throws IOException {
+        out.flush();
+
+        if (file == null) {
+            return -1;
+        }
+
+        file.getFD().sync();
+
+        return file.getChannel().position();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closeWriter) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.Term;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+/**
+ * QuadSink that writes every quad as N-Triples line as soon as it is added.
+ * The graphs of the quads are dropped.
+ */
+public class NTriplesSink extends NQuadsSink {
+
+    public NTriplesSink(Writer out) {
+        super(out);
+    }
+
+    public NTriplesSink(Path path) throws IOException {
+        super(path);
+    }
+
+    public NTriplesSink(Path path, long length, long numberOfQuads) throws IOException {
+        super(path, length, numberOfQuads);
+    }
+
+    @Override
+    protected void write(Writer out, Term subject, Term predicate, Term object, Term graph) throws IOException {
+        super.write(out, subject, predicate, object, null);
+    }
+}
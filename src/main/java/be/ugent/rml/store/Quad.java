@@ -2,6 +2,8 @@ package be.ugent.rml.store;
 
 import be.ugent.rml.term.Term;
 
+import java.util.Objects;
+
 public class Quad implements Comparable<Quad> {
 
     private Term subject, predicate, object, graph;
@@ -33,6 +35,35 @@ public class Quad implements Comparable<Quad> {
         return graph;
     }
 
+    /**
+     * Two quads are equal if their subjects, predicates, objects and graphs are equal,
+     * where a quad without graph is only equal to another quad without graph.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof Quad)) {
+            return false;
+        }
+
+        Quad quad = (Quad) o;
+
+        return Objects.equals(subject, quad.subject) && Objects.equals(predicate, quad.predicate)
+                && Objects.equals(object, quad.object) && Objects.equals(graph, quad.graph);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Objects.hashCode(subject);
+        hash = 31 * hash + Objects.hashCode(predicate);
+        hash = 31 * hash + Objects.hashCode(object);
+
+        return 31 * hash + Objects.hashCode(graph);
+    }
+
     @Override
     public int compareTo(Quad o) {
         int comparison;
@@ -0,0 +1,39 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.Term;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Push-based destination for generated quads.
+ * Unlike a QuadStore, a sink does not need to keep the quads: it can, for example, write them directly to a file.
+ */
+public interface QuadSink extends Closeable {
+
+    /**
+     * Add given Quad to the sink.
+     * Implementations that write the quad throw an UncheckedIOException when writing fails.
+     * @param subject
+     * @param predicate
+     * @param object
+     * @param graph can be null for the default graph
+     */
+    void addQuad(Term subject, Term predicate, Term object, Term graph);
+
+    /**
+     * Make sure all quads added so far reached their destination.
+     * @throws IOException
+     */
+    default void flush() throws IOException {
+    }
+
+    /**
+     * Flush the sink and release its resources.
+     * @throws IOException
+     */
+    @Override
+    default void close() throws IOException {
+        flush();
+    }
+}
@@ -0,0 +1,25 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.Term;
+
+/**
+ * QuadSink that adds the quads to a QuadStore.
+ * This is the default sink of the executors, so that the generated quads are available in the resulting QuadStore.
+ */
+public class QuadStoreSink implements QuadSink {
+
+    private final QuadStore store;
+
+    public QuadStoreSink(QuadStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void addQuad(Term subject, Term predicate, Term object, Term graph) {
+        store.addQuad(subject, predicate, object, graph);
+    }
+
+    public QuadStore getStore() {
+        return store;
+    }
+}
@@ -0,0 +1,200 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.Term;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * QuadSink that passes the quads to another sink in a separate thread, so that generating the quads
+ * and serializing and writing them overlap.
+ * The quads are passed in batches via a bounded queue: if the other sink is slower than the quads are generated,
+ * for example a triples store, the queue fills up and adding quads waits (backpressure),
+ * so the quads that are not written yet do not grow without limit.
+ * A failure of the other sink is thrown by the next call of addQuad, flush or close.
+ */
+public class QueuedQuadSink implements QuadSink {
+
+    public static final int DEFAULT_CAPACITY = 16;
+    public static final int BATCH_SIZE = 1024;
+
+    private final QuadSink sink;
+    private final BlockingQueue<Batch> queue;
+    private final Thread writer;
+    private Batch batch = new Batch();
+    private volatile Throwable failure;
+
+    /**
+     * @param sink the sink to which the quads are passed.
+     * @param capacity the maximum number of batches of quads that are not written yet.
+     */
+    public QueuedQuadSink(QuadSink sink, int capacity) {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::write, "quad-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public synchronized void addQuad(Term subject, Term predicate, Term object, Term graph) {
+        this.checkFailure();
+
+        batch.add(subject, predicate, object, graph);
+
+        if (batch.size == BATCH_SIZE) {
+            try {
+                this.put(batch);
+            } catch (InterruptedIOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            batch = new Batch();
+        }
+    }
+
+    /**
+     * This method waits until all quads added so far are passed to the other sink and flushes it.
+     * @throws IOException
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        this.await(false);
+        sink.flush();
+    }
+
+    /**
+     * This method waits until all quads are passed to the other sink, stops the thread and closes the other sink.
+     * The other sink is closed also after a failure, which is then thrown with the failure of closing it as suppressed exception.
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        Throwable failed = null;
+
+        try {
+            this.await(true);
+
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        } catch (Throwable t) {
+            failed = t;
+            throw t;
+        } finally {
+            try {
+                sink.close();
+            } catch (IOException | RuntimeException | Error e) {
+                if (failed == null) {
+                    throw e;
+                }
+
+                failed.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * This method passes the current batch, marked as the last one if the thread stops, and waits until it is written.
+     */
+    private void await(boolean last) throws IOException {
+        batch.done = new CountDownLatch(1);
+        batch.last = last;
+        Batch marked = batch;
+        this.put(batch);
+        batch = new Batch();
+
+        try {
+            marked.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        this.checkFailure();
+    }
+
+    private void put(Batch batch) throws InterruptedIOException {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * This method is executed by the thread: it passes the quads of the batches to the other sink.
+     * After a failure, the batches are still taken from the queue, so that the sink does not wait for them, but they are dropped.
+     */
+    private void write() {
+        while (true) {
+            Batch next;
+
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                failure = e;
+                return;
+            }
+
+            if (failure == null) {
+                try {
+                    Term[] terms = next.terms;
+
+                    for (int i = 0; i < next.size * 4; i += 4) {
+                        sink.addQuad(terms[i], terms[i + 1], terms[i + 2], terms[i + 3]);
+                    }
+                } catch (Throwable t) {
+                    failure = t;
+                }
+            }
+
+            if (next.done != null) {
+                next.done.countDown();
+            }
+
+            if (next.last) {
+                return;
+            }
+        }
+    }
+
+    private void checkFailure() {
+        Throwable t = failure;
+
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new IllegalStateException("Writing the quads failed.", t);
+        }
+    }
+
+    private static class Batch {
+
+        // the subject, predicate, object and graph of every quad.
+        private final Term[] terms = new Term[BATCH_SIZE * 4];
+        private int size;
+        // counted down when the batch is written, null if no one waits for it.
+        private CountDownLatch done;
+        private boolean last;
+
+        void add(Term subject, Term predicate, Term object, Term graph) {
+            int i = size * 4;
+            terms[i] = subject;
+            terms[i + 1] = predicate;
+            terms[i + 2] = object;
+            terms[i + 3] = graph;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.Term;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * State of incremental re-mapping per input record, next to the state of the IncrementalSink.
+ * A record is identified by its key, a fingerprint of its Triples Map and of the values of the record it uses.
+ * The state file holds the key of every record that is mapped together with the quads it generates (one line per quad),
+ * so a record of which the key did not change since the previous execution does not need to be mapped again:
+ * its quads are read from the previous state file instead.
+ * This is only correct for records of which the quads depend on nothing but these values (see Executor.setRecordState).
+ * The previous state file is replaced when this state is closed.
+ */
+public class RecordState implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecordState.class);
+
+    private final Path state;
+    private final Path newState;
+    private final Writer out;
+    // the keys of the records of the previous execution.
+    private final Set<Long> previousKeys = new HashSet<>();
+    // the keys of the records of this execution, mapped or not.
+    private final Set<Long> keys = new HashSet<>();
+    // the keys of the records of this execution of which the quads are taken from the previous execution.
+    private final Set<Long> unchangedKeys = new HashSet<>();
+    private long numberOfMappedRecords;
+
+    /**
+     * @param state the state file, which does not exist before the first execution.
+     * @throws IOException
+     */
+    public RecordState(Path state) throws IOException {
+        this.state = state;
+        this.newState = state.resolveSibling(state.getFileName() + ".new");
+
+        if (Files.exists(state)) {
+            try (BufferedReader in = Files.newBufferedReader(state, StandardCharsets.UTF_8)) {
+                String line;
+
+                while ((line = in.readLine()) != null) {
+                    if (line.indexOf('\t') == -1 && !line.isEmpty()) {
+                        previousKeys.add(Long.parseUnsignedLong(line, 16));
+                    }
+                }
+            }
+        }
+
+        this.out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(newState), StandardCharsets.UTF_8), NQuadsSink.BUFFER_SIZE);
+    }
+
+    /**
+     * @param description the description of a record: its Triples Map and the values it uses.
+     * @return the key of the record.
+     */
+    public long getKey(String description) {
+        return IncrementalSink.hash(description);
+    }
+
+    /**
+     * This method checks whether a record needs to be mapped, which is the case if its key is not in the previous execution
+     * and no record with the same key is mapped already in this execution.
+     * If it needs to be mapped, the quads it generates have to be added with its key.
+     * @param key the key of the record.
+     * @return true if the record needs to be mapped.
+     */
+    public synchronized boolean isChanged(long key) {
+        if (!keys.add(key)) {
+            // A record with the same values generates the same quads.
+            return false;
+        }
+
+        if (previousKeys.contains(key)) {
+            unchangedKeys.add(key);
+
+            return false;
+        }
+
+        numberOfMappedRecords++;
+        write(Long.toHexString(key));
+
+        return true;
+    }
+
+    /**
+     * This method adds a quad that is generated by a record that is mapped.
+     * @param key the key of the record.
+     */
+    public synchronized void addQuad(long key, Term subject, Term predicate, Term object, Term graph) {
+        if (subject != null && predicate != null && object != null) {
+            write(Long.toHexString(key) + "\t" + IncrementalSink.toLine(subject, predicate, object, graph));
+        }
+    }
+
+    /**
+     * This method passes the quads of the records that did not change since the previous execution to a sink
+     * and keeps them for the next execution.
+     * @param sink the sink, which is not closed.
+     * @throws IOException
+     */
+    public synchronized void addUnchangedQuads(QuadSink sink) throws IOException {
+        if (unchangedKeys.isEmpty()) {
+            return;
+        }
+
+        try (BufferedReader in = Files.newBufferedReader(state, StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                String key = tab == -1 ? line : line.substring(0, tab);
+
+                if (!key.isEmpty() && unchangedKeys.contains(Long.parseUnsignedLong(key, 16))) {
+                    write(line);
+
+                    if (tab != -1) {
+                        IncrementalSink.addLine(sink, line.substring(tab + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of records of which the quads are taken from the previous execution.
+     */
+    public synchronized long getNumberOfUnchangedRecords() {
+        return unchangedKeys.size();
+    }
+
+    /**
+     * @return the number of records that are mapped.
+     */
+    public synchronized long getNumberOfMappedRecords() {
+        return numberOfMappedRecords;
+    }
+
+    /**
+     * This method replaces the state file of the previous execution.
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+        Files.move(newState, state, StandardCopyOption.REPLACE_EXISTING);
+        logger.info(unchangedKeys.size() + " records did not change and " + numberOfMappedRecords + " records were mapped");
+    }
+
+    private void write(String line) {
+        try {
+            out.write(line);
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package be.ugent.rml.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scalable Bloom filter: a sequence of Bloom filters of which every next one has twice the capacity
+ * and half the false positive rate of the previous one, so that the total false positive rate stays below the requested one,
+ * whatever the number of keys.
+ * A new filter is only added as long as the total memory stays below the given maximum.
+ * After that, keys are added to the last filter and the false positive rate increases.
+ * The keys are given as two 64-bit hashes, from which the positions in the filters are derived via double hashing.
+ */
+public class ScalableBloomFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScalableBloomFilter.class);
+
+    public static final long DEFAULT_INITIAL_CAPACITY = 1 << 20;
+    // no filter is added anymore if less memory is left (in bits).
+    private static final long MIN_BITS = 1 << 16;
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+
+    private final long maxBits;
+    private final List<Filter> filters = new ArrayList<>();
+    private long bits;
+    private boolean full;
+
+    /**
+     * @param falsePositiveRate the maximum probability that a new key is considered to be added before.
+     * @param maxBytes the maximum memory used by the filters.
+     */
+    public ScalableBloomFilter(double falsePositiveRate, long maxBytes) {
+        this(falsePositiveRate, maxBytes, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param falsePositiveRate the maximum probability that a new key is considered to be added before.
+     * @param maxBytes the maximum memory used by the filters.
+     * @param initialCapacity the number of keys of the first filter.
+     */
+    public ScalableBloomFilter(double falsePositiveRate, long maxBytes, long initialCapacity) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The false positive rate must be between 0 and 1.");
+        }
+
+        this.maxBits = Math.max(maxBytes * 8, MIN_BITS);
+        // The false positive rates of the filters halve, so their sum stays below the requested false positive rate.
+        this.addFilter(Math.max(initialCapacity, 1), falsePositiveRate / 2);
+    }
+
+    /**
+     * This method adds a key, if it is not (probably) added before.
+     * @param hash1 the first hash of the key.
+     * @param hash2 the second hash of the key.
+     * @return true if the key is added, false if it is probably added before.
+     */
+    public boolean add(long hash1, long hash2) {
+        for (int i = 0; i < filters.size(); i++) {
+            if (filters.get(i).contains(hash1, hash2)) {
+                return false;
+            }
+        }
+
+        Filter last = filters.get(filters.size() - 1);
+
+        if (last.count >= last.capacity && !full) {
+            last = this.addFilter(last.capacity * 2, last.falsePositiveRate / 2);
+        }
+
+        last.add(hash1, hash2);
+
+        return true;
+    }
+
+    /**
+     * @return the memory used by the filters in bytes.
+     */
+    public long getBytes() {
+        return bits / 8;
+    }
+
+    /**
+     * @return the estimated probability that a new key is considered to be added before,
+     * based on the number of keys in the filters.
+     */
+    public double getEstimatedFalsePositiveRate() {
+        double none = 1;
+
+        for (Filter filter : filters) {
+            none *= 1 - Math.pow(1 - Math.exp(-(double) filter.hashes * filter.count / filter.size), filter.hashes);
+        }
+
+        return 1 - none;
+    }
+
+    /**
+     * This method adds a filter with the optimal size and number of hashes for the given capacity and false positive rate.
+     * If there is not enough memory left, the filter is made smaller and its capacity is reduced accordingly.
+     * @return the last filter.
+     */
+    private Filter addFilter(long capacity, double falsePositiveRate) {
+        if (maxBits - bits < MIN_BITS && !filters.isEmpty()) {
+            logger.warn("The duplicates filter reached its memory limit of " + maxBits / 8 / 1024 / 1024 + " MB, its false positive rate increases.");
+            full = true;
+
+            return filters.get(filters.size() - 1);
+        }
+
+        long size = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / LN2_SQUARED);
+        size = Math.min(size, maxBits - bits);
+        int hashes = Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / Math.log(2)));
+        capacity = Math.max(1, (long) (size * LN2_SQUARED / -Math.log(falsePositiveRate)));
+        Filter filter = new Filter(size, hashes, capacity, falsePositiveRate);
+
+        filters.add(filter);
+        bits += filter.size;
+
+        return filter;
+    }
+
+    private static class Filter {
+
+        private final long[] words;
+        private final long size;
+        private final int hashes;
+        private final long capacity;
+        private final double falsePositiveRate;
+        private long count;
+
+        Filter(long size, int hashes, long capacity, double falsePositiveRate) {
+            this.words = new long[(int) ((size + 63) / 64)];
+            this.size = (long) words.length * 64;
+            this.hashes = hashes;
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+        }
+
+        boolean contains(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % size;
+
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        void add(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % size;
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+
+            count++;
+        }
+    }
+}
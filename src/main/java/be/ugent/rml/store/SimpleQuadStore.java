@@ -6,43 +6,44 @@ import org.eclipse.rdf4j.rio.RDFFormat;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 /**
  * Implementation of QuadStore with {@code List<Quad>} quads.
+ * Once duplicates are removed, the quads are kept in a hash set in insertion order,
+ * so that duplicates are also removed when they are added.
  * Package-private
  */
 public class SimpleQuadStore extends QuadStore {
 
-    private List<Quad> quads;
+    private Collection<Quad> quads;
 
     public SimpleQuadStore() {
-        quads = new ArrayList<>();
+        this(false);
     }
 
+    /**
+     * @param removeDuplicates true if duplicate quads are removed when they are added.
+     */
+    public SimpleQuadStore(boolean removeDuplicates) {
+        if (removeDuplicates) {
+            quads = new LinkedHashSet<>();
+        } else {
+            quads = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Remove duplicate quads, keeping the first occurrence of every quad.
+     * From then on, duplicate quads are removed when they are added.
+     */
     @Override
     public void removeDuplicates() {
-        List<Quad> quadsWithDuplicates = new ArrayList<>();
-
-        for (Quad q : quads) {
-            int i = 0;
-
-            while (i < quadsWithDuplicates.size() && !(quadsWithDuplicates.get(i).getSubject().equals(q.getSubject())
-                    && quadsWithDuplicates.get(i).getObject().equals(q.getObject())
-                    && quadsWithDuplicates.get(i).getPredicate().equals(q.getPredicate())
-                    && !(quadsWithDuplicates.get(i).getGraph() == null && q.getGraph() != null)
-                    && !(quadsWithDuplicates.get(i).getGraph() != null && q.getGraph() == null)
-                    && ((quadsWithDuplicates.get(i).getGraph() == null && q.getGraph() == null) || quadsWithDuplicates.get(i).getGraph().equals(q.getGraph()))
-            )) {
-                i++;
-            }
-
-            if (i == quadsWithDuplicates.size()) {
-                quadsWithDuplicates.add(q);
-            }
+        if (!(quads instanceof LinkedHashSet)) {
+            quads = new LinkedHashSet<>(quads);
         }
-
-        quads = quadsWithDuplicates;
     }
 
     @Override
@@ -96,7 +97,10 @@ public class SimpleQuadStore extends QuadStore {
     public void write(Writer out, String format) throws IOException {
         switch (format) {
             case "nquads":
-                toNQuads(out);
+                write(new NQuadsSink(out));
+                break;
+            case "ntriples":
+                write(new NTriplesSink(out));
                 break;
             default:
                 throw new Error("Serialization " + format + " not supported");
@@ -133,21 +137,11 @@ public class SimpleQuadStore extends QuadStore {
         throw new UnsupportedOperationException("Method not implemented.");
     }
 
-    private void toNQuads(Writer out) throws IOException {
+    private void write(QuadSink sink) throws IOException {
         for (Quad q : quads) {
-            out.write(getNQuadOfQuad(q) + "\n");
+            sink.addQuad(q.getSubject(), q.getPredicate(), q.getObject(), q.getGraph());
         }
-    }
-
-    private String getNQuadOfQuad(Quad q) {
-        String str = q.getSubject() + " " + q.getPredicate() + " " + q.getObject();
-
-        if (q.getGraph() != null) {
-            str += " " + q.getGraph();
-        }
-
-        str += ".";
 
-        return str;
+        sink.flush();
     }
 }
@@ -18,7 +18,7 @@ public class BlankNode extends AbstractTerm {
     @Override
     public boolean equals(Object o) {
         if (o instanceof BlankNode) {
-            return o.toString().equals(toString());
+            return ((BlankNode) o).getValue().equals(getValue());
         } else {
             return false;
         }
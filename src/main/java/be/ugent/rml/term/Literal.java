@@ -33,7 +33,7 @@ public class Literal extends AbstractTerm {
     public String toString() {
         String temp = "\"" + escapeValue(this.getValue()) + "\"";
 
-        if (this.language != null && !this.language.equals("")) {
+        if (this.hasLanguage()) {
             temp += "@" + this.language;
         } else if (this.datatype != null) {
             temp += "^^" + this.datatype;
@@ -42,15 +42,37 @@ public class Literal extends AbstractTerm {
         return temp;
     }
 
+    /**
+     * Two literals are equal if they have the same serialization,
+     * which is checked on the value, the language and the datatype without serializing the literals.
+     */
     @Override
     public boolean equals(Object o) {
         if (o instanceof Literal) {
-            return o.toString().equals(toString());
+            Literal literal = (Literal) o;
+
+            if (!literal.getValue().equals(getValue())) {
+                return false;
+            }
+
+            if (hasLanguage() || literal.hasLanguage()) {
+                return hasLanguage() && literal.hasLanguage() && language.equals(literal.language);
+            }
+
+            if (datatype == null || literal.datatype == null) {
+                return datatype == literal.datatype;
+            }
+
+            return datatype.toString().equals(literal.datatype.toString());
         } else {
             return false;
         }
     }
 
+    private boolean hasLanguage() {
+        return this.language != null && !this.language.equals("");
+    }
+
     /**
      * Escapes a Unicode string to an N-Triples compatible character sequence. Any special characters are
      * escaped using backslashes (<tt>"</tt> becomes <tt>\"</tt>, etc.), and non-ascii/non-printable
@@ -14,7 +14,7 @@ public class NamedNode extends AbstractTerm {
     @Override
     public boolean equals(Object o) {
         if (o instanceof NamedNode) {
-            return o.toString().equals(toString());
+            return ((NamedNode) o).getValue().equals(getValue());
         } else {
             return false;
         }
@@ -1,6 +1,6 @@
 package be.ugent.rml.termgenerator;
 
-import be.ugent.rml.Executor;
+import be.ugent.rml.BlankNodeScope;
 import be.ugent.rml.functions.SingleRecordFunctionExecutor;
 import be.ugent.rml.records.Record;
 import be.ugent.rml.term.BlankNode;
@@ -31,9 +31,15 @@ public class BlankNodeGenerator extends TermGenerator {
                 nodes.add(new BlankNode(object));
             });
         } else {
-            nodes.add(new BlankNode("" + Executor.getNewBlankNodeID()));
+            nodes.add(new BlankNode(BlankNodeScope.nextID()));
         }
 
         return nodes;
     }
+
+    @Override
+    public boolean isRepeatable() {
+        // Without a function, a new blank node is created every time.
+        return this.functionExecutor != null;
+    }
 }
@@ -0,0 +1,50 @@
+package be.ugent.rml.termgenerator;
+
+import be.ugent.rml.records.Record;
+import be.ugent.rml.term.Term;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class generates the same, preallocated terms for every record.
+ * It replaces the generator of a constant term map (e.g., rr:constant, rr:class) when the mapping is created.
+ */
+public class ConstantTermGenerator extends TermGenerator {
+
+    private final List<Term> terms;
+    // the generator of which the terms are folded, used to describe this generator.
+    private final TermGenerator generator;
+
+    public ConstantTermGenerator(TermGenerator generator) throws Exception {
+        super(null);
+        this.generator = generator;
+        this.terms = Collections.unmodifiableList(generator.generate(null));
+    }
+
+    /**
+     * This method returns the preallocated terms, which are shared by all records and cannot be modified.
+     * @param record the record, which is not used.
+     * @return the terms.
+     */
+    @Override
+    public List<Term> generate(Record record) {
+        return terms;
+    }
+
+    @Override
+    public boolean isConstant() {
+        return true;
+    }
+
+    @Override
+    public Set<String> getReferences() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public String toString() {
+        return generator.toString();
+    }
+}
@@ -101,4 +101,9 @@ public class LiteralGenerator extends TermGenerator {
             return objects;
         }
     }
+
+    @Override
+    public boolean isConstant() {
+        return super.isConstant() && (languageExecutor == null || languageExecutor instanceof ConstantExtractor);
+    }
 }
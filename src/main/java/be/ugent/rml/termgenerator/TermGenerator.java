@@ -1,11 +1,18 @@
 package be.ugent.rml.termgenerator;
 
+import be.ugent.rml.extractor.ConstantExtractor;
+import be.ugent.rml.extractor.Extractor;
+import be.ugent.rml.extractor.ReferenceExtractor;
+import be.ugent.rml.functions.ConcatFunction;
 import be.ugent.rml.functions.SingleRecordFunctionExecutor;
 import be.ugent.rml.records.Record;
 import be.ugent.rml.term.Term;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public abstract class TermGenerator {
 
@@ -17,6 +24,50 @@ public abstract class TermGenerator {
 
     public abstract List<Term> generate(Record record) throws Exception;
 
+    /**
+     * This method returns whether the generated terms are the same for every record.
+     * The terms of a constant generator can be generated once, without a record.
+     * @return true if the terms do not depend on the record.
+     */
+    public boolean isConstant() {
+        return functionExecutor instanceof ConstantExtractor;
+    }
+
+    /**
+     * This method returns whether generating the terms of the same record again returns the same terms.
+     * @return false if new terms are created every time, e.g., blank nodes without a template.
+     */
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    /**
+     * This method returns the references of the record that the generated terms depend on.
+     * Only the first value of every reference is used for the first generated term.
+     * @return the references of a constant, reference or template, or null if the terms depend on something else (e.g., a function).
+     */
+    public Set<String> getReferences() {
+        if (functionExecutor instanceof ConstantExtractor) {
+            return Collections.emptySet();
+        } else if (functionExecutor instanceof ReferenceExtractor) {
+            return Collections.singleton(((ReferenceExtractor) functionExecutor).reference);
+        } else if (functionExecutor instanceof ConcatFunction) {
+            Set<String> references = new HashSet<>();
+
+            for (Extractor extractor : ((ConcatFunction) functionExecutor).getExtractors()) {
+                if (extractor instanceof ReferenceExtractor) {
+                    references.add(((ReferenceExtractor) extractor).reference);
+                } else if (!(extractor instanceof ConstantExtractor)) {
+                    return null;
+                }
+            }
+
+            return references;
+        }
+
+        return null;
+    }
+
     /**
      * to string method
      * @return string
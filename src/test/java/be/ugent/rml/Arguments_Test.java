@@ -1,6 +1,8 @@
 package be.ugent.rml;
 
+import be.ugent.rml.cli.Coordinator;
 import be.ugent.rml.cli.Main;
+import be.ugent.rml.store.QuadStoreFactory;
 import org.junit.Test;
 import org.rdfhdt.hdt.hdt.HDT;
 import org.rdfhdt.hdt.hdt.HDTManager;
@@ -11,6 +13,8 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.not;
@@ -320,4 +324,41 @@ public class Arguments_Test extends TestCore {
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void workers() throws Exception {
+        for (String testCase : new String[]{"RMLTC0009a-CSV", "RMLTC1005a-CSV"}) {
+            String cwd = (new File("./src/test/resources/test-cases/" + testCase)).getAbsolutePath();
+            String mappingFilePath = (new File(cwd, "mapping.ttl")).getAbsolutePath();
+            String actualNQuadsPath = (new File("./generated_output.nq")).getAbsolutePath();
+
+            // Every worker process maps a partition of the child source and reads the parent source completely.
+            Main.main(("-m " + mappingFilePath + " -o " + actualNQuadsPath + " -w 3 -d").split(" "), cwd);
+            compareFiles(
+                    "test-cases/" + testCase + "/output.nq",
+                    actualNQuadsPath,
+                    false
+            );
+
+            assertTrue(new File(actualNQuadsPath).delete());
+        }
+    }
+
+    @Test
+    public void failedWorker() throws Exception {
+        String cwd = (new File("./src/test/resources/test-cases/RMLTC0009a-CSV")).getAbsolutePath();
+        File mappingFile = new File(cwd, "mapping.ttl");
+        File output = new File("./generated_output.nq");
+        Coordinator coordinator = new Coordinator(QuadStoreFactory.read(mappingFile), cwd, 2);
+
+        // The workers fail, because they get an option that does not exist.
+        try {
+            coordinator.execute(Collections.emptyList(), Arrays.asList("-m", mappingFile.getAbsolutePath(), "--unknownOption"), "student.csv", output, false);
+            fail("Expecting error not found");
+        } catch (IOException e) {
+            // I expected you!
+        }
+
+        assertFalse(output.exists());
+    }
 }
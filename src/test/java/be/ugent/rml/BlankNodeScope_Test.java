@@ -0,0 +1,169 @@
+package be.ugent.rml;
+
+import be.ugent.rml.records.RecordsFactory;
+import be.ugent.rml.store.Quad;
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.store.QuadStoreFactory;
+import be.ugent.rml.term.BlankNode;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BlankNodeScope_Test extends TestCore {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void scopes() {
+        Term triplesMap = new NamedNode("http://example.com/TriplesMap");
+        String key = BlankNodeScope.getKey(triplesMap);
+
+        assertEquals(key, BlankNodeScope.getKey(new NamedNode("http://example.com/TriplesMap")));
+        assertNotEquals(key, BlankNodeScope.getKey(new NamedNode("http://example.com/TriplesMap2")));
+        // Outside a scope, the identifiers are random.
+        assertNotEquals(BlankNodeScope.nextID(), BlankNodeScope.nextID());
+
+        try (BlankNodeScope record = BlankNodeScope.open(key, 5, false)) {
+            assertEquals(key + "_5_0", BlankNodeScope.nextID());
+
+            // The subject of a record is the same, also when it is generated in the scope of another record.
+            try (BlankNodeScope subject = BlankNodeScope.open(key, 5, true)) {
+                assertEquals(key + "_5", BlankNodeScope.nextID());
+            }
+
+            assertEquals(key + "_5_1", BlankNodeScope.nextID());
+        }
+
+        assertFalse(BlankNodeScope.nextID().startsWith(key));
+    }
+
+    @Test
+    public void unnamedTriplesMaps() throws Exception {
+        String mapping = "@prefix rr: <http://www.w3.org/ns/r2rml#> .\n" +
+                "@prefix rml: <http://semweb.mmlab.be/ns/rml#> .\n" +
+                "@prefix ql: <http://semweb.mmlab.be/ns/ql#> .\n" +
+                "[] rml:logicalSource [ rml:source \"people.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:termType rr:BlankNode ].\n" +
+                "[] rml:logicalSource [ rml:source \"people.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:termType rr:BlankNode ].\n" +
+                "[] rml:logicalSource [ rml:source \"teams.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:termType rr:BlankNode ].\n";
+        File mappingFile = folder.newFile("mapping.ttl");
+        Files.write(mappingFile.toPath(), mapping.getBytes(StandardCharsets.UTF_8));
+
+        // The identifiers of the Triples Maps are different every time the mapping is parsed, their keys are not.
+        QuadStore first = QuadStoreFactory.read(mappingFile);
+        QuadStore second = QuadStoreFactory.read(mappingFile);
+        Set<String> firstKeys = new HashSet<>(BlankNodeScope.getKeys(first, new Initializer(first, null).getTriplesMaps()).values());
+        Set<String> secondKeys = new HashSet<>(BlankNodeScope.getKeys(second, new Initializer(second, null).getTriplesMaps()).values());
+
+        assertEquals(3, firstKeys.size());
+        assertEquals(firstKeys, secondKeys);
+    }
+
+    @Test
+    public void prefixPerExecutor() throws Exception {
+        String mapPath = writePeopleAndTeams();
+        Executor first = createExecutor(mapPath);
+        Executor second = createExecutor(mapPath);
+        first.setBlankNodePrefix("first_");
+
+        // The prefix of one executor does not apply to another executor in the same JVM.
+        for (Quad quad : first.execute(null).getQuads(null, null, null)) {
+            assertTrue(quad.getSubject().getValue().startsWith("first_"));
+        }
+
+        for (Quad quad : second.execute(null).getQuads(null, null, null)) {
+            assertFalse(quad.getSubject().getValue().startsWith("first_"));
+        }
+    }
+
+    @Test
+    public void sameBlankNodesForEveryExecution() throws Exception {
+        String mapPath = writePeopleAndTeams();
+        Set<Quad> expected = new HashSet<>(createExecutor(mapPath).execute(null).getQuads(null, null, null));
+
+        // The objects of the joins are the subjects of the teams.
+        Set<Term> teamSubjects = new HashSet<>();
+        Set<Term> teamObjects = new HashSet<>();
+
+        for (Quad quad : expected) {
+            assertTrue(quad.getSubject() instanceof BlankNode);
+
+            if (quad.getPredicate().getValue().equals("http://example.com/label")) {
+                teamSubjects.add(quad.getSubject());
+            } else if (quad.getPredicate().getValue().equals("http://example.com/team")) {
+                teamObjects.add(quad.getObject());
+            }
+        }
+
+        assertEquals(210, expected.size());
+        assertEquals(10, teamSubjects.size());
+        assertEquals(teamSubjects, teamObjects);
+
+        // The same blank nodes are generated again, in parallel, via sort-merge joins and by the ConcurrentExecutor.
+        assertEquals(expected, new HashSet<>(createExecutor(mapPath).execute(null).getQuads(null, null, null)));
+
+        Executor parallel = createExecutor(mapPath);
+        parallel.setParallelism(4);
+        parallel.setChunkSize(1);
+        assertEquals(expected, new HashSet<>(parallel.execute(null).getQuads(null, null, null)));
+
+        Executor sortMergeJoin = createExecutor(mapPath);
+        sortMergeJoin.setSortMergeJoin(true);
+        assertEquals(expected, new HashSet<>(sortMergeJoin.execute(null).getQuads(null, null, null)));
+
+        QuadStore rmlStore = QuadStoreFactory.read(new File(mapPath));
+        ConcurrentExecutor concurrent = new ConcurrentExecutor(rmlStore, new RecordsFactory(folder.getRoot().getPath()), null);
+        List<Quad> quads = concurrent.execute(null).getQuads(null, null, null);
+        assertEquals(expected, new HashSet<>(quads));
+    }
+
+    /**
+     * @return the path of a mapping of which the subjects of both Triples Maps are blank nodes without template, with a join.
+     */
+    private String writePeopleAndTeams() throws Exception {
+        StringBuilder people = new StringBuilder("ID,Name,Team\n");
+
+        for (int i = 0; i < 100; i++) {
+            people.append(i).append(",Name ").append(i).append(",").append(i % 10).append("\n");
+        }
+
+        StringBuilder teams = new StringBuilder("ID,Label\n");
+
+        for (int i = 0; i < 10; i++) {
+            teams.append(i).append(",Team ").append(i).append("\n");
+        }
+
+        Files.write(folder.newFile("people.csv").toPath(), people.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(folder.newFile("teams.csv").toPath(), teams.toString().getBytes(StandardCharsets.UTF_8));
+
+        File mappingFile = folder.newFile("mapping.ttl");
+        Files.write(mappingFile.toPath(), ("@prefix rr: <http://www.w3.org/ns/r2rml#> .\n" +
+                "@prefix rml: <http://semweb.mmlab.be/ns/rml#> .\n" +
+                "@prefix ql: <http://semweb.mmlab.be/ns/ql#> .\n" +
+                "@prefix ex: <http://example.com/> .\n" +
+                "ex:People rml:logicalSource [ rml:source \"people.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:termType rr:BlankNode ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:name; rr:objectMap [ rml:reference \"Name\" ] ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:team; rr:objectMap [ rr:parentTriplesMap ex:Teams;\n" +
+                "    rr:joinCondition [ rr:child \"Team\"; rr:parent \"ID\" ] ] ].\n" +
+                "ex:Teams rml:logicalSource [ rml:source \"teams.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:termType rr:BlankNode ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:label; rr:objectMap [ rml:reference \"Label\" ] ].\n").getBytes(StandardCharsets.UTF_8));
+
+        return mappingFile.getPath();
+    }
+}
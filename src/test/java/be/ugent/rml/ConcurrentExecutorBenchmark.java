@@ -0,0 +1,129 @@
+package be.ugent.rml;
+
+import be.ugent.rml.records.RecordsFactory;
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.store.QuadStoreFactory;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Scaling benchmark of the ConcurrentExecutor, which is not run by the tests.
+ * It maps a synthetic join (the shape of RMLTC0009a: every child record is joined with one of the parent records)
+ * with every given number of threads and prints the median time and the speed-up compared to the first number of threads.
+ * Usage: ConcurrentExecutorBenchmark [children] [parents] [runs] [threads...],
+ * by default 200000 children, 1000 parents, 3 runs and 1, 2, 4, 8, 16 and 32 threads.
+ * Run it on a machine with at least as many cores as threads, e.g., after mvn test-compile:
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; be.ugent.rml.ConcurrentExecutorBenchmark
+ */
+public class ConcurrentExecutorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int children = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int parents = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int[] threads = args.length > 3 ? Arrays.stream(args, 3, args.length).mapToInt(Integer::parseInt).toArray() : new int[]{1, 2, 4, 8, 16, 32};
+
+        int defaultThreads = ConcurrentExecutor.NUM_THREADS;
+        Path directory = Files.createTempDirectory("benchmark");
+
+        try {
+            File mappingFile = writeJoin(directory, children, parents);
+            QuadStore rmlStore = QuadStoreFactory.read(mappingFile);
+
+            System.out.println("available processors: " + Runtime.getRuntime().availableProcessors()
+                    + ", children: " + children + ", parents: " + parents + ", median of " + runs + " runs");
+            System.out.println("threads   time (ms)   speed-up   quads");
+
+            long first = 0;
+
+            for (int n : threads) {
+                setThreads(n);
+
+                // The first run warms up the JIT compiler and the thread pool.
+                execute(rmlStore, directory);
+
+                long[] times = new long[runs];
+                int quads = 0;
+
+                for (int r = 0; r < runs; r++) {
+                    long start = System.nanoTime();
+                    quads = execute(rmlStore, directory).size();
+                    times[r] = (System.nanoTime() - start) / 1000000;
+                }
+
+                Arrays.sort(times);
+                long median = times[runs / 2];
+
+                if (first == 0) {
+                    first = median;
+                }
+
+                System.out.println(String.format("%7d   %9d   %8.2f   %d", n, median, (double) first / median, quads));
+            }
+        } finally {
+            setThreads(defaultThreads);
+
+            for (File file : directory.toFile().listFiles()) {
+                file.delete();
+            }
+
+            Files.delete(directory);
+        }
+    }
+
+    private static QuadStore execute(QuadStore rmlStore, Path directory) throws Exception {
+        return new ConcurrentExecutor(rmlStore, new RecordsFactory(directory.toString()), "http://example.com/base/").execute(null);
+    }
+
+    /**
+     * This method replaces the thread pool of the ConcurrentExecutor by one with the given number of threads.
+     */
+    private static void setThreads(int threads) {
+        if (ConcurrentExecutor.executorService != null) {
+            ConcurrentExecutor.executorService.shutdown();
+            ConcurrentExecutor.executorService = null;
+        }
+
+        ConcurrentExecutor.NUM_THREADS = threads;
+    }
+
+    /**
+     * @return the mapping of the children and their parents, which are written to the given directory.
+     */
+    private static File writeJoin(Path directory, int children, int parents) throws Exception {
+        StringBuilder child = new StringBuilder("ID,Name,Sport\n");
+
+        for (int i = 0; i < children; i++) {
+            child.append(i).append(",Student ").append(i).append(",").append((i * 7919L) % parents).append("\n");
+        }
+
+        StringBuilder parent = new StringBuilder("ID,Name\n");
+
+        for (int i = 0; i < parents; i++) {
+            parent.append(i).append(",Sport ").append(i).append("\n");
+        }
+
+        Files.write(directory.resolve("student.csv"), child.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("sport.csv"), parent.toString().getBytes(StandardCharsets.UTF_8));
+
+        File mappingFile = directory.resolve("mapping.ttl").toFile();
+        Files.write(mappingFile.toPath(), ("@prefix rr: <http://www.w3.org/ns/r2rml#> .\n" +
+                "@prefix rml: <http://semweb.mmlab.be/ns/rml#> .\n" +
+                "@prefix ql: <http://semweb.mmlab.be/ns/ql#> .\n" +
+                "@prefix ex: <http://example.com/> .\n" +
+                "ex:Students rml:logicalSource [ rml:source \"student.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/resource/student_{ID}\" ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:name; rr:objectMap [ rml:reference \"Name\" ] ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:practises; rr:objectMap [ rr:parentTriplesMap ex:Sports;\n" +
+                "    rr:joinCondition [ rr:child \"Sport\"; rr:parent \"ID\" ] ] ].\n" +
+                "ex:Sports rml:logicalSource [ rml:source \"sport.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/resource/sport_{ID}\" ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:label; rr:objectMap [ rml:reference \"Name\" ] ].\n").getBytes(StandardCharsets.UTF_8));
+
+        return mappingFile;
+    }
+}
@@ -0,0 +1,182 @@
+package be.ugent.rml;
+
+import be.ugent.rml.records.Record;
+import be.ugent.rml.records.RecordsFactory;
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.store.QuadStoreFactory;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ExecutionPlanner_Test {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void statisticsAndHashJoin() throws Exception {
+        File mappingFile = new File(getClass().getClassLoader().getResource("./test-cases/RMLTC0009a-CSV/mapping.ttl").getFile());
+        Initializer initializer = new Initializer(QuadStoreFactory.read(mappingFile), null);
+        ExecutionPlan plan = new ExecutionPlanner(initializer, new RecordsFactory(mappingFile.getParent())).plan(null);
+
+        SourceStatistics students = plan.getStatistics().get("student.csv");
+        assertEquals(2, students.getRecords());
+        assertTrue(students.isExact());
+        assertEquals(1, plan.getStatistics().get("sport.csv").getRecords());
+
+        assertEquals(1, plan.getJoins().size());
+        assertEquals(ExecutionPlan.JoinStrategy.HASH, plan.getJoins().get(0).getStrategy());
+        assertEquals(1, plan.getJoins().get(0).getDistinctKeys());
+        assertTrue(plan.getSortMergeJoinParents().isEmpty());
+        assertTrue(plan.isOrdered());
+        assertEquals(0, plan.getSubjectCacheCapacity());
+        assertEquals(1, plan.getParallelism());
+    }
+
+    @Test
+    public void sortMergeJoinWithoutMemory() throws Exception {
+        File mappingFile = new File(getClass().getClassLoader().getResource("./test-cases/RMLTC0009a-CSV/mapping.ttl").getFile());
+        QuadStore rmlStore = QuadStoreFactory.read(mappingFile);
+        RecordsFactory factory = new RecordsFactory(mappingFile.getParent());
+        Initializer initializer = new Initializer(rmlStore, null);
+        ExecutionPlanner planner = new ExecutionPlanner(initializer, factory);
+        planner.setMemoryBudget(1);
+        ExecutionPlan plan = planner.plan(null);
+
+        assertEquals(ExecutionPlan.JoinStrategy.SORT_MERGE, plan.getJoins().get(0).getStrategy());
+        assertEquals(Collections.singleton(new NamedNode("http://example.com/base/TriplesMap2")), plan.getSortMergeJoinParents());
+
+        // The same quads are generated with the plan.
+        Executor executor = new Executor(initializer, factory, null, Utils.getBaseDirectiveTurtle(mappingFile));
+        plan.apply(executor);
+        Executor expected = new Executor(QuadStoreFactory.read(mappingFile), new RecordsFactory(mappingFile.getParent()), Utils.getBaseDirectiveTurtle(mappingFile));
+
+        assertEquals(new HashSet<>(expected.execute(null).getQuads(null, null, null)), new HashSet<>(executor.execute(null).getQuads(null, null, null)));
+    }
+
+    @Test
+    public void sampledRecordsAndParallelism() throws Exception {
+        File csv = folder.newFile("large.csv");
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8))) {
+            out.println("ID,Name");
+
+            for (int i = 0; i < 200000; i++) {
+                // Quoted line breaks do not end a record.
+                out.println(i + ",\"name\n" + i + "\"");
+            }
+        }
+
+        File mappingFile = folder.newFile("mapping.ttl");
+        Files.write(mappingFile.toPath(), ("@prefix rr: <http://www.w3.org/ns/r2rml#> .\n" +
+                "@prefix rml: <http://semweb.mmlab.be/ns/rml#> .\n" +
+                "@prefix ql: <http://semweb.mmlab.be/ns/ql#> .\n" +
+                "<http://example.com/TriplesMap> rml:logicalSource [ rml:source \"large.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/{ID}\" ].\n").getBytes(StandardCharsets.UTF_8));
+
+        Initializer initializer = new Initializer(QuadStoreFactory.read(mappingFile), null);
+        ExecutionPlanner planner = new ExecutionPlanner(initializer, new RecordsFactory(folder.getRoot().getPath()));
+        planner.setProcessors(4);
+        ExecutionPlan plan = planner.plan(null);
+
+        SourceStatistics source = plan.getStatistics().get("large.csv");
+        assertFalse(source.isExact());
+        assertEquals(200000, source.getRecords(), 20000);
+        assertFalse(plan.isOrdered());
+        assertEquals(4, plan.getParallelism());
+    }
+
+    @Test
+    public void sampledParentIsClosed() throws Exception {
+        File csv = folder.newFile("parents.csv");
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8))) {
+            out.println("ID");
+
+            for (int i = 0; i < 2 * ExecutionPlanner.SAMPLE_RECORDS; i++) {
+                out.println(i);
+            }
+        }
+
+        Files.write(folder.newFile("children.csv").toPath(), "ID,Parent\n1,1\n".getBytes(StandardCharsets.UTF_8));
+        File mappingFile = folder.newFile("mapping.ttl");
+        Files.write(mappingFile.toPath(), ("@prefix rr: <http://www.w3.org/ns/r2rml#> .\n" +
+                "@prefix rml: <http://semweb.mmlab.be/ns/rml#> .\n" +
+                "@prefix ql: <http://semweb.mmlab.be/ns/ql#> .\n" +
+                "@prefix ex: <http://example.com/> .\n" +
+                "ex:Children rml:logicalSource [ rml:source \"children.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/child/{ID}\" ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:parent; rr:objectMap [ rr:parentTriplesMap ex:Parents;\n" +
+                "    rr:joinCondition [ rr:child \"Parent\"; rr:parent \"ID\" ] ] ].\n" +
+                "ex:Parents rml:logicalSource [ rml:source \"parents.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/parent/{ID}\" ].\n").getBytes(StandardCharsets.UTF_8));
+
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger closed = new AtomicInteger();
+        RecordsFactory factory = new RecordsFactory(folder.getRoot().getPath()) {
+            @Override
+            public Iterator<Record> createRecordIterator(Term triplesMap, QuadStore rmlStore) throws IOException {
+                Iterator<Record> records = super.createRecordIterator(triplesMap, rmlStore);
+                opened.incrementAndGet();
+
+                return new ClosingIterator(records, closed);
+            }
+        };
+
+        Initializer initializer = new Initializer(QuadStoreFactory.read(mappingFile), null);
+        ExecutionPlan plan = new ExecutionPlanner(initializer, factory).plan(null);
+
+        // The join keys are counted in a sample of the parent records, after which the parent source is closed.
+        assertEquals(1, plan.getJoins().size());
+        assertTrue(opened.get() > 0);
+        assertEquals(opened.get(), closed.get());
+    }
+
+    /**
+     * Counts how many times the source is closed.
+     */
+    private static class ClosingIterator implements Iterator<Record>, Closeable {
+
+        private final Iterator<Record> records;
+        private final AtomicInteger closed;
+
+        ClosingIterator(Iterator<Record> records, AtomicInteger closed) {
+            this.records = records;
+            this.closed = closed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return records.hasNext();
+        }
+
+        @Override
+        public Record next() {
+            return records.next();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (records instanceof Closeable) {
+                ((Closeable) records).close();
+            }
+
+            closed.incrementAndGet();
+        }
+    }
+}
@@ -255,4 +255,9 @@ public class Mapper_CSV_Test extends TestCore {
     public void evaluate_1017_CSV() {
         doMapping("test-cases/RMLTC1017-CSV/mapping.ttl", "test-cases/RMLTC1017-CSV/output.nq");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void evaluate_1018_CSV() {
+        doMapping("test-cases/RMLTC1018-CSV/mapping.ttl", "test-cases/RMLTC1018-CSV/output.nq");
+    }
+}
@@ -1,11 +1,35 @@
 package be.ugent.rml;
 
+import be.ugent.rml.functions.FunctionLoader;
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.store.QuadStoreFactory;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.termgenerator.ConstantTermGenerator;
 import org.junit.Test;
 
+import java.io.File;
+
+import static org.junit.Assert.*;
+
 public class MappingFactoryTest extends TestCore {
 
     @Test
     public void invalidLanguageTags() {
         doMappingExpectError("utils/invalidLanguageTagsMapping.ttl");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void constantFolding() throws Exception {
+        QuadStore store = QuadStoreFactory.read(new File("./src/test/resources/test-cases/RMLTC0006a-CSV/mapping.ttl"));
+        Mapping mapping = new MappingFactory(new FunctionLoader()).createMapping(new NamedNode("http://example.com/base/TriplesMap1"), store);
+        PredicateObjectGraphMapping pogMapping = mapping.getPredicateObjectGraphMappings().get(0);
+
+        assertTrue(mapping.getSubjectMappingInfo().getTermGenerator() instanceof ConstantTermGenerator);
+        assertTrue(mapping.getGraphMappingInfos().get(0).getTermGenerator() instanceof ConstantTermGenerator);
+        assertTrue(pogMapping.getPredicateMappingInfo().getTermGenerator() instanceof ConstantTermGenerator);
+        assertTrue(pogMapping.getObjectMappingInfo().getTermGenerator() instanceof ConstantTermGenerator);
+        // The terms are preallocated and shared by all records.
+        assertSame(pogMapping.getObjectMappingInfo().getTermGenerator().generate(null), pogMapping.getObjectMappingInfo().getTermGenerator().generate(null));
+        assertEquals("http://example.com/BadStudent", mapping.getSubjectMappingInfo().getTermGenerator().generate(null).get(0).getValue());
+    }
+}
@@ -1,14 +1,35 @@
 package be.ugent.rml;
 
 import be.ugent.rml.cli.Main;
+import be.ugent.rml.records.RecordsFactory;
+import be.ugent.rml.store.NQuadsSink;
+import be.ugent.rml.store.Quad;
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.store.QuadStoreFactory;
+import be.ugent.rml.store.QuadStoreSink;
+import be.ugent.rml.store.QueuedQuadSink;
+import be.ugent.rml.term.Term;
 import org.apache.commons.lang.StringUtils;
+import org.eclipse.rdf4j.rio.RDFFormat;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class Optimizations_Test extends TestCore {
 
@@ -25,4 +46,410 @@ public class Optimizations_Test extends TestCore {
 
         assertEquals(counts, 1);
     }
+
+    @Test
+    public void sortMergeJoin() throws Exception {
+        for (String testCase : new String[]{"RMLTC0009a-CSV", "RMLTC0009b-CSV", "RMLTC0009b-JSON", "RMLTC1007-CSV", "RMLTC1018-CSV"}) {
+            Executor executor = createExecutor("./test-cases/" + testCase + "/mapping.ttl");
+            executor.setSortMergeJoin(true);
+            doMapping(executor, "./test-cases/" + testCase + "/output.nq");
+        }
+    }
+
+    @Test
+    public void sortMergeJoinWithRuns() throws Exception {
+        Executor executor = createExecutor("./test-cases/RMLTC0009b-XML/mapping.ttl");
+        executor.setSortMergeJoin(true);
+        // Every entry is written to its own run.
+        executor.setJoinMemoryBudget(1);
+        doMapping(executor, "./test-cases/RMLTC0009b-XML/output.nq");
+    }
+
+    @Test
+    public void sortMergeJoinUnorderedSortedSources() throws Exception {
+        File folder = Files.createTempDirectory("rmlmapper-sorted").toFile();
+        folder.deleteOnExit();
+
+        // Both sources are ordered numerically on the join key, but not as strings (10 before 9).
+        StringBuilder people = new StringBuilder("ID,Team\n");
+        StringBuilder teams = new StringBuilder("ID,Label\n");
+
+        for (int i = 1; i <= 12; i++) {
+            people.append(i).append(",").append(i).append("\n");
+            teams.append(i).append(",Team ").append(i).append("\n");
+        }
+
+        File mappingFile = new File(folder, "mapping.ttl");
+        Files.write(new File(folder, "people.csv").toPath(), people.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(folder, "teams.csv").toPath(), teams.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(mappingFile.toPath(), ("@prefix rr: <http://www.w3.org/ns/r2rml#> .\n" +
+                "@prefix rml: <http://semweb.mmlab.be/ns/rml#> .\n" +
+                "@prefix ql: <http://semweb.mmlab.be/ns/ql#> .\n" +
+                "@prefix ex: <http://example.com/> .\n" +
+                "ex:People rml:logicalSource [ rml:source \"people.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/person/{ID}\" ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:team; rr:objectMap [ rr:parentTriplesMap ex:Teams;\n" +
+                "    rr:joinCondition [ rr:child \"Team\"; rr:parent \"ID\" ] ] ].\n" +
+                "ex:Teams rml:logicalSource [ rml:source \"teams.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/team/{ID}\" ].\n").getBytes(StandardCharsets.UTF_8));
+
+        Executor expected = createExecutor(mappingFile.getAbsolutePath());
+        Executor executor = createExecutor(mappingFile.getAbsolutePath());
+        executor.setSortMergeJoin(true);
+        executor.setSortedSources(new HashSet<>(Arrays.asList("people.csv", "teams.csv")));
+
+        // The records are sorted on disk when they turn out not to be ordered, so the join is complete.
+        HashSet<Quad> quads = new HashSet<>(executor.execute(null).getQuads(null, null, null));
+        assertEquals(12, quads.size());
+        assertEquals(new HashSet<>(expected.execute(null).getQuads(null, null, null)), quads);
+    }
+
+    @Test
+    public void joinsWithDifferentChildReferences() throws Exception {
+        File folder = Files.createTempDirectory("rmlmapper-join").toFile();
+        folder.deleteOnExit();
+
+        // Employees and managers join the departments on the same parent reference, with differently named child references.
+        File mappingFile = new File(folder, "mapping.ttl");
+        Files.write(new File(folder, "employees.csv").toPath(), "ID,dept_id\n1,1\n2,2\n3,1\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(folder, "managers.csv").toPath(), "ID,department\n1,2\n2,3\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(folder, "departments.csv").toPath(), "id,Label\n1,One\n2,Two\n3,Three\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(mappingFile.toPath(), ("@prefix rr: <http://www.w3.org/ns/r2rml#> .\n" +
+                "@prefix rml: <http://semweb.mmlab.be/ns/rml#> .\n" +
+                "@prefix ql: <http://semweb.mmlab.be/ns/ql#> .\n" +
+                "@prefix ex: <http://example.com/> .\n" +
+                "ex:Employees rml:logicalSource [ rml:source \"employees.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/employee/{ID}\" ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:department; rr:objectMap [ rr:parentTriplesMap ex:Departments;\n" +
+                "    rr:joinCondition [ rr:child \"dept_id\"; rr:parent \"id\" ] ] ].\n" +
+                "ex:Managers rml:logicalSource [ rml:source \"managers.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/manager/{ID}\" ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:department; rr:objectMap [ rr:parentTriplesMap ex:Departments;\n" +
+                "    rr:joinCondition [ rr:child \"department\"; rr:parent \"id\" ] ] ].\n" +
+                "ex:Departments rml:logicalSource [ rml:source \"departments.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/department/{id}\" ].\n").getBytes(StandardCharsets.UTF_8));
+
+        HashSet<String> expected = new HashSet<>(Arrays.asList(
+                "<http://example.com/employee/1> <http://example.com/department> <http://example.com/department/1>",
+                "<http://example.com/employee/2> <http://example.com/department> <http://example.com/department/2>",
+                "<http://example.com/employee/3> <http://example.com/department> <http://example.com/department/1>",
+                "<http://example.com/manager/1> <http://example.com/department> <http://example.com/department/2>",
+                "<http://example.com/manager/2> <http://example.com/department> <http://example.com/department/3>"));
+
+        // Both Triples Maps probe the same index of the departments, each with its own child reference.
+        List<Quad> quads = createExecutor(mappingFile.getAbsolutePath()).execute(null).getQuads(null, null, null);
+        assertEquals(expected, toStrings(quads));
+
+        QuadStore rmlStore = QuadStoreFactory.read(mappingFile);
+        quads = new ConcurrentExecutor(rmlStore, new RecordsFactory(folder.getAbsolutePath()), null).execute(null).getQuads(null, null, null);
+        assertEquals(expected, toStrings(quads));
+    }
+
+    private static HashSet<String> toStrings(List<Quad> quads) {
+        HashSet<String> strings = new HashSet<>();
+
+        for (Quad quad : quads) {
+            strings.add(quad.getSubject() + " " + quad.getPredicate() + " " + quad.getObject());
+        }
+
+        return strings;
+    }
+
+    @Test
+    public void parallel() throws Exception {
+        for (String testCase : new String[]{"RMLTC0009a-CSV", "RMLTC0009b-CSV", "RMLTC0010c-CSV", "RMLTC0012b-CSV", "RMLTC1007-CSV"}) {
+            Executor executor = createExecutor("./test-cases/" + testCase + "/mapping.ttl");
+            executor.setParallelism(4);
+            // Every record is processed in its own chunk.
+            executor.setChunkSize(1);
+            doMapping(executor, "./test-cases/" + testCase + "/output.nq");
+        }
+    }
+
+    @Test
+    public void parallelWithoutCache() throws Exception {
+        Executor executor = createExecutor("./test-cases/RMLTC0009b-JSON/mapping.ttl");
+        executor.setParallelism(4);
+        executor.setChunkSize(1);
+        executor.setNoCache(true);
+        doMapping(executor, "./test-cases/RMLTC0009b-JSON/output.nq");
+    }
+
+    @Test
+    public void parallelSortMergeJoin() throws Exception {
+        Executor executor = createExecutor("./test-cases/RMLTC0009b-CSV/mapping.ttl");
+        executor.setParallelism(4);
+        executor.setChunkSize(1);
+        executor.setSortMergeJoin(true);
+        doMapping(executor, "./test-cases/RMLTC0009b-CSV/output.nq");
+    }
+
+    @Test
+    public void ordered() throws Exception {
+        for (String testCase : new String[]{"RMLTC0009a-CSV", "RMLTC0009b-CSV", "RMLTC0009b-JSON", "RMLTC0009b-XML", "RMLTC1007-CSV", "RMLTC1018-CSV"}) {
+            Executor executor = createExecutor("./test-cases/" + testCase + "/mapping.ttl");
+            executor.setOrdered(true);
+            doMapping(executor, "./test-cases/" + testCase + "/output.nq");
+        }
+    }
+
+    @Test
+    public void boundedSubjectCache() throws Exception {
+        for (String testCase : new String[]{"RMLTC0009a-CSV", "RMLTC0009b-CSV", "RMLTC1007-CSV"}) {
+            Executor executor = createExecutor("./test-cases/" + testCase + "/mapping.ttl");
+            // Subjects are evicted and generated again.
+            executor.setSubjectCacheCapacity(1);
+            doMapping(executor, "./test-cases/" + testCase + "/output.nq");
+        }
+
+        Executor executor = createExecutor("./test-cases/RMLTC0009b-CSV/mapping.ttl");
+        executor.setSubjectCacheCapacity(1);
+        executor.setParallelism(4);
+        executor.setChunkSize(1);
+        doMapping(executor, "./test-cases/RMLTC0009b-CSV/output.nq");
+    }
+
+    @Test
+    public void crossProduct() throws Exception {
+        for (String testCase : new String[]{"RMLTC0008b-CSV", "RMLTC1005a-CSV"}) {
+            String mapPath = "./test-cases/" + testCase + "/mapping.ttl";
+            String outPath = "./test-cases/" + testCase + "/output.nq";
+
+            // The subjects of the parent are shared by all child records.
+            Executor executor = createExecutor(mapPath);
+            doMapping(executor, outPath);
+
+            executor = createExecutor(mapPath);
+            executor.setParallelism(4);
+            executor.setChunkSize(1);
+            doMapping(executor, outPath);
+
+            executor = createExecutor(mapPath);
+            executor.setNoCache(true);
+            doMapping(executor, outPath);
+
+            executor = createExecutor(mapPath);
+            executor.setOrdered(true);
+            doMapping(executor, outPath);
+        }
+    }
+
+    @Test
+    public void parallelDeterministic() throws Exception {
+        String mapPath = "./test-cases/RMLTC0009b-CSV/mapping.ttl";
+
+        StringWriter expected = new StringWriter();
+        Executor executor = createExecutor(mapPath);
+        executor.setQuadSink(new NQuadsSink(expected));
+        executor.execute(null);
+
+        StringWriter result = new StringWriter();
+        executor = createExecutor(mapPath);
+        executor.setParallelism(4);
+        executor.setChunkSize(1);
+        executor.setDeterministic(true);
+        executor.setQuadSink(new NQuadsSink(result));
+        executor.execute(null);
+
+        assertEquals(expected.toString(), result.toString());
+    }
+
+    @Test
+    public void pipeline() throws Exception {
+        for (String testCase : new String[]{"RMLTC0009a-CSV", "RMLTC0009b-CSV", "RMLTC0012b-CSV", "RMLTC1007-CSV", "RMLTC1018-CSV"}) {
+            for (int parallelism : new int[]{1, 4}) {
+                Executor executor = createExecutor("./test-cases/" + testCase + "/mapping.ttl");
+                // Every record and every quad is passed via the queues.
+                executor.setChunkSize(1);
+                executor.setReadAhead(1);
+                executor.setParallelism(parallelism);
+                executor.setQuadSink(new QueuedQuadSink(new QuadStoreSink(executor.getResultingQuads()), 1));
+                doMapping(executor, "./test-cases/" + testCase + "/output.nq");
+            }
+        }
+    }
+
+    @Test
+    public void checkpointResume() throws Exception {
+        for (String testCase : new String[]{"RMLTC0009b-CSV", "RMLTC1007-CSV"}) {
+            String mapPath = "./test-cases/" + testCase + "/mapping.ttl";
+
+            StringWriter expected = new StringWriter();
+            Executor executor = createExecutor(mapPath);
+            executor.setQuadSink(new NQuadsSink(expected));
+            executor.execute(null);
+            int numberOfQuads = expected.toString().split("\n").length;
+
+            for (int parallelism : new int[]{1, 4}) {
+                // The first execution fails after every possible number of quads, the second one resumes from the checkpoint.
+                for (int failAfter = 0; failAfter < numberOfQuads; failAfter++) {
+                    File output = File.createTempFile("output", ".nq");
+                    File checkpointFile = new File(output.getPath() + ".checkpoint");
+
+                    try {
+                        int[] written = {0};
+                        int limit = failAfter;
+                        executor = createExecutor(mapPath);
+                        executor.setParallelism(parallelism);
+                        executor.setChunkSize(1);
+                        executor.setDeterministic(true);
+                        executor.setCheckpoint(new Checkpoint(checkpointFile, 0));
+                        executor.setQuadSink(new NQuadsSink(output.toPath()) {
+                            @Override
+                            protected void write(Writer out, Term subject, Term predicate, Term object, Term graph) throws IOException {
+                                if (written[0]++ == limit) {
+                                    throw new IOException("Failure after " + limit + " quads");
+                                }
+
+                                super.write(out, subject, predicate, object, graph);
+                            }
+                        });
+
+                        try {
+                            executor.execute(null);
+                            fail();
+                        } catch (UncheckedIOException e) {
+                            // The execution is resumed.
+                        }
+
+                        // There is no checkpoint if the first record fails.
+                        Checkpoint checkpoint = new Checkpoint(checkpointFile, 0);
+                        boolean resumed = checkpoint.load();
+                        assertTrue(resumed || failAfter < numberOfQuads - 1);
+
+                        executor = createExecutor(mapPath);
+                        executor.setParallelism(parallelism);
+                        executor.setChunkSize(1);
+                        executor.setDeterministic(true);
+                        executor.setCheckpoint(checkpoint);
+
+                        try (NQuadsSink sink = new NQuadsSink(output.toPath(), checkpoint.getLength(), checkpoint.getNumberOfQuads())) {
+                            executor.setQuadSink(sink);
+                            executor.execute(null);
+                            assertEquals(numberOfQuads, sink.getNumberOfQuads());
+                        }
+
+                        assertEquals(expected.toString(), new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8));
+                    } finally {
+                        output.delete();
+                        checkpointFile.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void checkpointOtherMappingOrOrder() throws Exception {
+        File output = File.createTempFile("output", ".nq");
+        File checkpointFile = new File(output.getPath() + ".checkpoint");
+
+        try {
+            Executor executor = createExecutor("./test-cases/RMLTC0009b-CSV/mapping.ttl");
+            executor.setCheckpoint(new Checkpoint(checkpointFile, 0));
+
+            try (NQuadsSink sink = new NQuadsSink(output.toPath())) {
+                executor.setQuadSink(sink);
+                executor.execute(null);
+            }
+
+            // The same mapping and order can be resumed.
+            assertResume(createExecutor("./test-cases/RMLTC0009b-CSV/mapping.ttl"), null, output, checkpointFile);
+
+            // Another selection of Triples Maps or another mapping cannot.
+            Executor selection = createExecutor("./test-cases/RMLTC0009b-CSV/mapping.ttl");
+            try {
+                assertResume(selection, Collections.singletonList(selection.getTriplesMaps().get(0)), output, checkpointFile);
+                fail("Expecting error not found");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("order"));
+            }
+
+            try {
+                assertResume(createExecutor("./test-cases/RMLTC1007-CSV/mapping.ttl"), null, output, checkpointFile);
+                fail("Expecting error not found");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("another mapping"));
+            }
+        } finally {
+            output.delete();
+            checkpointFile.delete();
+        }
+    }
+
+    private static void assertResume(Executor executor, List<Term> triplesMaps, File output, File checkpointFile) throws Exception {
+        Checkpoint checkpoint = new Checkpoint(checkpointFile, 0);
+        assertTrue(checkpoint.load());
+        executor.setCheckpoint(checkpoint);
+
+        try (NQuadsSink sink = new NQuadsSink(output.toPath(), checkpoint.getLength(), checkpoint.getNumberOfQuads())) {
+            executor.setQuadSink(sink);
+            executor.execute(triplesMaps);
+        }
+    }
+
+    @Test
+    public void concurrentExecutorChunks() throws Exception {
+        int chunkSize = ConcurrentExecutor.CHUNK_SIZE;
+        int batchSize = ConcurrentExecutor.BATCH_SIZE;
+
+        try {
+            // Every record is processed by its own task and every quad is flushed on its own.
+            ConcurrentExecutor.CHUNK_SIZE = 1;
+            ConcurrentExecutor.BATCH_SIZE = 1;
+
+            // The ConcurrentExecutor evaluates the self-joins of RMLTC1018 as joins.
+            for (String testCase : new String[]{"RMLTC0009a-CSV", "RMLTC0009b-CSV", "RMLTC1005a-CSV", "RMLTC1007-CSV", "RMLTC1018-CSV"}) {
+                doConcurrentMapping(testCase);
+            }
+        } finally {
+            ConcurrentExecutor.CHUNK_SIZE = chunkSize;
+            ConcurrentExecutor.BATCH_SIZE = batchSize;
+        }
+    }
+
+    @Test
+    public void concurrentExecutorBoundedSubjectCache() throws Exception {
+        ConcurrentExecutor.SUBJECT_CACHE_CAPACITY = 1;
+
+        try {
+            for (String testCase : new String[]{"RMLTC0009a-CSV", "RMLTC0009b-CSV", "RMLTC1007-CSV"}) {
+                doConcurrentMapping(testCase);
+            }
+        } finally {
+            ConcurrentExecutor.SUBJECT_CACHE_CAPACITY = 0;
+        }
+    }
+
+    @Test
+    public void concurrentExecutorVirtualThreads() throws Exception {
+        ConcurrentExecutor.VIRTUAL_THREADS = true;
+
+        try {
+            // Without Java 21, the sources are loaded by the fixed thread pool.
+            for (String testCase : new String[]{"RMLTC0009b-JSON", "RMLTC0009b-XML", "RMLTC1007-CSV"}) {
+                doConcurrentMapping(testCase);
+            }
+        } finally {
+            ConcurrentExecutor.VIRTUAL_THREADS = false;
+
+            if (ConcurrentExecutor.ioExecutorService != null) {
+                ConcurrentExecutor.ioExecutorService.shutdown();
+                ConcurrentExecutor.ioExecutorService = null;
+            }
+        }
+    }
+
+    private void doConcurrentMapping(String testCase) throws Exception {
+        File mappingFile = new File("./src/test/resources/test-cases/" + testCase + "/mapping.ttl");
+        QuadStore rmlStore = QuadStoreFactory.read(mappingFile);
+        ConcurrentExecutor executor = new ConcurrentExecutor(rmlStore, new RecordsFactory(mappingFile.getParent()),
+                Utils.getBaseDirectiveTurtle(mappingFile));
+
+        QuadStore result = executor.execute(null);
+        result.removeDuplicates();
+        QuadStore expected = QuadStoreFactory.read(new File(mappingFile.getParent(), "output.nq"), RDFFormat.NQUADS);
+
+        assertEquals(expected.toSortedString(), result.toSortedString());
+    }
 }
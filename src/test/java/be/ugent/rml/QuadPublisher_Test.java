@@ -0,0 +1,245 @@
+package be.ugent.rml;
+
+import be.ugent.rml.records.Record;
+import be.ugent.rml.records.RecordsFactory;
+import be.ugent.rml.store.Quad;
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.store.QuadStoreFactory;
+import be.ugent.rml.term.Term;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class QuadPublisher_Test extends TestCore {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void allQuadsOnDemand() throws Exception {
+        for (String testCase : new String[]{"RMLTC0009b-CSV", "RMLTC1007-CSV"}) {
+            Executor executor = createExecutor("./test-cases/" + testCase + "/mapping.ttl");
+            List<Quad> result = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch completed = new CountDownLatch(1);
+
+            // The quads are requested one by one.
+            executor.publish(null).subscribe(new Flow.Subscriber<Quad>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(Quad quad) {
+                    result.add(quad);
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    fail(throwable.getMessage());
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.countDown();
+                }
+            });
+
+            assertTrue(completed.await(10, TimeUnit.SECONDS));
+            // The same quads, in the same order, as when the mapping is executed to a QuadStore.
+            List<Quad> expected = createExecutor("./test-cases/" + testCase + "/mapping.ttl").execute(null).getQuads(null, null, null);
+            assertEquals(expected, result);
+        }
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        Executor executor = createExecutor("./test-cases/RMLTC0009b-CSV/mapping.ttl");
+        Flow.Publisher<Quad> publisher = executor.publish(null);
+        List<Object> signals = Collections.synchronizedList(new ArrayList<>());
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+
+        publisher.subscribe(new Flow.Subscriber<Quad>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+                s.request(2);
+            }
+
+            @Override
+            public void onNext(Quad quad) {
+                signals.add(quad);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+
+        // No more quads than requested are passed.
+        Thread.sleep(500);
+        assertEquals(2, signals.size());
+
+        // Neither quads nor the end are passed after the subscription is cancelled.
+        subscription[0].cancel();
+        Thread.sleep(500);
+        assertEquals(2, signals.size());
+
+        // A second subscriber is rejected.
+        Throwable[] error = new Throwable[1];
+        publisher.subscribe(new Flow.Subscriber<Quad>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(Quad quad) {
+                fail();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                error[0] = throwable;
+            }
+
+            @Override
+            public void onComplete() {
+                fail();
+            }
+        });
+
+        assertTrue(error[0] instanceof IllegalStateException);
+    }
+
+    @Test
+    public void cancelWithoutQuads() throws Exception {
+        StringBuilder people = new StringBuilder("ID,Name\n");
+
+        for (int i = 0; i < 1000; i++) {
+            people.append(i).append(",Name ").append(i).append("\n");
+        }
+
+        Files.write(folder.newFile("people.csv").toPath(), people.toString().getBytes(StandardCharsets.UTF_8));
+
+        // The subject template refers to a column that does not exist, so the records do not generate any quad.
+        File mappingFile = folder.newFile("mapping.ttl");
+        Files.write(mappingFile.toPath(), ("@prefix rr: <http://www.w3.org/ns/r2rml#> .\n" +
+                "@prefix rml: <http://semweb.mmlab.be/ns/rml#> .\n" +
+                "@prefix ql: <http://semweb.mmlab.be/ns/ql#> .\n" +
+                "@prefix ex: <http://example.com/> .\n" +
+                "ex:People rml:logicalSource [ rml:source \"people.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/{Missing}\" ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:name; rr:objectMap [ rml:reference \"Name\" ] ].\n").getBytes(StandardCharsets.UTF_8));
+
+        AtomicInteger readRecords = new AtomicInteger();
+        CountDownLatch closed = new CountDownLatch(1);
+        RecordsFactory recordsFactory = new RecordsFactory(folder.getRoot().getPath()) {
+            @Override
+            public Iterator<Record> createRecordIterator(Term triplesMap, QuadStore rmlStore) throws IOException {
+                Iterator<Record> records = super.createRecordIterator(triplesMap, rmlStore);
+
+                return new CountingIterator(records, readRecords, closed);
+            }
+        };
+
+        Executor executor = new Executor(QuadStoreFactory.read(mappingFile), recordsFactory, null);
+        List<Object> signals = Collections.synchronizedList(new ArrayList<>());
+
+        // The subscription is cancelled before any quad is generated.
+        executor.publish(null).subscribe(new Flow.Subscriber<Quad>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                s.request(1);
+                s.cancel();
+            }
+
+            @Override
+            public void onNext(Quad quad) {
+                signals.add(quad);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+
+        // The source is closed without reading its records.
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        assertEquals(0, readRecords.get());
+        Thread.sleep(200);
+        assertTrue(signals.isEmpty());
+
+        // Without cancellation, all records are read.
+        readRecords.set(0);
+        new Executor(QuadStoreFactory.read(mappingFile), recordsFactory, null).execute(null);
+        assertEquals(1000, readRecords.get());
+    }
+
+    /**
+     * Counts the records that are read and signals when the source is closed.
+     */
+    private static class CountingIterator implements Iterator<Record>, Closeable {
+
+        private final Iterator<Record> records;
+        private final AtomicInteger count;
+        private final CountDownLatch closed;
+
+        CountingIterator(Iterator<Record> records, AtomicInteger count, CountDownLatch closed) {
+            this.records = records;
+            this.count = count;
+            this.closed = closed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return records.hasNext();
+        }
+
+        @Override
+        public Record next() {
+            count.incrementAndGet();
+            return records.next();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (records instanceof Closeable) {
+                ((Closeable) records).close();
+            }
+
+            closed.countDown();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package be.ugent.rml;
+
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.store.QuadStoreFactory;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SourceLifecycle_Test {
+
+    private static final Term STUDENTS = new NamedNode("http://example.com/base/TriplesMap1");
+    private static final Term SPORTS = new NamedNode("http://example.com/base/TriplesMap2");
+
+    @Test
+    public void parentReleasedAfterLastChild() throws Exception {
+        SourceLifecycle lifecycle = createLifecycle(Collections.singleton(SPORTS));
+        List<Term> releasedParents = new ArrayList<>();
+        List<String> releasedSources = new ArrayList<>();
+
+        assertEquals(Arrays.asList(STUDENTS, SPORTS), lifecycle.getOrder());
+
+        // The students are done, but the sports are still needed by their own Triples Map.
+        lifecycle.triplesMapDone(STUDENTS, releasedParents::add, triplesMap -> releasedSources.add(lifecycle.getSource(triplesMap)));
+        assertTrue(releasedParents.isEmpty());
+        assertEquals(Collections.singletonList("student.csv"), releasedSources);
+
+        lifecycle.triplesMapDone(SPORTS, releasedParents::add, triplesMap -> releasedSources.add(lifecycle.getSource(triplesMap)));
+        assertEquals(Collections.singletonList(SPORTS), releasedParents);
+        assertEquals(Arrays.asList("student.csv", "sport.csv"), releasedSources);
+    }
+
+    @Test
+    public void withoutJoins() throws Exception {
+        SourceLifecycle lifecycle = createLifecycle(Collections.emptySet());
+        List<Term> releasedSources = new ArrayList<>();
+
+        lifecycle.triplesMapDone(STUDENTS, parent -> {}, releasedSources::add);
+        assertEquals(Collections.singletonList(STUDENTS), releasedSources);
+    }
+
+    private SourceLifecycle createLifecycle(Set<Term> parentTriplesMaps) throws Exception {
+        QuadStore rmlStore = QuadStoreFactory.read(new File("./src/test/resources/test-cases/RMLTC0009a-CSV/mapping.ttl"));
+        Initializer initializer = new Initializer(rmlStore, null);
+
+        return new SourceLifecycle(Arrays.asList(STUDENTS, SPORTS), initializer.getMappings(),
+                triplesMap -> triplesMap.equals(STUDENTS) ? "student.csv" : "sport.csv", parentTriplesMaps);
+    }
+}
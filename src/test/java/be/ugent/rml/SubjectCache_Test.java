@@ -0,0 +1,49 @@
+package be.ugent.rml;
+
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.ProvenancedTerm;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SubjectCache_Test {
+
+    @Test
+    public void firstSubjectIsKept() {
+        SubjectCache cache = new SubjectCache(3);
+        ProvenancedTerm first = new ProvenancedTerm(new NamedNode("http://example.com/1"));
+        ProvenancedTerm second = new ProvenancedTerm(new NamedNode("http://example.com/1"));
+
+        assertNull(cache.get(1));
+        assertSame(first, cache.putIfAbsent(1, first));
+        assertSame(first, cache.putIfAbsent(1, second));
+        assertSame(first, cache.get(1));
+        assertNull(cache.get(0));
+    }
+
+    @Test
+    public void indexOutsideOfCache() {
+        SubjectCache cache = new SubjectCache(1);
+        ProvenancedTerm subject = new ProvenancedTerm(new NamedNode("http://example.com/5"));
+
+        assertSame(subject, cache.putIfAbsent(5, subject));
+        assertNull(cache.get(5));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void boundedCacheEvicts() {
+        SubjectCache cache = new BoundedSubjectCache(2);
+        ProvenancedTerm first = new ProvenancedTerm(new NamedNode("http://example.com/1"));
+        ProvenancedTerm third = new ProvenancedTerm(new NamedNode("http://example.com/3"));
+
+        cache.putIfAbsent(1, first);
+        assertSame(first, cache.get(1));
+
+        // Record 3 has the same slot as record 1.
+        cache.putIfAbsent(3, third);
+        assertSame(third, cache.get(3));
+        assertNull(cache.get(1));
+        assertEquals(2, cache.size());
+    }
+}
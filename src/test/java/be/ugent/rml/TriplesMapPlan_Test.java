@@ -0,0 +1,75 @@
+package be.ugent.rml;
+
+import be.ugent.rml.store.QuadStoreFactory;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TriplesMapPlan_Test {
+
+    @Test
+    public void constantPredicateObjectMap() throws Exception {
+        TriplesMapPlan plan = getPlan("RMLTC0006a-CSV", "TriplesMap1");
+        List<PredicateObjectGraph> pogs = plan.getPredicateObjectGraphPlans().get(0).getConstantPredicateObjectGraphs();
+
+        assertNotNull(pogs);
+        assertEquals(1, pogs.size());
+        assertEquals("http://example.com/description", pogs.get(0).getPredicate().getTerm().getValue());
+        assertEquals("Bad Student", pogs.get(0).getObject().getTerm().getValue());
+        // The constant graph of the subject is part of the predicate-object-graph.
+        assertEquals("http://example.com/graph/student", pogs.get(0).getGraph().getTerm().getValue());
+        assertSame(plan.getSubjectGraphs(null), plan.getSubjectGraphs(null));
+    }
+
+    @Test
+    public void referencedObjects() throws Exception {
+        TriplesMapPlan plan = getPlan("RMLTC0009a-CSV", "TriplesMap1");
+
+        int referencing = 0;
+
+        for (PredicateObjectGraphPlan pogPlan : plan.getPredicateObjectGraphPlans()) {
+            assertNull(pogPlan.getConstantPredicateObjectGraphs());
+
+            if (pogPlan.isReferencing()) {
+                referencing++;
+            }
+        }
+
+        assertEquals(1, referencing);
+        assertTrue(plan.getSubjectGraphs(null).isEmpty());
+    }
+
+    @Test
+    public void selfJoins() throws Exception {
+        TriplesMapPlan plan = getPlan("RMLTC1018-CSV", "Persons");
+        int selfJoins = 0;
+
+        for (PredicateObjectGraphPlan pogPlan : plan.getPredicateObjectGraphPlans()) {
+            if (pogPlan.isSelfJoin()) {
+                selfJoins++;
+                // The subject of the parent only depends on the join reference.
+                assertNotEquals("http://example.com/base/Persons", pogPlan.getPredicateObjectGraphMapping().getParentTriplesMap().getValue());
+            }
+        }
+
+        assertEquals(2, selfJoins);
+
+        // The parent is on another source.
+        for (PredicateObjectGraphPlan pogPlan : getPlan("RMLTC0009a-CSV", "TriplesMap1").getPredicateObjectGraphPlans()) {
+            assertFalse(pogPlan.isSelfJoin());
+        }
+    }
+
+    private TriplesMapPlan getPlan(String testCase, String triplesMap) throws Exception {
+        File mappingFile = new File("./src/test/resources/test-cases/" + testCase + "/mapping.ttl");
+        Initializer initializer = new Initializer(QuadStoreFactory.read(mappingFile), null);
+        Term term = new NamedNode("http://example.com/base/" + triplesMap);
+
+        return initializer.getPlans().get(term);
+    }
+}
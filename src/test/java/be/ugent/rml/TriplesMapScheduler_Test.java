@@ -0,0 +1,67 @@
+package be.ugent.rml;
+
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.store.QuadStoreFactory;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TriplesMapScheduler_Test {
+
+    private static final Term STUDENTS = new NamedNode("http://example.com/base/TriplesMap1");
+    private static final Term SPORTS = new NamedNode("http://example.com/base/TriplesMap2");
+
+    @Test
+    public void childWaitsForParentSource() throws Exception {
+        TriplesMapScheduler scheduler = createScheduler();
+
+        // Both Triples Maps need the sports, so their source is loaded first.
+        assertEquals(Arrays.asList("sport.csv", "student.csv"), scheduler.getSources());
+        assertEquals(Collections.singletonList(SPORTS), scheduler.getParentTriplesMaps("sport.csv"));
+        assertTrue(scheduler.getParentTriplesMaps("student.csv").isEmpty());
+
+        assertEquals(Collections.singletonList(SPORTS), scheduler.sourceLoaded("sport.csv"));
+        assertEquals(Collections.singletonList(STUDENTS), scheduler.sourceLoaded("student.csv"));
+    }
+
+    @Test
+    public void largestFirst() throws Exception {
+        Initializer initializer = createInitializer();
+        TriplesMapScheduler scheduler = new TriplesMapScheduler(initializer.getTriplesMaps(), initializer.getMappings(),
+                triplesMap -> "people.csv", triplesMap -> triplesMap.equals(STUDENTS) ? 1L : 100L);
+
+        // The sports have a larger source, so they are started first.
+        assertEquals(Arrays.asList(SPORTS, STUDENTS), scheduler.sourceLoaded("people.csv"));
+    }
+
+    @Test
+    public void sharedSource() throws Exception {
+        Initializer initializer = createInitializer();
+        TriplesMapScheduler scheduler = new TriplesMapScheduler(initializer.getTriplesMaps(), initializer.getMappings(),
+                triplesMap -> "people.csv", triplesMap -> 10L);
+
+        assertEquals(Collections.singletonList("people.csv"), scheduler.getSources());
+        assertEquals(2, scheduler.getTriplesMaps("people.csv").size());
+        assertEquals(2, scheduler.sourceLoaded("people.csv").size());
+    }
+
+    private TriplesMapScheduler createScheduler() throws Exception {
+        Initializer initializer = createInitializer();
+
+        return new TriplesMapScheduler(initializer.getTriplesMaps(), initializer.getMappings(),
+                triplesMap -> triplesMap.equals(STUDENTS) ? "student.csv" : "sport.csv",
+                triplesMap -> triplesMap.equals(STUDENTS) ? 100L : 10L);
+    }
+
+    private Initializer createInitializer() throws Exception {
+        QuadStore rmlStore = QuadStoreFactory.read(new File("./src/test/resources/test-cases/RMLTC0009a-CSV/mapping.ttl"));
+
+        return new Initializer(rmlStore, null);
+    }
+}
@@ -5,9 +5,12 @@ import org.junit.Test;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.concurrent.ExecutorService;
 
 import static be.ugent.rml.Utils.isValidrrLanguage;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class UtilsTest {
@@ -39,4 +42,20 @@ public class UtilsTest {
 
         assertFalse(Utils.isValidIRI("bob smith"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void virtualThreadPerTaskExecutor() throws Exception {
+        ExecutorService executorService = Utils.newVirtualThreadPerTaskExecutor();
+        int version = Integer.parseInt(System.getProperty("java.specification.version").replaceFirst("^1\\.", "").split("\\.")[0]);
+
+        if (version < 19) {
+            assertNull(executorService);
+        } else if (executorService != null) {
+            assertEquals("done", executorService.submit(() -> "done").get());
+            executorService.shutdown();
+        } else {
+            // Virtual threads are a preview feature in Java 19 and 20.
+            assertTrue(version < 21);
+        }
+    }
+}
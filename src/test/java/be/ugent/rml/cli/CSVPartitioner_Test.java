@@ -0,0 +1,50 @@
+package be.ugent.rml.cli;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CSVPartitioner_Test {
+
+    @Test
+    public void splitOnRecords() throws Exception {
+        File directory = Files.createTempDirectory("partitions").toFile();
+        File file = new File(directory, "data.csv");
+        StringBuilder csv = new StringBuilder("ID,Name\n");
+        StringBuilder records = new StringBuilder();
+
+        for (int i = 0; i < 100; i++) {
+            // Every other value contains a quoted line break, which does not end the record.
+            records.append(i).append(i % 2 == 0 ? ",\"Name\n" + i + "\"\n" : ",Name " + i + "\n");
+        }
+
+        csv.append(records);
+        Files.write(file.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<File> partitions = CSVPartitioner.split(file, 3, directory);
+        StringBuilder joined = new StringBuilder();
+
+        assertEquals(3, partitions.size());
+
+        for (File partition : partitions) {
+            String content = new String(Files.readAllBytes(partition.toPath()), StandardCharsets.UTF_8);
+
+            assertEquals("ID,Name\n", content.substring(0, 8));
+            // Every partition ends with a complete record, so no quoted value is split.
+            assertEquals('\n', content.charAt(content.length() - 1));
+            assertEquals(0, content.chars().filter(c -> c == '"').count() % 2);
+            joined.append(content.substring(8));
+            partition.delete();
+        }
+
+        assertEquals(records.toString(), joined.toString());
+
+        file.delete();
+        directory.delete();
+    }
+}
@@ -0,0 +1,101 @@
+package be.ugent.rml.join;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ExternalSorter_Test {
+
+    private static JoinEntry entry(String... key) {
+        return new JoinEntry(key, String.join(",", key).getBytes());
+    }
+
+    private static List<JoinEntry> sort(ExternalSorter sorter) throws IOException {
+        List<JoinEntry> entries = new ArrayList<>();
+        Iterator<JoinEntry> iterator = sorter.iterator();
+
+        while (iterator.hasNext()) {
+            entries.add(iterator.next());
+        }
+
+        return entries;
+    }
+
+    @Test
+    public void sortInMemory() throws IOException {
+        try (ExternalSorter sorter = new ExternalSorter(Long.MAX_VALUE, false)) {
+            sorter.add(entry("b", "1"));
+            sorter.add(entry("a", "2"));
+            sorter.add(entry("a", "1"));
+
+            List<JoinEntry> entries = sort(sorter);
+
+            assertEquals(0, sorter.getNumberOfRuns());
+            assertArrayEquals(new String[]{"a", "1"}, entries.get(0).getKey());
+            assertArrayEquals(new String[]{"a", "2"}, entries.get(1).getKey());
+            assertArrayEquals(new String[]{"b", "1"}, entries.get(2).getKey());
+        }
+    }
+
+    @Test
+    public void mergeRuns() throws IOException {
+        Random random = new Random(42);
+
+        try (ExternalSorter sorter = new ExternalSorter(1024, false)) {
+            for (int i = 0; i < 1000; i++) {
+                sorter.add(entry("" + random.nextInt(100)));
+            }
+
+            List<JoinEntry> entries = sort(sorter);
+
+            assertEquals(1000, entries.size());
+            assertEquals(true, sorter.getNumberOfRuns() > 1);
+
+            for (int i = 1; i < entries.size(); i++) {
+                assertEquals(true, entries.get(i - 1).compareTo(entries.get(i)) <= 0);
+                assertArrayEquals(entries.get(i).getKey()[0].getBytes(), entries.get(i).getPayload());
+            }
+        }
+    }
+
+    @Test
+    public void presorted() throws IOException {
+        try (ExternalSorter sorter = new ExternalSorter(Long.MAX_VALUE, true)) {
+            sorter.add(entry("a"));
+            sorter.add(entry("a"));
+            sorter.add(entry("b"));
+
+            assertEquals(3, sort(sorter).size());
+            assertEquals(1, sorter.getNumberOfRuns());
+        }
+    }
+
+    @Test
+    public void presortedNotOrdered() throws IOException {
+        try (ExternalSorter sorter = new ExternalSorter(16, true)) {
+            // Numbers are ordered as strings, so 10 comes before 2.
+            sorter.add(entry("1"));
+            sorter.add(entry("2"));
+            sorter.add(entry("10"));
+            assertFalse(sorter.isPresorted());
+            sorter.add(entry("3"));
+
+            List<JoinEntry> entries = sort(sorter);
+            String[] expected = {"1", "10", "2", "3"};
+
+            assertEquals(expected.length, entries.size());
+
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals(new String[]{expected[i]}, entries.get(i).getKey());
+            }
+        }
+    }
+}
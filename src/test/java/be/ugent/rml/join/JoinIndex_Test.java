@@ -0,0 +1,139 @@
+package be.ugent.rml.join;
+
+import be.ugent.rml.records.Record;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class JoinIndex_Test {
+
+    /**
+     * @param values reference and value pairs, a null value means the reference has no value.
+     */
+    private static Record record(String... values) {
+        Map<String, String> map = new HashMap<>();
+
+        for (int i = 0; i < values.length; i += 2) {
+            map.put(values[i], values[i + 1]);
+        }
+
+        return new Record() {
+            @Override
+            public List<Object> get(String reference) {
+                List<Object> result = new ArrayList<>();
+
+                if (map.get(reference) != null) {
+                    result.add(map.get(reference));
+                }
+
+                return result;
+            }
+        };
+    }
+
+    @Test
+    public void positionsInSourceOrder() {
+        List<Record> parents = new ArrayList<>();
+        parents.add(record("id", "1"));
+        parents.add(record("id", "2"));
+        parents.add(record("id", "1"));
+        parents.add(record("id", null));
+
+        List<EqualityJoinCondition> conditions = Collections.singletonList(new EqualityJoinCondition("id", "parent_id"));
+        JoinIndex index = JoinIndex.build(parents, conditions);
+
+        assertEquals(2, index.size());
+        assertArrayEquals(new int[]{0, 2}, index.get(conditions, record("parent_id", "1")));
+        assertArrayEquals(new int[]{1}, index.get(conditions, record("parent_id", "2")));
+        assertArrayEquals(new int[0], index.get(conditions, record("parent_id", "3")));
+        assertArrayEquals(new int[0], index.get(conditions, record("parent_id", null)));
+    }
+
+    @Test
+    public void differentChildReferences() {
+        List<Record> parents = new ArrayList<>();
+        parents.add(record("id", "1"));
+        parents.add(record("id", "2"));
+
+        List<EqualityJoinCondition> deptId = Collections.singletonList(new EqualityJoinCondition("id", "dept_id"));
+        List<EqualityJoinCondition> department = Collections.singletonList(new EqualityJoinCondition("id", "department"));
+        JoinIndex index = JoinIndex.build(parents, deptId);
+
+        // The index of the parent references is probed with the child references of every caller.
+        assertArrayEquals(new int[]{0}, index.get(deptId, record("dept_id", "1", "department", "2")));
+        assertArrayEquals(new int[]{1}, index.get(department, record("dept_id", "1", "department", "2")));
+    }
+
+    @Test
+    public void sameResultAsCondition() {
+        EqualityJoinCondition condition = new EqualityJoinCondition("id", "parent_id");
+        List<Record> parents = new ArrayList<>();
+        parents.add(record("id", "a"));
+        parents.add(record("id", "b"));
+        parents.add(record("id", null));
+        parents.add(record("id", "a"));
+
+        JoinIndex index = JoinIndex.build(parents, condition);
+
+        for (String value : new String[]{"a", "b", "c", null}) {
+            Record child = record("parent_id", value);
+            List<Integer> expected = new ArrayList<>();
+
+            for (int i = 0; i < parents.size(); i++) {
+                Map<String, Record> records = new HashMap<>();
+                records.put("child", child);
+                records.put("parent", parents.get(i));
+
+                if ((boolean) condition.execute(records)) {
+                    expected.add(i);
+                }
+            }
+
+            int[] actual = index.get(Collections.singletonList(condition), child);
+            assertEquals(expected.size(), actual.length);
+
+            for (int i = 0; i < actual.length; i++) {
+                assertEquals((int) expected.get(i), actual[i]);
+            }
+        }
+    }
+
+    @Test
+    public void compositeKey() {
+        List<Record> parents = new ArrayList<>();
+        parents.add(record("country", "BE", "code", "1", "year", "2019"));
+        parents.add(record("country", "BE", "code", "1", "year", "2020"));
+        parents.add(record("country", "NL", "code", "1", "year", "2019"));
+        parents.add(record("country", "BE", "code", "1", "year", "2019"));
+        parents.add(record("country", "BE", "code", null, "year", "2019"));
+
+        List<EqualityJoinCondition> conditions = Arrays.asList(
+                new EqualityJoinCondition("country", "c"),
+                new EqualityJoinCondition("code", "k"),
+                new EqualityJoinCondition("year", "y"));
+        JoinIndex index = JoinIndex.build(parents, conditions);
+
+        assertEquals(3, index.size());
+        assertArrayEquals(new int[]{0, 3}, index.get(conditions, record("c", "BE", "k", "1", "y", "2019")));
+        assertArrayEquals(new int[]{2}, index.get(conditions, record("c", "NL", "k", "1", "y", "2019")));
+        assertArrayEquals(new int[0], index.get(conditions, record("c", "NL", "k", "1", "y", "2020")));
+        assertArrayEquals(new int[0], index.get(conditions, record("c", "BE", "k", null, "y", "2019")));
+    }
+
+    @Test
+    public void parentReferences() {
+        List<EqualityJoinCondition> conditions = Arrays.asList(
+                new EqualityJoinCondition("country", "c"),
+                new EqualityJoinCondition("code", "k"));
+
+        assertEquals(Arrays.asList("country", "code"), JoinIndex.getParentReferences(conditions));
+    }
+}
@@ -0,0 +1,136 @@
+package be.ugent.rml.records;
+
+import be.ugent.rml.store.QuadStore;
+import be.ugent.rml.store.QuadStoreFactory;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RecordsFactory_Test {
+
+    @Test
+    public void recordIteratorReturnsSameRecords() throws Exception {
+        File mappingFile = new File("./src/test/resources/test-cases/RMLTC0009a-CSV/mapping.ttl");
+        QuadStore rmlStore = QuadStoreFactory.read(mappingFile);
+        Term triplesMap = new NamedNode("http://example.com/base/TriplesMap1");
+
+        List<Record> expected = new RecordsFactory(mappingFile.getParent()).createRecords(triplesMap, rmlStore);
+        Iterator<Record> iterator = new RecordsFactory(mappingFile.getParent()).createRecordIterator(triplesMap, rmlStore);
+        List<Record> actual = new ArrayList<>();
+        iterator.forEachRemaining(actual::add);
+
+        assertEquals(2, expected.size());
+        assertEquals(expected.size(), actual.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).get("ID"), actual.get(i).get("ID"));
+            assertEquals(expected.get(i).get("Sport"), actual.get(i).get("Sport"));
+        }
+    }
+
+    @Test
+    public void readAheadIteratorReturnsSameElements() {
+        List<Integer> expected = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            expected.add(i);
+        }
+
+        for (int chunkSize : new int[]{1, 7, 1000}) {
+            List<Integer> actual = new ArrayList<>();
+            new ReadAheadIterator<>(expected.iterator(), chunkSize, 1).forEachRemaining(actual::add);
+
+            assertEquals(expected, actual);
+        }
+
+        // A failure is thrown after the elements before it.
+        Iterator<Integer> failing = new Iterator<Integer>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                if (i == 3) {
+                    throw new IllegalStateException("Invalid record");
+                }
+
+                return i++;
+            }
+        };
+
+        ReadAheadIterator<Integer> iterator = new ReadAheadIterator<>(failing, 2, 1);
+        List<Integer> actual = new ArrayList<>();
+
+        try {
+            iterator.forEachRemaining(actual::add);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Invalid record", e.getMessage());
+        }
+
+        assertEquals(Arrays.asList(0, 1, 2), actual);
+    }
+
+    @Test(timeout = 10000)
+    public void readAheadIteratorErrorAndClose() throws Exception {
+        // An Error of the other iterator is thrown as well, instead of waiting forever for the end.
+        Iterator<Integer> failing = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                throw new StackOverflowError();
+            }
+        };
+
+        try {
+            new ReadAheadIterator<>(failing, 2, 1).hasNext();
+            fail();
+        } catch (StackOverflowError e) {
+            // I expected you!
+        }
+
+        // The other iterator is closed when not all elements are used.
+        CountDownLatch closed = new CountDownLatch(1);
+
+        class Endless implements Iterator<Integer>, Closeable {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                return 0;
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        }
+
+        ReadAheadIterator<Integer> iterator = new ReadAheadIterator<>(new Endless(), 2, 1);
+        assertEquals(0, (int) iterator.next());
+        iterator.close();
+        closed.await();
+    }
+}
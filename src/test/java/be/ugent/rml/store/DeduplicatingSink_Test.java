@@ -0,0 +1,68 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.Literal;
+import be.ugent.rml.term.NamedNode;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DeduplicatingSink_Test {
+
+    @Test
+    public void suppressDuplicates() throws Exception {
+        NamedNode s = new NamedNode("http://example.com/s");
+        NamedNode p = new NamedNode("http://example.com/p");
+        NamedNode g = new NamedNode("http://example.com/g");
+        StringWriter output = new StringWriter();
+
+        try (DeduplicatingSink sink = new DeduplicatingSink(new NQuadsSink(output), 0.001, 1024 * 1024)) {
+            sink.addQuad(s, p, new Literal("o"), null);
+            sink.addQuad(s, p, new Literal("o"), g);
+            sink.addQuad(s, p, new NamedNode("o"), null);
+            sink.addQuad(s, p, new Literal("o"), null);
+            sink.addQuad(s, p, new Literal("o"), g);
+
+            assertEquals(5, sink.getNumberOfQuads());
+            assertEquals(2, sink.getNumberOfDuplicates());
+        }
+
+        assertEquals("<http://example.com/s> <http://example.com/p> \"o\".\n" +
+                "<http://example.com/s> <http://example.com/p> \"o\" <http://example.com/g>.\n" +
+                "<http://example.com/s> <http://example.com/p> <o>.\n", output.toString());
+    }
+
+    @Test
+    public void falsePositiveRate() {
+        long[] added = new long[1];
+        DeduplicatingSink sink = new DeduplicatingSink((subject, predicate, object, graph) -> added[0]++, 0.01, 1024 * 1024);
+        NamedNode p = new NamedNode("http://example.com/p");
+
+        // More quads than fit in 1 MB with the requested false positive rate.
+        for (int i = 0; i < 1500000; i++) {
+            sink.addQuad(new NamedNode("http://example.com/" + i), p, new Literal(Integer.toString(i)), null);
+        }
+
+        // The false positive rate increases once the memory limit is reached.
+        assertTrue(sink.getEstimatedFalsePositiveRate() > 0.01);
+        assertTrue(sink.getNumberOfDuplicates() > 0);
+        assertEquals(1500000, added[0] + sink.getNumberOfDuplicates());
+
+        ScalableBloomFilter filter = new ScalableBloomFilter(0.01, 64 * 1024 * 1024, 1000);
+        SplittableRandom random = new SplittableRandom(42);
+        int falsePositives = 0;
+
+        for (int i = 0; i < 1000000; i++) {
+            if (!filter.add(random.nextLong(), random.nextLong())) {
+                falsePositives++;
+            }
+        }
+
+        // Filters were added for the growing number of keys, while the false positive rate stays around the requested one.
+        assertTrue(filter.getEstimatedFalsePositiveRate() < 0.01);
+        assertTrue(falsePositives < 15000);
+    }
+}
@@ -0,0 +1,79 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.BlankNode;
+import be.ugent.rml.term.Literal;
+import be.ugent.rml.term.NamedNode;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class IncrementalSink_Test {
+
+    private final NamedNode p = new NamedNode("http://example.com/p");
+    private final NamedNode g = new NamedNode("http://example.com/g");
+
+    @Test
+    public void addedAndRemovedQuads() throws Exception {
+        Path directory = Files.createTempDirectory("incremental");
+        Path state = directory.resolve("state.nq");
+
+        try {
+            StringWriter additions = new StringWriter();
+            StringWriter removals = new StringWriter();
+            IncrementalSink sink = new IncrementalSink(new NQuadsSink(additions), new NQuadsSink(removals), state);
+            sink.addQuad(new NamedNode("http://example.com/1"), p, new Literal("a \"b\"\n", "en"), null);
+            sink.addQuad(new NamedNode("http://example.com/2"), p, new Literal("2", new NamedNode("http://www.w3.org/2001/XMLSchema#integer")), g);
+            sink.addQuad(new NamedNode("http://example.com/3"), p, new BlankNode("b1"), null);
+            sink.close();
+
+            // The first execution adds all quads.
+            assertEquals(3, sink.getNumberOfAddedQuads());
+            assertEquals("<http://example.com/1> <http://example.com/p> \"a \\\"b\\\"\\n\"@en.\n" +
+                    "<http://example.com/2> <http://example.com/p> \"2\"^^<http://www.w3.org/2001/XMLSchema#integer> <http://example.com/g>.\n" +
+                    "<http://example.com/3> <http://example.com/p> _:b1.\n", additions.toString());
+            assertEquals("", removals.toString());
+
+            additions = new StringWriter();
+            removals = new StringWriter();
+            sink = new IncrementalSink(new NQuadsSink(additions), new NQuadsSink(removals), state);
+            sink.addQuad(new NamedNode("http://example.com/4"), p, new Literal("4"), null);
+            sink.addQuad(new NamedNode("http://example.com/2"), p, new Literal("2", new NamedNode("http://www.w3.org/2001/XMLSchema#integer")), g);
+            sink.addQuad(new NamedNode("http://example.com/1"), p, new Literal("a \"b\"\n", "en"), null);
+            sink.addQuad(new NamedNode("http://example.com/1"), p, new Literal("c"), null);
+            sink.close();
+
+            // Subject 2 did not change, subject 1 has a new quad, subject 3 is removed and subject 4 is added.
+            assertEquals(1, sink.getNumberOfUnchangedSubjects());
+            assertEquals("<http://example.com/4> <http://example.com/p> \"4\".\n" +
+                    "<http://example.com/1> <http://example.com/p> \"c\".\n", additions.toString());
+            assertEquals("<http://example.com/3> <http://example.com/p> _:b1.\n", removals.toString());
+
+            additions = new StringWriter();
+            removals = new StringWriter();
+            sink = new IncrementalSink(new NQuadsSink(additions), new NQuadsSink(removals), state);
+            sink.addQuad(new NamedNode("http://example.com/1"), p, new Literal("c"), null);
+            sink.addQuad(new NamedNode("http://example.com/1"), p, new Literal("a \"b\"\n", "en"), null);
+            sink.addQuad(new NamedNode("http://example.com/2"), p, new Literal("2", new NamedNode("http://www.w3.org/2001/XMLSchema#integer")), g);
+            sink.addQuad(new NamedNode("http://example.com/4"), p, new Literal("4"), null);
+            sink.close();
+
+            // The order of the quads does not matter.
+            assertEquals(3, sink.getNumberOfUnchangedSubjects());
+            assertEquals("", additions.toString());
+            assertEquals("", removals.toString());
+            assertFalse(Files.exists(directory.resolve("state.nq.new")));
+        } finally {
+            for (File file : directory.toFile().listFiles()) {
+                file.delete();
+            }
+
+            Files.delete(directory);
+        }
+    }
+}
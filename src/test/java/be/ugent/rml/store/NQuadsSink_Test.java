@@ -0,0 +1,45 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.Literal;
+import be.ugent.rml.term.NamedNode;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class NQuadsSink_Test {
+
+    @Test
+    public void sameOutputAsSimpleQuadStore() throws Exception {
+        SimpleQuadStore store = new SimpleQuadStore();
+        StringWriter sinkOutput = new StringWriter();
+        StringWriter storeOutput = new StringWriter();
+
+        try (NQuadsSink sink = new NQuadsSink(sinkOutput)) {
+            for (QuadSink s : new QuadSink[]{sink, new QuadStoreSink(store)}) {
+                s.addQuad(new NamedNode("http://example.com/s"), new NamedNode("http://example.com/p"), new Literal("o \"1\""), null);
+                s.addQuad(new NamedNode("http://example.com/s"), new NamedNode("http://example.com/p"), new Literal("o", "en"), new NamedNode("http://example.com/g"));
+            }
+
+            assertEquals(2, sink.getNumberOfQuads());
+        }
+
+        store.write(storeOutput, "nquads");
+
+        assertEquals(storeOutput.toString(), sinkOutput.toString());
+        assertEquals("<http://example.com/s> <http://example.com/p> \"o \\\"1\\\"\".\n" +
+                "<http://example.com/s> <http://example.com/p> \"o\"@en <http://example.com/g>.\n", sinkOutput.toString());
+    }
+
+    @Test
+    public void ntriplesWithoutGraphs() throws Exception {
+        StringWriter output = new StringWriter();
+
+        try (NTriplesSink sink = new NTriplesSink(output)) {
+            sink.addQuad(new NamedNode("http://example.com/s"), new NamedNode("http://example.com/p"), new NamedNode("http://example.com/o"), new NamedNode("http://example.com/g"));
+        }
+
+        assertEquals("<http://example.com/s> <http://example.com/p> <http://example.com/o>.\n", output.toString());
+    }
+}
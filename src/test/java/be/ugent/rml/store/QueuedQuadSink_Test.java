@@ -0,0 +1,123 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.term.Literal;
+import be.ugent.rml.term.NamedNode;
+import be.ugent.rml.term.Term;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class QueuedQuadSink_Test {
+
+    private final NamedNode p = new NamedNode("http://example.com/p");
+
+    @Test
+    public void sameOrder() throws Exception {
+        StringWriter expected = new StringWriter();
+        StringWriter result = new StringWriter();
+
+        try (NQuadsSink direct = new NQuadsSink(expected); QueuedQuadSink queued = new QueuedQuadSink(new NQuadsSink(result), 2)) {
+            for (int i = 0; i < 5000; i++) {
+                for (QuadSink sink : new QuadSink[]{direct, queued}) {
+                    sink.addQuad(new NamedNode("http://example.com/" + i), p, new Literal("" + i), null);
+                }
+            }
+
+            // All quads are written after a flush.
+            queued.flush();
+            assertEquals(expected.toString(), result.toString());
+        }
+
+        assertEquals(expected.toString(), result.toString());
+    }
+
+    @Test
+    public void backpressure() throws Exception {
+        CountDownLatch slow = new CountDownLatch(1);
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger added = new AtomicInteger();
+        QueuedQuadSink sink = new QueuedQuadSink((subject, predicate, object, graph) -> {
+            try {
+                slow.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+
+            written.incrementAndGet();
+        }, 2);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 100 * QueuedQuadSink.BATCH_SIZE; i++) {
+                sink.addQuad(new NamedNode("http://example.com/" + i), p, new Literal("" + i), null);
+                added.incrementAndGet();
+            }
+        });
+        producer.start();
+        producer.join(500);
+
+        // The batch that is written, the queued batches and the current batch.
+        assertTrue(producer.isAlive());
+        assertTrue(added.get() <= 4 * QueuedQuadSink.BATCH_SIZE);
+
+        slow.countDown();
+        producer.join();
+        sink.close();
+
+        assertEquals(100 * QueuedQuadSink.BATCH_SIZE, written.get());
+    }
+
+    @Test
+    public void failure() throws Exception {
+        QueuedQuadSink sink = new QueuedQuadSink((subject, predicate, object, graph) -> {
+            throw new UncheckedIOException(new IOException("Disk full"));
+        }, 2);
+
+        try {
+            for (int i = 0; i < 10 * QueuedQuadSink.BATCH_SIZE; i++) {
+                sink.addQuad(new NamedNode("http://example.com/" + i), p, new Literal("" + i), null);
+            }
+
+            sink.close();
+            fail();
+        } catch (UncheckedIOException e) {
+            assertEquals("Disk full", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void closedAfterFailure() throws Exception {
+        AtomicInteger closed = new AtomicInteger();
+        QueuedQuadSink sink = new QueuedQuadSink(new QuadSink() {
+            @Override
+            public void addQuad(Term subject, Term predicate, Term object, Term graph) {
+                throw new UncheckedIOException(new IOException("Disk full"));
+            }
+
+            @Override
+            public void close() throws IOException {
+                closed.incrementAndGet();
+                throw new IOException("Connection lost");
+            }
+        }, 2);
+
+        sink.addQuad(new NamedNode("http://example.com/1"), p, new Literal("1"), null);
+
+        try {
+            sink.close();
+            fail();
+        } catch (UncheckedIOException e) {
+            // The other sink is closed, and the failure of closing it does not hide the failure of writing.
+            assertEquals("Disk full", e.getCause().getMessage());
+            assertEquals(1, e.getSuppressed().length);
+            assertEquals("Connection lost", e.getSuppressed()[0].getMessage());
+        }
+
+        assertEquals(1, closed.get());
+    }
+}
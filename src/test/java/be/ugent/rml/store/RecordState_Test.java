@@ -0,0 +1,115 @@
+package be.ugent.rml.store;
+
+import be.ugent.rml.Executor;
+import be.ugent.rml.records.RecordsFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class RecordState_Test {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File mappingFile;
+    private Path state;
+    private StringWriter additions;
+    private StringWriter removals;
+
+    @Test
+    public void unchangedRecordsAreNotMapped() throws Exception {
+        mappingFile = folder.newFile("mapping.ttl");
+        state = folder.getRoot().toPath().resolve("state.nq");
+        // People and Teams only depend on their records, the join of Members depends on the teams as well.
+        Files.write(mappingFile.toPath(), ("@prefix rr: <http://www.w3.org/ns/r2rml#> .\n" +
+                "@prefix rml: <http://semweb.mmlab.be/ns/rml#> .\n" +
+                "@prefix ql: <http://semweb.mmlab.be/ns/ql#> .\n" +
+                "@prefix ex: <http://example.com/> .\n" +
+                "ex:People rml:logicalSource [ rml:source \"people.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/person/{ID}\" ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:name; rr:objectMap [ rml:reference \"Name\" ] ].\n" +
+                "ex:Members rml:logicalSource [ rml:source \"people.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/person/{ID}\" ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:team; rr:objectMap [ rr:parentTriplesMap ex:Teams;\n" +
+                "    rr:joinCondition [ rr:child \"Team\"; rr:parent \"ID\" ] ] ].\n" +
+                "ex:Teams rml:logicalSource [ rml:source \"teams.csv\"; rml:referenceFormulation ql:CSV ];\n" +
+                "  rr:subjectMap [ rr:template \"http://example.com/team/{ID}\" ];\n" +
+                "  rr:predicateObjectMap [ rr:predicate ex:label; rr:objectMap [ rml:reference \"Label\" ] ].\n").getBytes(StandardCharsets.UTF_8));
+        write("teams.csv", "ID,Label\n1,Team 1\n2,Team 2\n");
+        write("people.csv", "ID,Name,Team\n1,Alice,1\n2,Bob,2\n3,Carol,1\n");
+
+        // The first execution maps all records of People and Teams.
+        RecordState recordState = execute(1);
+        assertEquals(0, recordState.getNumberOfUnchangedRecords());
+        assertEquals(5, recordState.getNumberOfMappedRecords());
+        assertEquals(8, lines(additions).size());
+
+        // Without changes, no record of People and Teams is mapped, also when the records are processed in parallel.
+        recordState = execute(2);
+        assertEquals(5, recordState.getNumberOfUnchangedRecords());
+        assertEquals(0, recordState.getNumberOfMappedRecords());
+        assertEquals("", additions.toString());
+        assertEquals("", removals.toString());
+
+        // Only the record that changed is mapped, the quads of the deleted record are removed.
+        write("people.csv", "ID,Name,Team\n1,Alice,1\n3,Caroline,2\n");
+        recordState = execute(1);
+        assertEquals(3, recordState.getNumberOfUnchangedRecords());
+        assertEquals(1, recordState.getNumberOfMappedRecords());
+        assertEquals(new HashSet<>(Arrays.asList(
+                "<http://example.com/person/3> <http://example.com/name> \"Caroline\".",
+                "<http://example.com/person/3> <http://example.com/team> <http://example.com/team/2>.")), lines(additions));
+        assertEquals(new HashSet<>(Arrays.asList(
+                "<http://example.com/person/2> <http://example.com/name> \"Bob\".",
+                "<http://example.com/person/2> <http://example.com/team> <http://example.com/team/2>.",
+                "<http://example.com/person/3> <http://example.com/name> \"Carol\".",
+                "<http://example.com/person/3> <http://example.com/team> <http://example.com/team/1>.")), lines(removals));
+
+        // The state holds the same quads as a complete execution.
+        StringWriter complete = new StringWriter();
+        Executor executor = new Executor(QuadStoreFactory.read(mappingFile), new RecordsFactory(folder.getRoot().getPath()), null);
+        executor.setQuadSink(new NQuadsSink(complete));
+        executor.execute(null);
+        assertEquals(lines(complete), new HashSet<>(Files.readAllLines(state, StandardCharsets.UTF_8)));
+    }
+
+    private RecordState execute(int parallelism) throws Exception {
+        additions = new StringWriter();
+        removals = new StringWriter();
+        IncrementalSink sink = new IncrementalSink(new NQuadsSink(additions), new NQuadsSink(removals), state);
+        RecordState recordState = new RecordState(state.resolveSibling("state.nq.records"));
+
+        Executor executor = new Executor(QuadStoreFactory.read(mappingFile), new RecordsFactory(folder.getRoot().getPath()), null);
+        executor.setQuadSink(sink);
+        executor.setRecordState(recordState);
+        executor.setParallelism(parallelism);
+        executor.setChunkSize(1);
+        executor.execute(null);
+        sink.close();
+        recordState.close();
+
+        return recordState;
+    }
+
+    private void write(String file, String content) throws Exception {
+        Files.write(folder.getRoot().toPath().resolve(file), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Set<String> lines(StringWriter writer) {
+        Set<String> lines = new HashSet<>(Arrays.asList(writer.toString().split("\n")));
+        lines.remove("");
+
+        return lines;
+    }
+}
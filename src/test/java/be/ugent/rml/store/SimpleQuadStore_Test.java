@@ -1,5 +1,6 @@
 package be.ugent.rml.store;
 
+import be.ugent.rml.term.Literal;
 import be.ugent.rml.term.NamedNode;
 import org.junit.Test;
 
@@ -24,4 +25,46 @@ public class SimpleQuadStore_Test {
         // get quads matching the predicate
         assertEquals(1, store.getQuads(null, new NamedNode(p1), null).size());
     }
+
+    @Test
+    public void remove_duplicates() {
+        NamedNode s = new NamedNode("http://example.com/s");
+        NamedNode p = new NamedNode("http://example.com/p");
+        NamedNode g = new NamedNode("http://example.com/g");
+        NamedNode string = new NamedNode("http://www.w3.org/2001/XMLSchema#string");
+
+        SimpleQuadStore store = new SimpleQuadStore();
+
+        store.addQuad(s, p, new Literal("o"), null);
+        store.addQuad(s, p, new Literal("o"), g);
+        store.addQuad(s, p, new Literal("o"), null);
+        store.addQuad(s, p, new Literal("o", "en"), null);
+        store.addQuad(s, p, new Literal("o", string), null);
+        store.addQuad(s, p, new Literal("o", new NamedNode("http://www.w3.org/2001/XMLSchema#string")), null);
+
+        store.removeDuplicates();
+        assertEquals(4, store.size());
+
+        // duplicates are also removed when they are added afterwards
+        store.addQuad(s, p, new Literal("o", "en"), null);
+        assertEquals(4, store.size());
+
+        // the first occurrences are kept in order
+        assertEquals(null, store.getQuads(null, null, null).get(0).getGraph());
+        assertEquals(g, store.getQuads(null, null, null).get(1).getGraph());
+    }
+
+    @Test
+    public void remove_duplicates_on_add() {
+        NamedNode s = new NamedNode("http://example.com/s");
+        NamedNode p = new NamedNode("http://example.com/p");
+
+        SimpleQuadStore store = new SimpleQuadStore(true);
+
+        store.addQuad(s, p, new NamedNode("http://example.com/o"), null);
+        store.addQuad(s, p, new NamedNode("http://example.com/o"), null);
+        store.addQuad(s, p, new Literal("http://example.com/o"), null);
+
+        assertEquals(2, store.size());
+    }
 }